@@ -2,75 +2,81 @@ package gitlet;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 
 /** The Gitlet Blob class.
  * @author Jason Ding
  */
-public class Blob implements Serializable {
+public class Blob {
 
-    /** The String content of the blob. */
-    private String _blob;
+    /** The contents of the blob, byte for byte. */
+    private byte[] _contents;
 
-    /** The SHA1 name of the blob. */
-    private String _name;
+    /** The id of the blob. */
+    private ObjectId _name;
 
     /** The constructor of the class.
-     * Take in FILE and store it as a blob.
+     * Take in FILE and store it as a blob in the repository CTX.
      */
-    Blob(File file) throws IOException {
-        _blob = Utils.readContentsAsString(file);
-        _name = "b" + Utils.sha1(_blob);
-        saveBlob();
+    Blob(Context ctx, File file) throws IOException {
+        this(ctx, Utils.readContents(file));
+    }
+
+    /** The constructor of the class.
+     * Take in CONTENTS and store them as they are, whatever their
+     * encoding, as a blob in the repository CTX.
+     */
+    Blob(Context ctx, byte[] contents) throws IOException {
+        _contents = contents;
+        _name = ObjectId.ofBlob(contents);
+        saveBlob(ctx);
     }
 
     /** Get the blob and return the string representation. */
     public String getBlob() {
-        return _blob;
+        return new String(_contents, StandardCharsets.UTF_8);
     }
 
-    /** Get the name and return the string representation. */
-    public String getName() {
+    /** Get the name and return the id of the blob. */
+    public ObjectId getName() {
         return _name;
     }
 
     /** Return Whether two blobs are different according to the sha1.
      * Take in BLOB.
      */
-    public Boolean isDiff(String blob) {
+    public Boolean isDiff(ObjectId blob) {
         if (blob == null) {
             return true;
         }
         return !this._name.equals(blob);
     }
 
-    /** Save blob in the Object directory. */
-    public void saveBlob() throws IOException {
-        File f = Utils.join(Main.OBJECTS, _name);
-        f.createNewFile();
-        Utils.writeContents(f, _blob);
+    /** Save blob in the Object directory of CTX. */
+    public void saveBlob(Context ctx) throws IOException {
+        File f = ObjectStore.fileForWrite(ctx, _name);
+        WriteBatch.writeObject(f, _contents);
     }
 
-    /** Reads in a blob from a file according to its SHA1.
-     * Return the STRING content.
+    /** Reads in a blob of the repository CTX from a file according to
+     * its SHA1, fetching it from a promisor remote if it was left behind
+     * by a blobless fetch. Return the STRING content.
      */
-    public static String fromFile(String sha1) {
-        File blobFile = Utils.join(Main.OBJECTS, sha1);
-        if (!blobFile.exists()) {
-            throw new IllegalArgumentException(
-                    "No blob file with that name found.");
-        }
-        return Utils.readContentsAsString(blobFile);
+    public static String fromFile(Context ctx, ObjectId sha1) {
+        return new String(bytesFromFile(ctx, sha1), StandardCharsets.UTF_8);
     }
 
-    /** Reads in a blob from a file according to its SHA1. Return the BLOB. */
-    public static Blob blobFromFile(String sha1) {
-        File blobFile = Utils.join(Main.OBJECTS, sha1);
-        if (!blobFile.exists()) {
+    /** Reads in a blob of the repository CTX from a file according to
+     * its SHA1 as fromFile does, without decoding it. Return the raw BYTES.
+     */
+    public static byte[] bytesFromFile(Context ctx, ObjectId sha1) {
+        File blobFile = ObjectStore.file(ctx, sha1);
+        if (!blobFile.exists() && !Remote.fetchMissing(ctx, sha1)) {
             throw new IllegalArgumentException(
                     "No blob file with that name found.");
         }
-        return Utils.readObject(blobFile, Blob.class);
+        Stats.countBlobRead();
+        return Utils.readContents(blobFile);
     }
 
 }
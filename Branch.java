@@ -10,29 +10,32 @@ import java.util.LinkedList;
  */
 public class Branch implements Serializable {
 
+    /** Version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
     /** The name of the branch. */
     private String _name;
     /** The head commit of the branch. */
-    private String _head;
+    private ObjectId _head;
     /** The LinkedList representation of commits in the branch. */
-    private LinkedList<String> _commits = new LinkedList<>();
+    private LinkedList<ObjectId> _commits = new LinkedList<>();
 
     /** The constructor of the class.
      * Take in String NAME and Commit HEAD.
      */
-    Branch(String name, String head) {
+    Branch(String name, ObjectId head) {
         _name = name;
         _head = head;
         _commits.add(head);
     }
 
     /** Get the commits and return LinkedList of commits. */
-    public LinkedList<String> getCommits() {
+    public LinkedList<ObjectId> getCommits() {
         return _commits;
     }
 
     /** Get the head. and return the head commit. */
-    public String getHead() {
+    public ObjectId getHead() {
         return _head;
     }
 
@@ -42,7 +45,7 @@ public class Branch implements Serializable {
     }
 
     /** Set the head of the branch to COMMIT. */
-    public void setHead(String commit) {
+    public void setHead(ObjectId commit) {
         _head = commit;
     }
 
@@ -52,43 +55,54 @@ public class Branch implements Serializable {
     }
 
     /** Change the commits of the branch. Take in LST. */
-    public void changeCommits(LinkedList<String> lst) {
+    public void changeCommits(LinkedList<ObjectId> lst) {
         _commits = lst;
     }
 
-    /** Change the current head of the branch according to the HEAD. */
-    public void changeHead(String head) {
+    /** Change the current head of the branch in the repository CTX
+     * according to the HEAD. The update only succeeds if the branch on
+     * disk still points where this copy did, so a concurrent update is
+     * reported rather than lost.
+     */
+    public void changeHead(Context ctx, ObjectId head) {
+        File f = Utils.join(ctx.getBranch(), _name);
+        if (f.exists()) {
+            ObjectId onDisk = Utils.readObject(f, Branch.class).getHead();
+            if (!onDisk.equals(_head)) {
+                throw Utils.error("Branch %s was updated by another "
+                        + "command; try again.", _name);
+            }
+        }
         _head = head;
         _commits.add(head);
-        File f = Utils.join(Main.BRANCH, _name);
-        Utils.writeObject(f, this);
+        WriteBatch.writeDurable(f, Utils.serialize(this));
     }
 
-    /** Save the branch to a file in the BRANCH directory. */
-    public void saveBranch() throws IOException {
-        File f = Utils.join(Main.BRANCH, _name);
-        f.createNewFile();
-        Utils.writeObject(f, this);
+    /** Save the branch to a file in the BRANCH directory of CTX. */
+    public void saveBranch(Context ctx) throws IOException {
+        File f = Utils.join(ctx.getBranch(), _name);
+        WriteBatch.writeDurable(f, Utils.serialize(this));
     }
 
-    /** Reads the branch according to its NAME.
+    /** Reads the branch of the repository CTX according to its NAME,
+     * or the current branch if NAME is null.
      * Return the BRANCH with corresponding name. */
-    public static Branch fromFile(String name) {
+    public static Branch fromFile(Context ctx, String name) {
         if (name == null) {
-            if (!Main.CURRENT_BRANCH.exists()) {
+            if (!ctx.getCurrentBranch().exists()) {
                 throw new IllegalArgumentException(
                         "No current branch file found.");
             }
             String currentBranch = Utils.readContentsAsString(
-                    Main.CURRENT_BRANCH);
-            return fromFile(currentBranch);
+                    ctx.getCurrentBranch());
+            return fromFile(ctx, currentBranch);
         } else {
-            if (!Utils.join(Main.BRANCH, name).exists()) {
+            if (!Utils.join(ctx.getBranch(), name).exists()) {
                 throw new IllegalArgumentException(
                         "No branch file with that name found.");
             }
-            return Utils.readObject(Utils.join(Main.
-                    BRANCH, name), Branch.class);
+            return Utils.readObject(Utils.join(ctx.getBranch(), name),
+                    Branch.class);
         }
     }
 
@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of checking out branches.
+ * @author Jason Ding
+ */
+public class CheckoutTest {
+
+    /** Number of files in the commit both branches start from. */
+    private static final int FILES = 20;
+    /** A modification time long before the tests run. */
+    private static final long LONG_AGO = 1000000000000L;
+
+    /** The repository. */
+    private Repository _repo;
+
+    /** Make a repository whose master has FILES files and whose branch
+     * other edits f3, removes f5 and adds new.txt.
+     */
+    @Before
+    public void setUp() throws IOException {
+        _repo = UnitTest.newRepository();
+        for (int i = 0; i < FILES; i++) {
+            UnitTest.write(_repo, "f" + i, "file " + i + "\n");
+            _repo.add("f" + i);
+        }
+        _repo.commit("many files");
+        _repo.branch("other");
+        _repo.checkoutBranch("other");
+        UnitTest.write(_repo, "f3", "edited\n");
+        _repo.add("f3");
+        _repo.rm("f5");
+        UnitTest.write(_repo, "new.txt", "new\n");
+        _repo.add("new.txt");
+        _repo.commit("three changes");
+        _repo.checkoutBranch("master");
+    }
+
+    /** Return the working file NAME. */
+    private File file(String name) {
+        return Utils.join(_repo.getWorkingDirectory(), name);
+    }
+
+    @Test
+    public void touchesOnlyTheChangedPaths() throws IOException {
+        for (int i = 0; i < FILES; i++) {
+            assertTrue(file("f" + i).setLastModified(LONG_AGO));
+        }
+        _repo.checkoutBranch("other");
+        assertEquals("edited\n", Utils.readContentsAsString(file("f3")));
+        assertFalse(file("f5").exists());
+        assertEquals("new\n", Utils.readContentsAsString(file("new.txt")));
+        for (int i = 0; i < FILES; i++) {
+            if (i != 3 && i != 5) {
+                assertEquals("f" + i, LONG_AGO, file("f" + i).lastModified());
+            }
+        }
+
+        _repo.checkoutBranch("master");
+        assertEquals("file 3\n", Utils.readContentsAsString(file("f3")));
+        assertEquals("file 5\n", Utils.readContentsAsString(file("f5")));
+        assertFalse(file("new.txt").exists());
+        assertEquals(LONG_AGO, file("f4").lastModified());
+    }
+
+    @Test
+    public void untrackedFileInTheWayStopsTheCheckout() throws IOException {
+        UnitTest.write(_repo, "new.txt", "mine\n");
+        try {
+            _repo.checkoutBranch("other");
+            fail("untracked file overwritten");
+        } catch (GitletException excp) {
+            assertEquals("master", _repo.currentBranch());
+        }
+        assertEquals("mine\n", Utils.readContentsAsString(file("new.txt")));
+        assertEquals("file 3\n", Utils.readContentsAsString(file("f3")));
+        assertTrue(file("f5").exists());
+
+        UnitTest.write(_repo, "new.txt", "new\n");
+        _repo.checkoutBranch("other");
+        assertEquals("edited\n", Utils.readContentsAsString(file("f3")));
+    }
+
+}
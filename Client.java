@@ -0,0 +1,56 @@
+package gitlet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/** A thin front end to gitlet.Server. Usage:
+ *      java gitlet.Client ARGS
+ * with the same ARGS as gitlet.Main. The command is sent to the server
+ * of the repository in the current directory, and is run in this
+ * process instead if no server is listening. The output and error
+ * streams of the command are printed on this process's own, and it
+ * exits with the command's status.
+ * @author Jason Ding
+ */
+public class Client {
+
+    /** Send ARGS to the server, print its output and exit with its
+     * status.
+     */
+    public static void main(String... args) throws IOException {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(UnixDomainSocketAddress.of(
+                    new Context(new File(".")).getSocket().toPath()));
+        } catch (IOException excp) {
+            Main.main(args);
+            return;
+        }
+        int status;
+        try (SocketChannel server = channel) {
+            DataOutputStream out =
+                new DataOutputStream(Channels.newOutputStream(server));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            DataInputStream in =
+                new DataInputStream(Channels.newInputStream(server));
+            status = in.readInt();
+            System.out.write(in.readNBytes(in.readInt()));
+            System.out.flush();
+            System.err.write(in.readNBytes(in.readInt()));
+            System.err.flush();
+        }
+        System.exit(status);
+    }
+
+}
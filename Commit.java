@@ -3,119 +3,167 @@ package gitlet;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
 
 /** The Gitlet Commit class.
  * @author Jason Ding
  */
 public class Commit implements Serializable {
 
-    /** Timestamp of the commit. */
-    private String _time;
+    /** Version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
+    /** The format of commit timestamps shown to users. */
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("EEE MMM d HH:mm:ss yyyy Z", Locale.US);
+
+    /** Timestamp of the commit, in milliseconds since the epoch. */
+    private long _timestamp;
+
+    /** Offset from UTC of the committer's time zone, in seconds. */
+    private int _zoneOffset;
 
     /** The commit message. */
     private String _message;
 
-    /** The parent of the commit. */
-    private String _parent;
+    /** The parent of the commit, or the first parent of a merge. */
+    private ObjectId _parent;
 
-    /** Parent 1 of the merged commit. */
-    private String _parent1;
+    /** Parent 2 of the merged commit, or null if it is not a merge. */
+    private ObjectId _parent2;
 
-    /** Parent 2 of the merged commit. */
-    private String _parent2;
+    /** The files of the commit and their blobs. */
+    private PathTable _files;
 
-    /** HashMap that points to all blobs.*/
-    private HashMap<String, String> _blobs;
+    /** The id of the commit. */
+    private ObjectId _sha1;
 
-    /** The SHA1 of the commit. */
-    private String _sha1;
+    /** Constructor of the Commit class. Take in MESSAGE and PARENT,
+     * whose files it keeps, and save the commit in the repository CTX.
+     */
+    Commit(Context ctx, String message, ObjectId parent) throws IOException {
+        this(ctx, message, parent, parent == null ? PathTable.EMPTY
+                : fromFile(ctx, parent).getFiles());
+    }
 
-    /** Boolean of whether the commit is merged. */
-    private boolean _isMerged;
+    /** Constructor of a Commit with MESSAGE and PARENT, which has the
+     * files FILES that it keeps, saved in the repository CTX.
+     */
+    private Commit(Context ctx, String message, ObjectId parent,
+                   PathTable files) throws IOException {
+        this(ctx, message, parent, null, files, files);
+    }
 
-    /** Constructor of the Commit class. Take in MESSAGE and PARENT. */
-    Commit(String message, String parent) throws IOException {
+    /** Constructor of a Commit whose files are FILES. Take in MESSAGE,
+     * PARENT1, whose files are BASE, and PARENT2, which is null unless
+     * the commit is a merge, and save the commit in the repository CTX.
+     * The commit is hashed and written once, with its final files, and
+     * the paths where FILES differ from BASE are recorded in the log.
+     */
+    Commit(Context ctx, String message, ObjectId parent1, ObjectId parent2,
+           PathTable base, PathTable files) throws IOException {
         _message = message;
-        _parent = parent;
-        _isMerged = false;
-        SimpleDateFormat formatter
-                = new SimpleDateFormat("EEE LLL d HH:mm:ss y Z");
-        if (parent == null) {
-            _time = formatter.format(new Date(0));
-            _blobs = new HashMap<>();
-        } else {
-            _time = formatter.format(new Date(System.currentTimeMillis()));
-            Commit c = fromFile(_parent);
-            _blobs = c.getBlobs();
-        }
-        _sha1 = "c" + Utils.sha1(Utils.serialize(this));
-        update();
+        _parent = parent1;
+        _parent2 = parent2;
+        setTime(parent1 == null ? 0 : System.currentTimeMillis());
+        _files = files;
+        _sha1 = hash();
+        update(ctx);
+        CommitLog.append(ctx, this, base);
     }
 
-    /** Constructor of the merged Commit class. Take in MESSAGE,
-     * PARENT1, and PARENT2.
+    /** Constructor of a Commit carried over from an older repository
+     * format, with MESSAGE, PARENT1, PARENT2 and FILES, made at TIMESTAMP
+     * in the zone ZONEOFFSET seconds from UTC, and saved in the
+     * repository CTX. It is left out of the log, which is rebuilt once
+     * every commit has been carried over.
      */
-    Commit(String message, String parent1, String parent2) throws IOException {
+    Commit(Context ctx, String message, ObjectId parent1, ObjectId parent2,
+           long timestamp, int zoneOffset, PathTable files)
+        throws IOException {
         _message = message;
-        _parent1 = parent1;
+        _parent = parent1;
         _parent2 = parent2;
-        _parent = _parent1 + _parent2;
-        _isMerged = true;
-        SimpleDateFormat formatter
-                = new SimpleDateFormat("EEE LLL d HH:mm:ss y Z");
-        _time = formatter.format(new Date(System.currentTimeMillis()));
-        Commit c1 = fromFile(_parent1);
-        _blobs = c1.getBlobs();
-        _sha1 = "c" + Utils.sha1(Utils.serialize(this));
-        update();
-    }
-
-    /** Commit the files from the staging area of the branch.
-     * Take in the STAGE.
+        _timestamp = timestamp;
+        _zoneOffset = zoneOffset;
+        _files = files;
+        _sha1 = hash();
+        update(ctx);
+    }
+
+    /** Return the id of this commit: the hash of its serialized form
+     * with no id set.
      */
-    public void commit(Stage stage) throws IOException {
-        Stage s = Utils.readObject(stage.getFile(),
-                Stage.class);
-        _blobs.putAll(s.getCurrStage());
-        for (String str : s.getRemoveStage().keySet()) {
-            _blobs.remove(str);
+    ObjectId hash() {
+        ObjectId id = _sha1;
+        _sha1 = null;
+        try {
+            return ObjectId.of(ObjectId.Type.COMMIT,
+                    Utils.sha1(Utils.serialize(this)));
+        } finally {
+            _sha1 = id;
         }
-        update();
     }
 
-    /** Save or update the commit object. */
-    public void update() throws IOException {
-        File f = Utils.join(Main.OBJECTS, getSha1());
-        f.createNewFile();
-        Utils.writeObject(f, this);
+    /** Save the commit object in the repository CTX. */
+    private void update(Context ctx) throws IOException {
+        File f = ObjectStore.fileForWrite(ctx, getSha1());
+        WriteBatch.writeObject(f, Utils.serialize(this));
+        CommitIndex.add(ctx, getSha1());
     }
 
     /** Return whether the commit is merged. */
     public boolean isMerged() {
-        return _isMerged;
+        return _parent2 != null;
     }
 
-    /** Return the parent. */
-    public String getParent() {
+    /** Return the parent, or the first parent of a merge. */
+    public ObjectId getParent() {
         return _parent;
     }
 
-    /** Return parent1 of the merged commit. */
-    public String getParent1() {
-        return _parent1;
+    /** Return parent1 of the merged commit, which is its parent. */
+    public ObjectId getParent1() {
+        return _parent;
     }
 
     /** Return parent2 of the merged commit. */
-    public String getParent2() {
+    public ObjectId getParent2() {
         return _parent2;
     }
 
-    /** Return time. */
+    /** Set the timestamp to MILLIS, in the local time zone. */
+    private void setTime(long millis) {
+        _timestamp = millis;
+        _zoneOffset = ZoneId.systemDefault().getRules().
+                getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds();
+    }
+
+    /** Return time, formatted for display. */
     public String getTime() {
-        return _time;
+        return formatTime(_timestamp, _zoneOffset);
+    }
+
+    /** Return the timestamp in milliseconds since the epoch. */
+    public long getTimestamp() {
+        return _timestamp;
+    }
+
+    /** Return the time zone offset of the timestamp in seconds. */
+    public int getZoneOffset() {
+        return _zoneOffset;
+    }
+
+    /** Return the timestamp MILLIS in the time zone ZONEOFFSET seconds
+     * from UTC, formatted for display.
+     */
+    static String formatTime(long millis, int zoneOffset) {
+        return TIME_FORMAT.format(Instant.ofEpochMilli(millis).
+                atOffset(ZoneOffset.ofTotalSeconds(zoneOffset)));
     }
 
     /** Return message. */
@@ -123,25 +171,26 @@ public class Commit implements Serializable {
         return _message;
     }
 
-    /** Return blobs of the commit. */
-    public HashMap<String, String> getBlobs() {
-        return _blobs;
+    /** Return the files of the commit and their blobs. */
+    public PathTable getFiles() {
+        return _files;
     }
 
-    /** Return its sha1 representation. */
-    public String getSha1() {
+    /** Return its id. */
+    public ObjectId getSha1() {
         return _sha1;
     }
 
-    /** Reads in and deserializes a commit from a file according
-     * to its SHA1 code. Return the commit.
+    /** Reads in and deserializes a commit of the repository CTX from a
+     * file according to its SHA1 code. Return the commit.
      */
-    public static Commit fromFile(String sha1) {
-        File commitFile = Utils.join(Main.OBJECTS, sha1);
+    public static Commit fromFile(Context ctx, ObjectId sha1) {
+        File commitFile = ObjectStore.file(ctx, sha1);
         if (!commitFile.exists()) {
             throw new IllegalArgumentException(
                     "No file of commit with that name found.");
         }
+        Stats.countCommitRead();
         return Utils.readObject(commitFile, Commit.class);
     }
 
@@ -0,0 +1,179 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** A sorted index of all commit ids, used to resolve abbreviated ids
+ * without listing the object directory. The index is a file of
+ * fixed-width records in sorted order that is searched by bisection,
+ * plus a small unsorted journal of recently added ids that is folded
+ * into the sorted file once it grows past JOURNAL_LIMIT entries.
+ * @author Jason Ding
+ */
+class CommitIndex {
+
+    /** Length of a commit id as text. */
+    static final int ID_LENGTH = ObjectId.LENGTH;
+    /** Length of a record in the index files, an id and a newline. */
+    private static final int RECORD = ID_LENGTH + 1;
+    /** Number of journal entries that triggers a merge. */
+    static final int JOURNAL_LIMIT = 1024;
+
+    /** Add the commit id SHA1 to the index of the repository CTX if it
+     * is not there yet.
+     */
+    static void add(Context ctx, ObjectId sha1) {
+        ensureIndex(ctx);
+        if (!matches(ctx, sha1.toString(), 1).isEmpty()) {
+            return;
+        }
+        File journal = ctx.getIndexJournal();
+        WriteBatch.appendLines(journal, sha1 + "\n", true);
+        if (journal.length() >= (long) JOURNAL_LIMIT * RECORD) {
+            compact(ctx);
+        }
+    }
+
+    /** Return up to LIMIT commit ids of the repository CTX that start
+     * with PREFIX, in sorted order.
+     */
+    static List<ObjectId> matches(Context ctx, String prefix, int limit) {
+        ensureIndex(ctx);
+        ArrayList<String> result = new ArrayList<>();
+        try (RandomAccessFile in =
+                     new RandomAccessFile(ctx.getIndex(), "r")) {
+            long n = in.length() / RECORD;
+            long lo = 0;
+            long hi = n;
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                if (record(in, mid).compareTo(prefix) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            for (long i = lo; i < n && result.size() < limit; i++) {
+                String id = record(in, i);
+                if (!id.startsWith(prefix)) {
+                    break;
+                }
+                result.add(id);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        for (String id : journal(ctx)) {
+            if (id.startsWith(prefix) && !result.contains(id)) {
+                result.add(id);
+            }
+        }
+        Collections.sort(result);
+        ArrayList<ObjectId> ids = new ArrayList<>(result.size());
+        for (String id : result.subList(0, Math.min(limit, result.size()))) {
+            ids.add(ObjectId.parse(id));
+        }
+        return ids;
+    }
+
+    /** Create the index from the object directory if the repository
+     * CTX does not have one yet.
+     */
+    static void ensureIndex(Context ctx) {
+        if (ctx.getIndex().exists()) {
+            return;
+        }
+        ArrayList<String> ids = new ArrayList<>();
+        for (String name : ObjectStore.list(ctx.getObjects())) {
+            if (name.startsWith("c") && name.length() == ID_LENGTH) {
+                ids.add(name);
+            }
+        }
+        write(ctx, ids);
+    }
+
+    /** Recreate the index of the repository CTX from its object
+     * directory, dropping ids whose commits are gone.
+     */
+    static void rebuild(Context ctx) {
+        ctx.getIndex().delete();
+        ensureIndex(ctx);
+    }
+
+    /** Fold the journal of the repository CTX into its sorted index
+     * file.
+     */
+    static void compact(Context ctx) {
+        ArrayList<String> ids = new ArrayList<>(journal(ctx));
+        if (ids.isEmpty()) {
+            return;
+        }
+        String contents = Utils.readContentsAsString(ctx.getIndex());
+        for (int i = 0; i + ID_LENGTH <= contents.length(); i += RECORD) {
+            ids.add(contents.substring(i, i + ID_LENGTH));
+        }
+        write(ctx, ids);
+    }
+
+    /** Write IDS as the new sorted index file of the repository CTX and
+     * empty its journal. Each file is replaced atomically; a crash between
+     * the two leaves ids in both, which lookups tolerate.
+     */
+    static void write(Context ctx, List<String> ids) {
+        Collections.sort(ids);
+        StringBuilder out = new StringBuilder(ids.size() * RECORD);
+        String last = null;
+        for (String id : ids) {
+            if (!id.equals(last)) {
+                out.append(id).append('\n');
+            }
+            last = id;
+        }
+        WriteBatch.writeDurable(ctx.getIndex(),
+                out.toString().getBytes(StandardCharsets.US_ASCII));
+        WriteBatch.writeDurable(ctx.getIndexJournal(), new byte[0]);
+    }
+
+    /** Return the ids in the journal of the repository CTX, skipping
+     * any line torn by a crash.
+     */
+    private static List<String> journal(Context ctx) {
+        ArrayList<String> ids = new ArrayList<>();
+        File f = ctx.getIndexJournal();
+        if (f.exists()) {
+            for (String id : Utils.readContentsAsString(f).split("\n")) {
+                if (isId(id)) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /** Return whether TEXT is a whole commit id. */
+    private static boolean isId(String text) {
+        if (text.length() != ID_LENGTH) {
+            return false;
+        }
+        try {
+            return ObjectId.parse(text).getType() == ObjectId.Type.COMMIT;
+        } catch (IllegalArgumentException excp) {
+            return false;
+        }
+    }
+
+    /** Return record I of the index file IN. */
+    private static String record(RandomAccessFile in, long i)
+        throws IOException {
+        byte[] buf = new byte[ID_LENGTH];
+        in.seek(i * RECORD);
+        in.readFully(buf);
+        return new String(buf, StandardCharsets.US_ASCII);
+    }
+
+}
@@ -0,0 +1,72 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Times abbreviated id lookups through CommitIndex over an index of a
+ * million commits, against a linear scan of the same ids in memory.
+ * Run with "make bench".
+ * @author Jason Ding
+ */
+public class CommitIndexBench {
+
+    /** Number of commit ids in the index. */
+    private static final int COMMITS = 1_000_000;
+    /** Number of lookups timed through the index. */
+    private static final int LOOKUPS = 20_000;
+    /** Number of lookups timed by linear scan. */
+    private static final int SCANS = 200;
+    /** Length of the abbreviated ids looked up, with the type tag. */
+    private static final int PREFIX = 12;
+
+    /** Build the index and print the time per lookup both ways. */
+    public static void main(String[] ignored) {
+        Context ctx = UnitTest.tempRepository();
+        ArrayList<String> ids = new ArrayList<>(COMMITS);
+        for (int i = 0; i < COMMITS; i++) {
+            ids.add(ObjectId.of(ObjectId.Type.COMMIT,
+                    Utils.sha1("commit " + i)).toString());
+        }
+        CommitIndex.write(ctx, new ArrayList<>(ids));
+        Random random = new Random(0);
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup(ctx, ids.get(random.nextInt(COMMITS)));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup(ctx, ids.get(random.nextInt(COMMITS)));
+        }
+        long indexed = (System.nanoTime() - start) / LOOKUPS;
+        start = System.nanoTime();
+        for (int i = 0; i < SCANS; i++) {
+            String prefix = ids.get(random.nextInt(COMMITS))
+                .substring(0, PREFIX);
+            int found = 0;
+            for (String id : ids) {
+                if (id.startsWith(prefix)) {
+                    found += 1;
+                }
+            }
+            check(found == 1, prefix);
+        }
+        long scanned = (System.nanoTime() - start) / SCANS;
+        System.out.printf("%d commits, %d-character prefixes%n", COMMITS,
+                PREFIX);
+        System.out.printf("index: %.1f us per lookup%n", indexed / 1e3);
+        System.out.printf("scan:  %.1f us per lookup%n", scanned / 1e3);
+    }
+
+    /** Look up the abbreviation of ID through the index of CTX. */
+    private static void lookup(Context ctx, String id) {
+        String prefix = id.substring(0, PREFIX);
+        check(CommitIndex.matches(ctx, prefix, 2).size() == 1, prefix);
+    }
+
+    /** Fail if OK is false for the lookup of PREFIX. */
+    private static void check(boolean ok, String prefix) {
+        if (!ok) {
+            throw new IllegalStateException("lookup failed: " + prefix);
+        }
+    }
+
+}
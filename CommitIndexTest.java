@@ -0,0 +1,109 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the sorted commit id index and its journal.
+ * @author Jason Ding
+ */
+public class CommitIndexTest {
+
+    /** Return the commit id whose hex digits are PREFIX padded with
+     * zeros.
+     */
+    private static ObjectId id(String prefix) {
+        StringBuilder hex = new StringBuilder(prefix);
+        while (hex.length() < Utils.UID_LENGTH) {
+            hex.append('0');
+        }
+        return ObjectId.of(ObjectId.Type.COMMIT, hex.toString());
+    }
+
+    /** Return the id of commit number I of a run of distinct commits. */
+    private static ObjectId numbered(int i) {
+        return ObjectId.of(ObjectId.Type.COMMIT, Utils.sha1("commit " + i));
+    }
+
+    @Test
+    public void bisectsSortedIndex() {
+        Context ctx = UnitTest.tempRepository();
+        ArrayList<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(numbered(i).toString());
+        }
+        CommitIndex.write(ctx, ids);
+        for (int i = 0; i < 1000; i += 37) {
+            ObjectId want = numbered(i);
+            assertEquals(List.of(want),
+                    CommitIndex.matches(ctx, want.toString(), 2));
+            assertEquals(List.of(want),
+                    CommitIndex.matches(ctx, want.abbreviate(12), 2));
+        }
+        assertEquals(List.of(), CommitIndex.matches(ctx,
+                "c" + "f".repeat(Utils.UID_LENGTH), 2));
+        assertEquals(List.of(), CommitIndex.matches(ctx, "c", 0));
+    }
+
+    @Test
+    public void reportsAmbiguousPrefixes() {
+        Context ctx = UnitTest.tempRepository();
+        CommitIndex.add(ctx, id("abc1"));
+        CommitIndex.add(ctx, id("abc2"));
+        CommitIndex.add(ctx, id("abd"));
+        CommitIndex.compact(ctx);
+        assertEquals(List.of(id("abc1"), id("abc2")),
+                CommitIndex.matches(ctx, "cabc", 2));
+        assertEquals(List.of(id("abc1"), id("abc2"), id("abd")),
+                CommitIndex.matches(ctx, "cab", 10));
+        assertEquals(List.of(id("abd")), CommitIndex.matches(ctx, "cabd", 2));
+    }
+
+    @Test
+    public void findsPrefixAcrossJournalAndIndex() {
+        Context ctx = UnitTest.tempRepository();
+        CommitIndex.add(ctx, id("123"));
+        CommitIndex.add(ctx, id("125"));
+        CommitIndex.compact(ctx);
+        CommitIndex.add(ctx, id("121"));
+        CommitIndex.add(ctx, id("124"));
+        assertEquals(List.of(id("121"), id("123"), id("124"), id("125")),
+                CommitIndex.matches(ctx, "c12", 10));
+        assertEquals("the smallest matches are kept",
+                List.of(id("121"), id("123")),
+                CommitIndex.matches(ctx, "c12", 2));
+        assertEquals(List.of(id("124")), CommitIndex.matches(ctx, "c124", 2));
+    }
+
+    @Test
+    public void addIgnoresKnownIds() {
+        Context ctx = UnitTest.tempRepository();
+        CommitIndex.add(ctx, id("77"));
+        CommitIndex.add(ctx, id("77"));
+        CommitIndex.compact(ctx);
+        CommitIndex.add(ctx, id("77"));
+        assertEquals(List.of(id("77")), CommitIndex.matches(ctx, "c7", 10));
+        assertEquals(0, ctx.getIndexJournal().length());
+    }
+
+    @Test
+    public void foldsFullJournal() {
+        Context ctx = UnitTest.tempRepository();
+        int n = CommitIndex.JOURNAL_LIMIT + 10;
+        for (int i = 0; i < n; i++) {
+            CommitIndex.add(ctx, numbered(i));
+        }
+        assertTrue("journal was folded",
+                ctx.getIndexJournal().length()
+                < (long) CommitIndex.JOURNAL_LIMIT * ObjectId.LENGTH);
+        assertEquals((long) CommitIndex.JOURNAL_LIMIT * (ObjectId.LENGTH + 1),
+                ctx.getIndex().length());
+        for (int i = 0; i < n; i++) {
+            assertEquals(List.of(numbered(i)),
+                    CommitIndex.matches(ctx, numbered(i).toString(), 2));
+        }
+    }
+
+}
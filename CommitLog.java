@@ -0,0 +1,448 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/** An append-only log of commit metadata. Each record holds a commit's
+ * id, parents, timestamp, message, and a PathFilter of the paths it
+ * changed, so that global-log and find can stream through every commit
+ * without reading any object files, and a log limited to some paths
+ * reads only the commits that may touch them. The log is a RecordFile,
+ * so a commit's record is appended whole or not at all.
+ * @author Jason Ding
+ */
+public class CommitLog implements Iterable<CommitLog.Entry> {
+
+    /** The repository whose log this is. */
+    private Context _ctx;
+
+    /** The log of the repository CTX. */
+    private CommitLog(Context ctx) {
+        _ctx = ctx;
+    }
+
+    /** The metadata of one commit, as stored in the log. */
+    public static class Entry {
+        /** The id of the commit. */
+        private ObjectId _sha1;
+        /** The first parent, or null for the initial commit. */
+        private ObjectId _parent1;
+        /** The second parent, or null if this is not a merge. */
+        private ObjectId _parent2;
+        /** The timestamp in milliseconds since the epoch. */
+        private long _timestamp;
+        /** The time zone offset of the timestamp in seconds. */
+        private int _zoneOffset;
+        /** The commit message. */
+        private String _message;
+        /** The paths changed from the first parent, or null if they are
+         * not known.
+         */
+        private PathFilter _filter;
+
+        /** An entry for SHA1 with parents PARENT1 and PARENT2, made
+         * at TIMESTAMP in the time zone ZONEOFFSET seconds from UTC, with
+         * message MESSAGE, that changed the paths in FILTER.
+         */
+        Entry(ObjectId sha1, ObjectId parent1, ObjectId parent2,
+              long timestamp, int zoneOffset, String message,
+              PathFilter filter) {
+            _sha1 = sha1;
+            _parent1 = parent1;
+            _parent2 = parent2;
+            _timestamp = timestamp;
+            _zoneOffset = zoneOffset;
+            _message = message;
+            _filter = filter;
+        }
+
+        /** Return the commit id. */
+        public ObjectId getSha1() {
+            return _sha1;
+        }
+
+        /** Return the first parent, or null. */
+        public ObjectId getParent1() {
+            return _parent1;
+        }
+
+        /** Return the second parent, or null. */
+        public ObjectId getParent2() {
+            return _parent2;
+        }
+
+        /** Return whether the commit is a merge. */
+        public boolean isMerged() {
+            return _parent2 != null;
+        }
+
+        /** Return the timestamp, formatted for display. */
+        public String getTime() {
+            return Commit.formatTime(_timestamp, _zoneOffset);
+        }
+
+        /** Return the timestamp in milliseconds since the epoch. */
+        public long getTimestamp() {
+            return _timestamp;
+        }
+
+        /** Return the message. */
+        public String getMessage() {
+            return _message;
+        }
+
+        /** Return the filter of the paths changed from the first parent,
+         * or null if they are not known.
+         */
+        PathFilter getFilter() {
+            return _filter;
+        }
+    }
+
+    /** Append the metadata of commit C to the log of the repository
+     * CTX, reading its first parent, if there, to find the paths it
+     * changed.
+     */
+    static void append(Context ctx, Commit c) {
+        append(ctx, c, parentFiles(ctx, c));
+    }
+
+    /** Append the metadata of commit C, whose first parent has the files
+     * BASE, to the log of the repository CTX. BASE is null if they are
+     * not known, in which case no path filter is kept for C.
+     */
+    static void append(Context ctx, Commit c, PathTable base) {
+        if (!RecordFile.isValid(ctx.getCommitLog())) {
+            rebuild(ctx);
+            return;
+        }
+        RecordFile.append(ctx.getCommitLog(), encode(entry(c, base)));
+        MessageIndex.add(ctx, c.getSha1(), c.getMessage());
+    }
+
+    /** Return the entry of commit C, whose first parent has the files
+     * BASE, which is null if they are not known.
+     */
+    private static Entry entry(Commit c, PathTable base) {
+        return new Entry(c.getSha1(), c.getParent(), c.getParent2(),
+                c.getTimestamp(), c.getZoneOffset(), c.getMessage(),
+                base == null ? null : PathFilter.changes(base, c.getFiles()));
+    }
+
+    /** Return the files of the first parent of commit C in the
+     * repository CTX, nothing if C has none, or null if the parent is
+     * not there.
+     */
+    private static PathTable parentFiles(Context ctx, Commit c) {
+        if (c.getParent() == null) {
+            return PathTable.EMPTY;
+        }
+        if (!ObjectStore.exists(ctx, c.getParent())) {
+            return null;
+        }
+        return Commit.fromFile(ctx, c.getParent()).getFiles();
+    }
+
+    /** Recreate the log of the repository CTX, and the message index
+     * built from it, from the commits in its object directory.
+     */
+    static void rebuild(Context ctx) {
+        ctx.getLogs().mkdir();
+        try (RecordFile.Writer out =
+                     new RecordFile.Writer(ctx.getCommitLog())) {
+            for (String id : ObjectStore.list(ctx.getObjects())) {
+                if (!id.startsWith("c")) {
+                    continue;
+                }
+                Commit c = Commit.fromFile(ctx, ObjectId.parse(id));
+                out.add(encode(entry(c, parentFiles(ctx, c))));
+            }
+            out.commit();
+        }
+        MessageIndex.rebuild(ctx);
+    }
+
+    /** Drop from the log of the repository CTX the commits whose
+     * objects are gone, keeping the others in the order they were made,
+     * and rebuild the message index from what is left.
+     */
+    static void prune(Context ctx) {
+        try (RecordFile.Writer out =
+                     new RecordFile.Writer(ctx.getCommitLog())) {
+            for (Entry e : open(ctx)) {
+                if (ObjectStore.exists(ctx, e.getSha1())) {
+                    out.add(encode(e));
+                }
+            }
+            out.commit();
+        }
+        MessageIndex.rebuild(ctx);
+    }
+
+    /** Return the record of the entry E. */
+    private static byte[] encode(Entry e) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(e._sha1.toString());
+            out.writeUTF(e._parent1 == null ? "" : e._parent1.toString());
+            out.writeUTF(e._parent2 == null ? "" : e._parent2.toString());
+            out.writeLong(e._timestamp);
+            out.writeInt(e._zoneOffset);
+            byte[] message = e._message.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(message.length);
+            out.write(message);
+            PathFilter.write(out, e._filter);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the entry whose record is RECORD. */
+    private static Entry decode(byte[] record) {
+        try {
+            DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(record));
+            ObjectId sha1 = ObjectId.parse(in.readUTF());
+            String parent1 = in.readUTF();
+            String parent2 = in.readUTF();
+            long timestamp = in.readLong();
+            int zoneOffset = in.readInt();
+            byte[] message = new byte[in.readInt()];
+            in.readFully(message);
+            return new Entry(sha1,
+                    parent1.isEmpty() ? null : ObjectId.parse(parent1),
+                    parent2.isEmpty() ? null : ObjectId.parse(parent2),
+                    timestamp, zoneOffset,
+                    new String(message, StandardCharsets.UTF_8),
+                    PathFilter.read(in));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the log of the repository CTX, building it first if the
+     * repository predates it or its format.
+     */
+    static CommitLog open(Context ctx) {
+        if (!RecordFile.isValid(ctx.getCommitLog())) {
+            rebuild(ctx);
+        }
+        return new CommitLog(ctx);
+    }
+
+    /** Return an iterator over all entries, in the order they were
+     * appended.
+     */
+    @Override
+    public Iterator<Entry> iterator() {
+        return new Iterator<Entry>() {
+            /** The record stream. */
+            private RecordFile.Reader _records =
+                new RecordFile.Reader(_ctx.getCommitLog());
+            /** The next entry, or null at the end. */
+            private Entry _next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return _next != null;
+            }
+
+            @Override
+            public Entry next() {
+                if (_next == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry result = _next;
+                _next = advance();
+                return result;
+            }
+
+            /** Read and return the next entry, or null at the end. */
+            private Entry advance() {
+                byte[] record = _records.next();
+                if (record == null) {
+                    _records.close();
+                    return null;
+                }
+                return decode(record);
+            }
+        };
+    }
+
+    /** Return an iterator over the first-parent history of commit HEAD
+     * in the repository CTX, newest first. The log is read backwards
+     * only as far as the walk needs, so a caller that stops early pays
+     * only for the end of the log.
+     */
+    static History history(Context ctx, ObjectId head) {
+        return history(ctx, head, List.of());
+    }
+
+    /** Return an iterator like history(CTX, HEAD) over only the commits
+     * that changed one of PATHS from their first parent, or over every
+     * commit if PATHS is empty. A commit whose path filter rules out all
+     * of PATHS is passed over without reading it; the others are read
+     * with their parents to be sure.
+     */
+    static History history(Context ctx, ObjectId head, List<String> paths) {
+        open(ctx);
+        return new History(ctx, head, paths);
+    }
+
+    /** Return the commit id of the record RECORD, without decoding the
+     * rest of it.
+     */
+    private static ObjectId idOf(byte[] record) {
+        try {
+            return ObjectId.parse(new DataInputStream(
+                    new ByteArrayInputStream(record)).readUTF());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** A lazy walk over first parents that must be closed when done. */
+    public static class History implements Iterator<Entry>, AutoCloseable {
+        /** The repository walked. */
+        private Context _ctx;
+        /** The log, read from its end, opened on first use. */
+        private RecordFile.Backward _log;
+        /** The records read from the log that the walk has not reached
+         * yet, by commit id, left undecoded.
+         */
+        private HashMap<ObjectId, byte[]> _passed = new HashMap<>();
+        /** The id of the next commit, or null at the end. */
+        private ObjectId _next;
+        /** The entry of _next, or null if it has not been looked up. */
+        private Entry _entry;
+        /** The paths the commits shown must change, or none for all. */
+        private List<String> _paths;
+        /** Whether _next is known to change one of _paths. */
+        private boolean _found;
+
+        /** A walk from HEAD through the log of the repository CTX,
+         * showing only the commits that change one of PATHS unless it is
+         * empty.
+         */
+        History(Context ctx, ObjectId head, List<String> paths) {
+            _ctx = ctx;
+            _next = head;
+            _paths = paths;
+        }
+
+        @Override
+        public boolean hasNext() {
+            skip();
+            return _next != null;
+        }
+
+        @Override
+        public Entry next() {
+            skip();
+            if (_next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry e = entry();
+            advance();
+            return e;
+        }
+
+        /** Move to the first parent of _next. */
+        private void advance() {
+            _next = entry().getParent1();
+            _entry = null;
+            _found = false;
+        }
+
+        /** Return the entry of _next: a record passed over earlier, the
+         * next record of the log that has its id, or, for a commit not in
+         * the log, the commit itself.
+         */
+        private Entry entry() {
+            if (_entry != null) {
+                return _entry;
+            }
+            byte[] record = _passed.remove(_next);
+            if (_log == null) {
+                _log = new RecordFile.Backward(_ctx.getCommitLog());
+            }
+            while (record == null) {
+                byte[] r = _log.previous();
+                if (r == null) {
+                    break;
+                }
+                ObjectId id = idOf(r);
+                if (id.equals(_next)) {
+                    record = r;
+                } else {
+                    _passed.put(id, r);
+                }
+            }
+            if (record != null) {
+                _entry = decode(record);
+            } else {
+                Commit c = Commit.fromFile(_ctx, _next);
+                _entry = new Entry(c.getSha1(), c.getParent(),
+                        c.getParent2(), c.getTimestamp(), c.getZoneOffset(),
+                        c.getMessage(), null);
+            }
+            return _entry;
+        }
+
+        /** Move _next past the commits that change none of _paths. */
+        private void skip() {
+            if (_paths.isEmpty()) {
+                return;
+            }
+            while (_next != null && !_found) {
+                if (changes(_next)) {
+                    _found = true;
+                } else {
+                    advance();
+                }
+            }
+        }
+
+        /** Return whether commit ID changed one of _paths from its first
+         * parent. Its filter is asked first, and the commit only read if
+         * the filter cannot rule them all out.
+         */
+        private boolean changes(ObjectId id) {
+            PathFilter filter = entry().getFilter();
+            if (filter != null && _paths.stream()
+                    .noneMatch(filter::mightContain)) {
+                return false;
+            }
+            Commit c = Commit.fromFile(_ctx, id);
+            PathTable base = c.getParent() == null ? PathTable.EMPTY
+                    : Commit.fromFile(_ctx, c.getParent()).getFiles();
+            for (String path : _paths) {
+                if (!Objects.equals(c.getFiles().get(path),
+                        base.get(path))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void close() {
+            if (_log != null) {
+                _log.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the commit metadata log behind global-log and find.
+ * @author Jason Ding
+ */
+public class CommitLogTest {
+
+    /** The repository logged. */
+    private Repository _repo;
+    /** The commits made on master and on the side branch, in the order
+     * they were made, starting with the initial commit.
+     */
+    private List<Commit> _made;
+
+    /** Make a repository with two commits on master and one, whose
+     * message repeats one on master, on a side branch.
+     */
+    @Before
+    public void setUp() throws IOException {
+        _repo = UnitTest.newRepository();
+        _made = new ArrayList<>();
+        _made.add(Commit.fromFile(_repo.context(), _repo.head()));
+        _made.add(UnitTest.commit(_repo, "a.txt", "one\n", "first"));
+        _repo.branch("side");
+        _made.add(UnitTest.commit(_repo, "a.txt", "two\n", "same"));
+        _repo.checkoutBranch("side");
+        _made.add(UnitTest.commit(_repo, "b.txt", "three\n", "same"));
+        _repo.checkoutBranch("master");
+    }
+
+    /** Return the ids of the commits in the log of the repository. */
+    private List<ObjectId> logged() {
+        List<ObjectId> ids = new ArrayList<>();
+        for (CommitLog.Entry e : _repo.globalLog()) {
+            ids.add(e.getSha1());
+        }
+        return ids;
+    }
+
+    /** Return the ids of COMMITS. */
+    private static List<ObjectId> ids(List<Commit> commits) {
+        List<ObjectId> ids = new ArrayList<>();
+        for (Commit c : commits) {
+            ids.add(c.getSha1());
+        }
+        return ids;
+    }
+
+    /** Delete the objects of every commit made. */
+    private void deleteCommitObjects() {
+        for (Commit c : _made) {
+            assertTrue(ObjectStore.file(_repo.context(), c.getSha1())
+                    .delete());
+        }
+    }
+
+    @Test
+    public void globalLogListsEveryCommitInOrder() {
+        assertEquals(ids(_made), logged());
+        int i = 0;
+        for (CommitLog.Entry e : _repo.globalLog()) {
+            Commit c = _made.get(i);
+            assertEquals(c.getMessage(), e.getMessage());
+            assertEquals(c.getTimestamp(), e.getTimestamp());
+            assertEquals(c.getParent(), e.getParent1());
+            assertFalse(e.isMerged());
+            i += 1;
+        }
+    }
+
+    @Test
+    public void globalLogAndFindDoNotReadCommitObjects() {
+        deleteCommitObjects();
+        assertEquals(ids(_made), logged());
+        assertEquals(Arrays.asList(_made.get(2).getSha1(),
+                _made.get(3).getSha1()),
+                _repo.find(Repository.FindMode.EXACT, "same"));
+        assertEquals(0, _repo.find(Repository.FindMode.EXACT,
+                "sam").size());
+    }
+
+    @Test
+    public void rebuildRecoversTheLogFromTheObjects() {
+        assertTrue(_repo.context().getCommitLog().delete());
+        CommitLog.rebuild(_repo.context());
+        assertEquals(new HashSet<>(ids(_made)), new HashSet<>(logged()));
+        assertEquals(2, _repo.find(Repository.FindMode.EXACT,
+                "same").size());
+    }
+
+    @Test
+    public void pruneDropsCommitsWhoseObjectsAreGone() {
+        assertTrue(ObjectStore.file(_repo.context(), _made.get(3).getSha1())
+                .delete());
+        CommitLog.prune(_repo.context());
+        assertEquals(ids(_made.subList(0, 3)), logged());
+    }
+
+}
@@ -0,0 +1,73 @@
+package gitlet;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of commit timestamps and the time zones they are shown in.
+ * @author Jason Ding
+ */
+public class CommitTimeTest {
+
+    /** A time in October 2026, with milliseconds. */
+    private static final long WHEN = 1792448149123L;
+
+    @Test
+    public void timesAreShownInTheirOwnZone() {
+        assertEquals("Thu Jan 1 00:00:00 1970 +0000",
+                Commit.formatTime(0, 0));
+        assertEquals("Wed Dec 31 16:00:00 1969 -0800",
+                Commit.formatTime(0, -8 * 3600));
+        assertEquals("Thu Jan 1 05:30:00 1970 +0530",
+                Commit.formatTime(0, 5 * 3600 + 30 * 60));
+        assertEquals("Mon Oct 19 15:15:49 2026 -0700",
+                Commit.formatTime(WHEN, -7 * 3600));
+        assertEquals("Tue Oct 20 07:15:49 2026 +0900",
+                Commit.formatTime(WHEN, 9 * 3600));
+    }
+
+    @Test
+    public void timestampAndZoneSurviveStorage() throws IOException {
+        Context ctx = UnitTest.tempRepository();
+        int zone = -(3 * 3600 + 30 * 60);
+        Commit made = new Commit(ctx, "stored", null, null, WHEN, zone,
+                PathTable.of(Map.of()));
+        CommitLog.append(ctx, made);
+
+        Commit read = Commit.fromFile(ctx, made.getSha1());
+        assertEquals(WHEN, read.getTimestamp());
+        assertEquals(zone, read.getZoneOffset());
+        assertEquals("Mon Oct 19 18:45:49 2026 -0330", read.getTime());
+        CommitLog.Entry logged = CommitLog.open(ctx).iterator().next();
+        assertEquals(WHEN, logged.getTimestamp());
+        assertEquals(read.getTime(), logged.getTime());
+    }
+
+    @Test
+    public void newCommitsTakeTheLocalZone() throws IOException {
+        TimeZone saved = TimeZone.getDefault();
+        Commit c;
+        long before, after;
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+            Repository repo = UnitTest.newRepository();
+            before = System.currentTimeMillis();
+            c = UnitTest.commit(repo, "a.txt", "a\n", "local");
+            after = System.currentTimeMillis();
+        } finally {
+            TimeZone.setDefault(saved);
+        }
+        assertTrue(before <= c.getTimestamp() && c.getTimestamp() <= after);
+        assertEquals(5 * 3600 + 30 * 60, c.getZoneOffset());
+        assertTrue(c.getTime(), c.getTime().endsWith(" +0530"));
+        assertEquals(ZoneId.of("Asia/Kolkata").getRules()
+                .getOffset(Instant.ofEpochMilli(c.getTimestamp()))
+                .getTotalSeconds(), c.getZoneOffset());
+    }
+
+}
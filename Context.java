@@ -0,0 +1,156 @@
+package gitlet;
+
+import java.io.File;
+
+/** The locations of the files of one Gitlet repository. Every class
+ * that reads or writes repository files is handed the context of the
+ * repository it works on, so that one process can work on many
+ * repositories at once.
+ * @author Jason Ding
+ */
+class Context {
+
+    /** Name of the repository directory inside a working directory. */
+    static final String REPO_NAME = ".gitlet";
+
+    /** The working directory. */
+    private final File _cwd;
+    /** The repository directory. */
+    private final File _repo;
+    /** The object directory. */
+    private final File _objects;
+    /** The branch directory. */
+    private final File _branch;
+    /** The file naming the current branch. */
+    private final File _currentBranch;
+    /** The staging area directory. */
+    private final File _stage;
+    /** The commit history directory. */
+    private final File _logs;
+    /** The commit metadata log. */
+    private final File _commitLog;
+    /** The inverted index of commit message words. */
+    private final File _messageIndex;
+    /** The remote directory. */
+    private final File _remote;
+    /** The sorted index of commit ids. */
+    private final File _index;
+    /** The journal of commit ids not yet merged into the index. */
+    private final File _indexJournal;
+    /** The repository lock file. */
+    private final File _lock;
+    /** The socket of the server started by gitlet.Server. */
+    private final File _socket;
+    /** The file listing the remotes blobs may be lazily fetched from. */
+    private final File _promisor;
+    /** The file holding the version of the repository format. */
+    private final File _format;
+
+    /** The context of the repository in the working directory CWD. */
+    Context(File cwd) {
+        this(cwd, Utils.join(cwd, REPO_NAME));
+    }
+
+    /** The context of the repository directory REPO, whose working
+     * directory is CWD.
+     */
+    Context(File cwd, File repo) {
+        _cwd = cwd;
+        _repo = repo;
+        _objects = Utils.join(repo, "objects");
+        _branch = Utils.join(repo, "branch");
+        _currentBranch = Utils.join(repo, "current-branch");
+        _stage = Utils.join(repo, "stage");
+        _logs = Utils.join(repo, "logs");
+        _commitLog = Utils.join(_logs, "commits");
+        _messageIndex = Utils.join(_logs, "words");
+        _remote = Utils.join(repo, "remote");
+        _index = Utils.join(repo, "commit-index");
+        _indexJournal = Utils.join(repo, "index-journal");
+        _lock = Utils.join(repo, "lock");
+        _socket = Utils.join(repo, "daemon.sock");
+        _promisor = Utils.join(repo, "promisor");
+        _format = Utils.join(repo, "format");
+    }
+
+    /** Return the working directory. */
+    File getCwd() {
+        return _cwd;
+    }
+
+    /** Return the repository directory. */
+    File getRepo() {
+        return _repo;
+    }
+
+    /** Return the object directory. */
+    File getObjects() {
+        return _objects;
+    }
+
+    /** Return the branch directory. */
+    File getBranch() {
+        return _branch;
+    }
+
+    /** Return the file naming the current branch. */
+    File getCurrentBranch() {
+        return _currentBranch;
+    }
+
+    /** Return the staging area directory. */
+    File getStage() {
+        return _stage;
+    }
+
+    /** Return the commit history directory. */
+    File getLogs() {
+        return _logs;
+    }
+
+    /** Return the commit metadata log. */
+    File getCommitLog() {
+        return _commitLog;
+    }
+
+    /** Return the directory of the commit message index. */
+    File getMessageIndex() {
+        return _messageIndex;
+    }
+
+    /** Return the remote directory. */
+    File getRemote() {
+        return _remote;
+    }
+
+    /** Return the sorted index of commit ids. */
+    File getIndex() {
+        return _index;
+    }
+
+    /** Return the journal of the commit id index. */
+    File getIndexJournal() {
+        return _indexJournal;
+    }
+
+    /** Return the repository lock file. */
+    File getLock() {
+        return _lock;
+    }
+
+    /** Return the socket of the server. */
+    File getSocket() {
+        return _socket;
+    }
+
+    /** Return the file listing the promisor remotes. */
+    File getPromisor() {
+        return _promisor;
+    }
+
+    /** Return the file holding the repository format version. */
+    File getFormat() {
+        return _format;
+    }
+
+}
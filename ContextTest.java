@@ -0,0 +1,92 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of several repositories used at once in one process.
+ * @author Jason Ding
+ */
+public class ContextTest {
+
+    /** Number of commits each thread makes. */
+    private static final int COMMITS = 20;
+
+    /** Return the messages of the commits on the current branch of REPO,
+     * newest first.
+     */
+    private static List<String> messages(Repository repo) {
+        List<String> result = new ArrayList<>();
+        try (CommitLog.History h = repo.log(List.of())) {
+            while (h.hasNext()) {
+                result.add(h.next().getMessage());
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void pathsAreUnderTheWorkingDirectory() {
+        File cwd = new File("/some/where");
+        Context ctx = new Context(cwd);
+        assertEquals(cwd, ctx.getCwd());
+        assertEquals(new File(cwd, ".gitlet"), ctx.getRepo());
+        assertEquals(new File(ctx.getRepo(), "objects"), ctx.getObjects());
+        assertEquals(ctx.getRepo(), ctx.getBranch().getParentFile());
+        assertEquals(ctx.getRepo(), ctx.getStage().getParentFile());
+    }
+
+    @Test
+    public void repositoriesOnSeparateThreadsStayApart() throws Exception {
+        Repository[] repos = {UnitTest.newRepository(),
+                              UnitTest.newRepository()};
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[repos.length];
+        for (int t = 0; t < repos.length; t++) {
+            Repository repo = repos[t];
+            String name = "repo" + t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < COMMITS; i++) {
+                        UnitTest.commit(repo, name + ".txt",
+                                name + " " + i + "\n", name + " " + i);
+                    }
+                } catch (Throwable excp) {
+                    failure.compareAndSet(null, excp);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(failure.get());
+
+        for (int t = 0; t < repos.length; t++) {
+            Repository repo = repos[t];
+            Repository other = repos[1 - t];
+            List<String> log = messages(repo);
+            assertEquals(COMMITS + 1, log.size());
+            for (int i = 0; i < COMMITS; i++) {
+                assertEquals("repo" + t + " " + (COMMITS - 1 - i),
+                        log.get(i));
+            }
+            assertEquals(COMMITS, repo.find(Repository.FindMode.TOKEN,
+                    "repo" + t).size());
+            assertEquals(0, repo.find(Repository.FindMode.TOKEN,
+                    "repo" + (1 - t)).size());
+            assertFalse(ObjectStore.exists(other.context(), repo.head()));
+            assertEquals("repo" + t + " " + (COMMITS - 1) + "\n",
+                    Utils.readContentsAsString(Utils.join(
+                            repo.getWorkingDirectory(), "repo" + t + ".txt")));
+            assertTrue(repo.status().getStaged().isEmpty());
+            assertEquals(List.of(), repo.fsck().getProblems());
+        }
+    }
+
+}
@@ -0,0 +1,525 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Line-level differences between two byte arrays. Each line, newline
+ * included, is hashed once and interned to an int, so the algorithms
+ * below only ever compare ints and keep a few int arrays per input.
+ * Lines that occur exactly once on both sides are matched first, as in
+ * patience diff, and the gaps between those anchors are diffed
+ * recursively; a gap with no such lines is handed to the linear-space
+ * variant of Myers' O(ND) algorithm.
+ * @author Jason Ding
+ */
+public final class Diff {
+
+    /** A region of lines that differs between the two inputs: lines
+     * [beginA, endA) of the first are replaced by lines [beginB, endB) of
+     * the second. Either region may be empty.
+     */
+    public static final class Edit {
+        /** First line replaced in the first input. */
+        private final int _beginA;
+        /** End of the lines replaced in the first input. */
+        private final int _endA;
+        /** First line inserted from the second input. */
+        private final int _beginB;
+        /** End of the lines inserted from the second input. */
+        private final int _endB;
+
+        /** An edit replacing lines BEGINA to ENDA of the first input
+         * with lines BEGINB to ENDB of the second.
+         */
+        Edit(int beginA, int endA, int beginB, int endB) {
+            _beginA = beginA;
+            _endA = endA;
+            _beginB = beginB;
+            _endB = endB;
+        }
+
+        /** Return the first line replaced in the first input. */
+        public int getBeginA() {
+            return _beginA;
+        }
+
+        /** Return the end of the lines replaced in the first input. */
+        public int getEndA() {
+            return _endA;
+        }
+
+        /** Return the first line inserted from the second input. */
+        public int getBeginB() {
+            return _beginB;
+        }
+
+        /** Return the end of the lines inserted from the second input. */
+        public int getEndB() {
+            return _endB;
+        }
+    }
+
+    /** Number of bytes looked at to decide whether data is binary. */
+    private static final int BINARY_PROBE = 8000;
+    /** Depth of nested patience passes after which gaps go straight to
+     * Myers, bounding the recursion.
+     */
+    private static final int MAX_PATIENCE_DEPTH = 64;
+
+    /** Symbols of the lines of the first input. */
+    private final int[] _a;
+    /** Symbols of the lines of the second input. */
+    private final int[] _b;
+    /** The line of the second input each line of the first is matched
+     * with, or -1.
+     */
+    private final int[] _matchA;
+    /** Whether each line of the second input is matched. */
+    private final boolean[] _matchedB;
+    /** Occurrences of each symbol in the first range being scanned. */
+    private final int[] _countA;
+    /** Occurrences of each symbol in the second range being scanned. */
+    private final int[] _countB;
+    /** Position in the second range of each symbol seen there. */
+    private final int[] _posB;
+    /** Forward furthest-reaching paths for Myers, by diagonal. */
+    private int[] _vf;
+    /** Backward furthest-reaching paths for Myers, by diagonal. */
+    private int[] _vb;
+
+    /** A diff of the lines whose symbols are A and B, of which there are
+     * SYMBOLS distinct ones.
+     */
+    private Diff(int[] a, int[] b, int symbols) {
+        _a = a;
+        _b = b;
+        _matchA = new int[a.length];
+        Arrays.fill(_matchA, -1);
+        _matchedB = new boolean[b.length];
+        _countA = new int[symbols];
+        _countB = new int[symbols];
+        _posB = new int[symbols];
+    }
+
+    /** Return the edits turning the lines of A into the lines of B, in
+     * order.
+     */
+    public static List<Edit> diff(byte[] a, byte[] b) {
+        int[] linesA = lineStarts(a);
+        int[] linesB = lineStarts(b);
+        int[] symA = new int[linesA.length - 1];
+        int[] symB = new int[linesB.length - 1];
+        int symbols = new Interner(a, linesA, b, linesB).intern(symA, symB);
+        Diff d = new Diff(symA, symB, symbols);
+        d.patience(0, symA.length, 0, symB.length, 0);
+        return d.edits();
+    }
+
+    /** Return the offsets at which the lines of DATA start, followed by
+     * the length of DATA. A final line need not end with a newline.
+     */
+    public static int[] lineStarts(byte[] data) {
+        int n = 0;
+        for (byte c : data) {
+            if (c == '\n') {
+                n += 1;
+            }
+        }
+        boolean partial = data.length > 0 && data[data.length - 1] != '\n';
+        int[] starts = new int[n + (partial ? 1 : 0) + 1];
+        int line = 1;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n' && i + 1 < data.length) {
+                starts[line++] = i + 1;
+            }
+        }
+        starts[starts.length - 1] = data.length;
+        return starts;
+    }
+
+    /** Return whether DATA looks binary: whether it has a NUL byte near
+     * its start.
+     */
+    public static boolean isBinary(byte[] data) {
+        int n = Math.min(data.length, BINARY_PROBE);
+        for (int i = 0; i < n; i++) {
+            if (data[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the number of lines inserted by EDITS. */
+    public static int insertions(List<Edit> edits) {
+        int n = 0;
+        for (Edit e : edits) {
+            n += e._endB - e._beginB;
+        }
+        return n;
+    }
+
+    /** Return the number of lines deleted by EDITS. */
+    public static int deletions(List<Edit> edits) {
+        int n = 0;
+        for (Edit e : edits) {
+            n += e._endA - e._beginA;
+        }
+        return n;
+    }
+
+    /** Return EDITS, turning A into B, as the hunks of a unified diff
+     * with CONTEXT lines of context around each change.
+     */
+    public static String unified(byte[] a, byte[] b, List<Edit> edits,
+                                 int context) {
+        int[] linesA = lineStarts(a);
+        int[] linesB = lineStarts(b);
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        while (i < edits.size()) {
+            int j = i;
+            while (j + 1 < edits.size() && edits.get(j + 1)._beginA
+                    - edits.get(j)._endA <= 2 * context) {
+                j += 1;
+            }
+            Edit first = edits.get(i);
+            Edit last = edits.get(j);
+            int startA = Math.max(0, first._beginA - context);
+            int startB = first._beginB - (first._beginA - startA);
+            int endA = Math.min(linesA.length - 1, last._endA + context);
+            int endB = last._endB + (endA - last._endA);
+            out.append("@@ -").append(range(startA, endA - startA))
+                .append(" +").append(range(startB, endB - startB))
+                .append(" @@\n");
+            int posA = startA;
+            for (int k = i; k <= j; k++) {
+                Edit e = edits.get(k);
+                for (; posA < e._beginA; posA++) {
+                    line(out, ' ', a, linesA, posA);
+                }
+                for (int n = e._beginA; n < e._endA; n++) {
+                    line(out, '-', a, linesA, n);
+                }
+                for (int n = e._beginB; n < e._endB; n++) {
+                    line(out, '+', b, linesB, n);
+                }
+                posA = e._endA;
+            }
+            for (; posA < endA; posA++) {
+                line(out, ' ', a, linesA, posA);
+            }
+            i = j + 1;
+        }
+        return out.toString();
+    }
+
+    /** Return the hunk header range of COUNT lines from line START. */
+    private static String range(int start, int count) {
+        if (count == 1) {
+            return Integer.toString(start + 1);
+        }
+        return (count == 0 ? start : start + 1) + "," + count;
+    }
+
+    /** Append line N of DATA, whose lines start at STARTS, to OUT behind
+     * the marker MARK.
+     */
+    private static void line(StringBuilder out, char mark, byte[] data,
+                             int[] starts, int n) {
+        int from = starts[n];
+        int to = starts[n + 1];
+        out.append(mark).append(new String(data, from, to - from,
+                StandardCharsets.UTF_8));
+        if (to == from || data[to - 1] != '\n') {
+            out.append("\n\\ No newline at end of file\n");
+        }
+    }
+
+    /** Match lines [ALO, AHI) of the first input with lines [BLO, BHI)
+     * of the second, anchoring on lines unique to both ranges. DEPTH is
+     * the number of enclosing patience passes.
+     */
+    private void patience(int aLo, int aHi, int bLo, int bHi, int depth) {
+        while (aLo < aHi && bLo < bHi && _a[aLo] == _b[bLo]) {
+            match(aLo++, bLo++);
+        }
+        while (aLo < aHi && bLo < bHi && _a[aHi - 1] == _b[bHi - 1]) {
+            match(--aHi, --bHi);
+        }
+        if (aLo == aHi || bLo == bHi) {
+            return;
+        }
+        int[] anchors = depth < MAX_PATIENCE_DEPTH
+                ? anchors(aLo, aHi, bLo, bHi) : new int[0];
+        if (anchors.length == 0) {
+            myers(aLo, aHi, bLo, bHi);
+            return;
+        }
+        int pa = aLo;
+        int pb = bLo;
+        for (int k = 0; k < anchors.length; k += 2) {
+            patience(pa, anchors[k], pb, anchors[k + 1], depth + 1);
+            match(anchors[k], anchors[k + 1]);
+            pa = anchors[k] + 1;
+            pb = anchors[k + 1] + 1;
+        }
+        patience(pa, aHi, pb, bHi, depth + 1);
+    }
+
+    /** Return the longest increasing run of lines that occur exactly
+     * once in both [ALO, AHI) and [BLO, BHI), as pairs of line numbers
+     * in the first and second input.
+     */
+    private int[] anchors(int aLo, int aHi, int bLo, int bHi) {
+        for (int i = aLo; i < aHi; i++) {
+            _countA[_a[i]] += 1;
+        }
+        for (int j = bLo; j < bHi; j++) {
+            _countB[_b[j]] += 1;
+            _posB[_b[j]] = j;
+        }
+        int[] candA = new int[Math.min(aHi - aLo, bHi - bLo)];
+        int[] candB = new int[candA.length];
+        int n = 0;
+        for (int i = aLo; i < aHi && n < candA.length; i++) {
+            int s = _a[i];
+            if (_countA[s] == 1 && _countB[s] == 1) {
+                candA[n] = i;
+                candB[n] = _posB[s];
+                n += 1;
+            }
+        }
+        for (int i = aLo; i < aHi; i++) {
+            _countA[_a[i]] = 0;
+        }
+        for (int j = bLo; j < bHi; j++) {
+            _countB[_b[j]] = 0;
+        }
+        int[] tails = new int[n];
+        int[] prev = new int[n];
+        int len = 0;
+        for (int k = 0; k < n; k++) {
+            int lo = 0;
+            int hi = len;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (candB[tails[mid]] < candB[k]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            prev[k] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = k;
+            len = Math.max(len, lo + 1);
+        }
+        int[] result = new int[2 * len];
+        for (int k = len == 0 ? -1 : tails[len - 1], r = len - 1; k >= 0;
+             k = prev[k], r--) {
+            result[2 * r] = candA[k];
+            result[2 * r + 1] = candB[k];
+        }
+        return result;
+    }
+
+    /** Match lines [ALO, AHI) of the first input with lines [BLO, BHI)
+     * of the second along a shortest edit script, splitting the problem
+     * at the middle snake so that only linear space is used.
+     */
+    private void myers(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && _a[aLo] == _b[bLo]) {
+            match(aLo++, bLo++);
+        }
+        while (aLo < aHi && bLo < bHi && _a[aHi - 1] == _b[bHi - 1]) {
+            match(--aHi, --bHi);
+        }
+        if (aLo == aHi || bLo == bHi) {
+            return;
+        }
+        int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+        myers(aLo, snake[0], bLo, snake[1]);
+        for (int x = snake[0], y = snake[1]; x < snake[2]; x++, y++) {
+            match(x, y);
+        }
+        myers(snake[2], aHi, snake[3], bHi);
+    }
+
+    /** Return the middle snake of a shortest edit script turning lines
+     * [ALO, AHI) of the first input into lines [BLO, BHI) of the second,
+     * as its start and end points {x, y, u, v}. Both ranges must be
+     * non-empty and differ in their first and last lines.
+     */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int max = (n + m + 1) / 2;
+        int offset = max + 1;
+        if (_vf == null || _vf.length < 2 * offset + 1) {
+            _vf = new int[2 * offset + 1];
+            _vb = new int[2 * offset + 1];
+        }
+        int[] vf = _vf;
+        int[] vb = _vb;
+        vf[offset + 1] = 0;
+        vb[offset + 1] = 0;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && vf[offset + k - 1]
+                        < vf[offset + k + 1])
+                        ? vf[offset + k + 1] : vf[offset + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && _a[aLo + x] == _b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                vf[offset + k] = x;
+                int c = delta - k;
+                if (odd && c >= -(d - 1) && c <= d - 1
+                        && x + vb[offset + c] >= n) {
+                    return new int[] {aLo + x0, bLo + y0, aLo + x, bLo + y};
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && vb[offset + k - 1]
+                        < vb[offset + k + 1])
+                        ? vb[offset + k + 1] : vb[offset + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m
+                        && _a[aHi - 1 - x] == _b[bHi - 1 - y]) {
+                    x += 1;
+                    y += 1;
+                }
+                vb[offset + k] = x;
+                int c = delta - k;
+                if (!odd && c >= -d && c <= d
+                        && x + vf[offset + c] >= n) {
+                    return new int[] {aHi - x, bHi - y, aHi - x0, bHi - y0};
+                }
+            }
+        }
+        throw new IllegalStateException("No middle snake found.");
+    }
+
+    /** Record that line I of the first input matches line J of the
+     * second.
+     */
+    private void match(int i, int j) {
+        _matchA[i] = j;
+        _matchedB[j] = true;
+    }
+
+    /** Return the runs of unmatched lines as edits. */
+    private List<Edit> edits() {
+        ArrayList<Edit> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < _a.length || j < _b.length) {
+            if (i < _a.length && j < _b.length && _matchA[i] == j) {
+                i += 1;
+                j += 1;
+                continue;
+            }
+            int beginA = i;
+            int beginB = j;
+            while (i < _a.length && _matchA[i] < 0) {
+                i += 1;
+            }
+            while (j < _b.length && !_matchedB[j]) {
+                j += 1;
+            }
+            result.add(new Edit(beginA, i, beginB, j));
+        }
+        return result;
+    }
+
+    /** Maps the lines of two inputs to small ints, equal lines getting
+     * equal ints, using an open-addressed table of line hashes.
+     */
+    private static final class Interner {
+        /** The two inputs. */
+        private final byte[][] _data;
+        /** The line starts of the two inputs. */
+        private final int[][] _starts;
+        /** The table, holding symbol + 1 in each used slot. */
+        private final int[] _table;
+        /** For each symbol, the input holding its first occurrence. */
+        private final int[] _symData;
+        /** For each symbol, the line of its first occurrence. */
+        private final int[] _symLine;
+        /** For each symbol, the hash of its line. */
+        private final int[] _symHash;
+        /** Number of symbols so far. */
+        private int _count;
+
+        /** An interner for the lines of A, starting at STARTSA, and of
+         * B, starting at STARTSB.
+         */
+        Interner(byte[] a, int[] startsA, byte[] b, int[] startsB) {
+            _data = new byte[][] {a, b};
+            _starts = new int[][] {startsA, startsB};
+            int lines = startsA.length + startsB.length - 2;
+            _table = new int[Integer.highestOneBit(Math.max(lines, 1)) * 4];
+            _symData = new int[lines];
+            _symLine = new int[lines];
+            _symHash = new int[lines];
+        }
+
+        /** Fill SYMA and SYMB with the symbols of the lines of the two
+         * inputs. Return the number of distinct symbols.
+         */
+        int intern(int[] symA, int[] symB) {
+            for (int i = 0; i < symA.length; i++) {
+                symA[i] = symbol(0, i);
+            }
+            for (int i = 0; i < symB.length; i++) {
+                symB[i] = symbol(1, i);
+            }
+            return _count;
+        }
+
+        /** Return the symbol of line LINE of input D. */
+        private int symbol(int d, int line) {
+            byte[] data = _data[d];
+            int from = _starts[d][line];
+            int to = _starts[d][line + 1];
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + data[i];
+            }
+            int mask = _table.length - 1;
+            for (int slot = (h ^ (h >>> 16)) & mask;; slot = (slot + 1)
+                    & mask) {
+                int s = _table[slot] - 1;
+                if (s < 0) {
+                    _symData[_count] = d;
+                    _symLine[_count] = line;
+                    _symHash[_count] = h;
+                    _table[slot] = _count + 1;
+                    return _count++;
+                }
+                if (_symHash[s] == h && sameLine(s, data, from, to)) {
+                    return s;
+                }
+            }
+        }
+
+        /** Return whether symbol S is the bytes FROM to TO of DATA. */
+        private boolean sameLine(int s, byte[] data, int from, int to) {
+            int[] starts = _starts[_symData[s]];
+            int sFrom = starts[_symLine[s]];
+            int sTo = starts[_symLine[s] + 1];
+            return Arrays.equals(_data[_symData[s]], sFrom, sTo,
+                    data, from, to);
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of line diffs.
+ * @author Jason Ding
+ */
+public class DiffTest {
+
+    /** Return TEXT as bytes. */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Return A with EDITS, which turn A into B, applied to it, taking
+     * the inserted lines from B.
+     */
+    private static String apply(String a, String b, List<Diff.Edit> edits) {
+        int[] la = Diff.lineStarts(bytes(a));
+        int[] lb = Diff.lineStarts(bytes(b));
+        StringBuilder out = new StringBuilder();
+        int pos = 0;
+        for (Diff.Edit e : edits) {
+            out.append(a, la[pos], la[e.getBeginA()]);
+            out.append(b, lb[e.getBeginB()], lb[e.getEndB()]);
+            pos = e.getEndA();
+        }
+        out.append(a, la[pos], a.length());
+        return out.toString();
+    }
+
+    @Test
+    public void emptyFiles() {
+        assertEquals(0, Diff.diff(bytes(""), bytes("")).size());
+        List<Diff.Edit> added = Diff.diff(bytes(""), bytes("a\nb\n"));
+        assertEquals(1, added.size());
+        assertEquals(0, Diff.deletions(added));
+        assertEquals(2, Diff.insertions(added));
+        assertEquals("@@ -0,0 +1,2 @@\n+a\n+b\n",
+                Diff.unified(bytes(""), bytes("a\nb\n"), added, 3));
+        List<Diff.Edit> removed = Diff.diff(bytes("a\n"), bytes(""));
+        assertEquals("@@ -1 +0,0 @@\n-a\n",
+                Diff.unified(bytes("a\n"), bytes(""), removed, 3));
+    }
+
+    @Test
+    public void missingFinalNewline() {
+        assertEquals(0, Diff.diff(bytes("a\nb"), bytes("a\nb")).size());
+        List<Diff.Edit> edits = Diff.diff(bytes("a\nb"), bytes("a\nb\n"));
+        assertEquals(1, edits.size());
+        assertEquals(1, edits.get(0).getBeginA());
+        assertEquals(2, edits.get(0).getEndA());
+        assertEquals("@@ -1,2 +1,2 @@\n a\n-b\n\\ No newline at end of file\n"
+                + "+b\n",
+                Diff.unified(bytes("a\nb"), bytes("a\nb\n"), edits, 3));
+    }
+
+    @Test
+    public void identicalLinesFallBackToMyers() {
+        String a = "x\nx\nx\nx\nx\n";
+        String b = "x\nx\nx\n";
+        List<Diff.Edit> edits = Diff.diff(bytes(a), bytes(b));
+        assertEquals(2, Diff.deletions(edits));
+        assertEquals(0, Diff.insertions(edits));
+        assertEquals(b, apply(a, b, edits));
+
+        a = "x\ny\nx\ny\nx\n";
+        b = "y\nx\ny\nx\ny\n";
+        edits = Diff.diff(bytes(a), bytes(b));
+        assertEquals("a shortest edit", 2,
+                Diff.deletions(edits) + Diff.insertions(edits));
+        assertEquals(b, apply(a, b, edits));
+    }
+
+}
@@ -0,0 +1,84 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of fetching, with and without blobs.
+ * @author Jason Ding
+ */
+public class FetchTest {
+
+    /** The repository fetched from. */
+    private Repository _remote;
+    /** The repository fetched into. */
+    private Repository _local;
+
+    /** Make a remote with two commits and a local repository that has
+     * it as the remote "origin".
+     */
+    @Before
+    public void setUp() throws IOException {
+        _remote = UnitTest.newRepository();
+        UnitTest.commit(_remote, "a.txt", "one\n", "one");
+        UnitTest.commit(_remote, "b.txt", "two\n", "two");
+        _local = UnitTest.newRepository();
+        _local.addRemote("origin",
+                _remote.context().getRepo().getAbsolutePath());
+    }
+
+    /** Return whether the local repository has the blob of CONTENTS. */
+    private boolean hasBlob(String contents) {
+        return ObjectStore.exists(_local.context(),
+                ObjectId.ofBlob(contents));
+    }
+
+    @Test
+    public void fullFetchCopiesBlobs() throws IOException {
+        _local.fetch("origin", "master", false);
+        assertTrue(ObjectStore.exists(_local.context(), _remote.head()));
+        assertTrue(hasBlob("one\n"));
+        assertTrue(hasBlob("two\n"));
+        assertEquals(List.of(), Remote.promisors(_local.context()));
+    }
+
+    @Test
+    public void bloblessFetchCopiesOnlyCommits() throws IOException {
+        _local.fetch("origin", "master", true);
+        assertTrue(ObjectStore.exists(_local.context(), _remote.head()));
+        assertFalse(hasBlob("one\n"));
+        assertFalse(hasBlob("two\n"));
+        assertEquals(List.of("origin"), Remote.promisors(_local.context()));
+        assertEquals(List.of(), _local.fsck().getProblems());
+    }
+
+    @Test
+    public void missingBlobsAreFetchedOnDemand() throws IOException {
+        _local.fetch("origin", "master", true);
+        ObjectId one = ObjectId.ofBlob("one\n");
+        assertEquals("one\n", Blob.fromFile(_local.context(), one));
+        assertTrue(hasBlob("one\n"));
+        assertFalse(hasBlob("two\n"));
+
+        _local.reset(_remote.head().toString());
+        assertTrue(hasBlob("two\n"));
+        assertEquals("two\n", Utils.readContentsAsString(Utils.join(
+                _local.getWorkingDirectory(), "b.txt")));
+    }
+
+    @Test
+    public void prefetchReturnsTheBlobsNoRemoteHas() throws IOException {
+        _local.fetch("origin", "master", true);
+        ObjectId nowhere = ObjectId.ofBlob("nowhere\n");
+        List<ObjectId> left = Remote.prefetch(_local.context(),
+                List.of(ObjectId.ofBlob("one\n"), ObjectId.ofBlob("two\n"),
+                        nowhere, ObjectId.ofBlob("one\n")));
+        assertEquals(List.of(nowhere), left);
+        assertTrue(hasBlob("one\n"));
+        assertTrue(hasBlob("two\n"));
+    }
+
+}
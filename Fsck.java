@@ -0,0 +1,276 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Checks the integrity of a repository. Every object is hashed again
+ * and compared with its name, blobs being streamed through the digest
+ * so that they need not fit in memory, and every commit is read. The
+ * parents and blobs named by commits, the commits listed by branches
+ * and the blobs in stages must then all exist, except for blobs left
+ * behind by a blobless fetch from a promisor remote. Objects nothing
+ * refers to are reported as dangling. The object directory is checked
+ * one shard per task on Workers.
+ * @author Jason Ding
+ */
+public final class Fsck {
+
+    /** Size of the buffer blobs are read through. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The outcome of a check. */
+    public static final class Report {
+        /** Number of objects checked. */
+        private final long _objects;
+        /** The problems found, sorted. */
+        private final List<String> _problems;
+
+        /** A check of OBJECTS objects that found PROBLEMS. */
+        Report(long objects, List<String> problems) {
+            _objects = objects;
+            _problems = problems;
+        }
+
+        /** Return the number of objects checked. */
+        public long getObjects() {
+            return _objects;
+        }
+
+        /** Return the problems found, one line each, in sorted order.
+         * Dangling objects are listed too.
+         */
+        public List<String> getProblems() {
+            return _problems;
+        }
+    }
+
+    /** The repository checked. */
+    private final Context _ctx;
+    /** The ids of the objects present. */
+    private final Set<ObjectId> _present = ConcurrentHashMap.newKeySet();
+    /** The ids of the objects something refers to. */
+    private final Set<ObjectId> _referenced = ConcurrentHashMap.newKeySet();
+    /** Objects named but absent, with the first of what names them. */
+    private final ConcurrentHashMap<ObjectId, String> _missing =
+        new ConcurrentHashMap<>();
+    /** The problems found. */
+    private final ConcurrentLinkedQueue<String> _problems =
+        new ConcurrentLinkedQueue<>();
+    /** Number of objects checked. */
+    private final LongAdder _objects = new LongAdder();
+    /** Whether missing blobs may be fetched from a promisor remote. */
+    private final boolean _promised;
+
+    /** A check of the repository CTX. */
+    private Fsck(Context ctx) {
+        _ctx = ctx;
+        _promised = !Remote.promisors(ctx).isEmpty();
+    }
+
+    /** Check the repository CTX. Return what was found. */
+    static Report check(Context ctx) {
+        return new Fsck(ctx).run();
+    }
+
+    /** Check the repository. Return what was found. */
+    private Report run() {
+        ArrayList<File> shards = new ArrayList<>();
+        ArrayList<File> flat = new ArrayList<>();
+        File[] entries = _ctx.getObjects().listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                if (entry.isDirectory()) {
+                    shards.add(entry);
+                } else {
+                    flat.add(entry);
+                }
+            }
+        }
+        try (Stats.Phase p = Stats.phase("list objects")) {
+            Workers.forEach(shards, dir -> {
+                File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File f : files) {
+                        present(f);
+                    }
+                }
+            });
+            for (File f : flat) {
+                present(f);
+            }
+        }
+        try (Stats.Phase p = Stats.phase("check objects")) {
+            Workers.forEach(shards, dir -> {
+                File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File f : files) {
+                        checkObject(f);
+                    }
+                }
+            });
+            Workers.forEach(flat, this::checkObject);
+        }
+        checkRefs();
+        _missing.forEach((id, from) -> _problems.add("missing " + kind(id)
+                + " " + id + " (named by " + from + ")"));
+        for (ObjectId id : _present) {
+            if (!_referenced.contains(id)) {
+                _problems.add("dangling " + kind(id) + " " + id);
+            }
+        }
+        ArrayList<String> problems = new ArrayList<>(_problems);
+        Collections.sort(problems);
+        return new Report(_objects.sum(), problems);
+    }
+
+    /** Record the object file F as present, unless it is misplaced. */
+    private void present(File f) {
+        if (f.getName().startsWith(".")) {
+            return;
+        }
+        try {
+            ObjectId id = ObjectId.parse(f.getName());
+            if (!misplaced(f, id)) {
+                _present.add(id);
+            }
+        } catch (IllegalArgumentException excp) {
+            _problems.add("unknown file " + f.getName());
+        }
+    }
+
+    /** Return whether the file F of object ID is somewhere lookups of ID
+     * do not find it, such as a shard its id does not name.
+     */
+    private boolean misplaced(File f, ObjectId id) {
+        return !f.equals(ObjectStore.file(_ctx, id));
+    }
+
+    /** Check the object in the file F: that it is where lookups find
+     * it, that it hashes to its name and, for a commit, that what it
+     * names exists.
+     */
+    private void checkObject(File f) throws IOException {
+        if (f.getName().startsWith(".")) {
+            return;
+        }
+        ObjectId id;
+        try {
+            id = ObjectId.parse(f.getName());
+        } catch (IllegalArgumentException excp) {
+            return;
+        }
+        _objects.increment();
+        if (misplaced(f, id)) {
+            _problems.add("misplaced " + kind(id) + " " + id + " in "
+                    + f.getParentFile().getName());
+            return;
+        }
+        if (id.getType() == ObjectId.Type.BLOB) {
+            if (!id.equals(hashBlob(f))) {
+                _problems.add("hash mismatch " + id);
+            }
+            return;
+        }
+        Commit c;
+        try {
+            c = Utils.readObject(f, Commit.class);
+        } catch (IllegalArgumentException excp) {
+            _problems.add("corrupt commit " + id);
+            return;
+        }
+        if (!id.equals(c.getSha1()) || !id.equals(c.hash())) {
+            _problems.add("hash mismatch " + id);
+        }
+        for (ObjectId p : new ObjectId[] {c.getParent(), c.getParent2()}) {
+            if (p != null) {
+                refer(p, "commit " + id);
+            }
+        }
+        for (PathTable.Cursor b = c.getFiles().cursor(); b.next();) {
+            refer(b.id(), "commit " + id);
+        }
+    }
+
+    /** Check that the commits listed by each branch and the blobs in
+     * each stage exist.
+     */
+    private void checkRefs() {
+        for (String name : Utils.namesIn(_ctx.getBranch())) {
+            Branch b;
+            try {
+                b = Branch.fromFile(_ctx, name);
+            } catch (IllegalArgumentException excp) {
+                _problems.add("corrupt branch " + name);
+                continue;
+            }
+            refer(b.getHead(), "branch " + name);
+            for (ObjectId c : b.getCommits()) {
+                refer(c, "branch " + name);
+            }
+        }
+        for (String name : Utils.namesIn(_ctx.getStage())) {
+            Stage s;
+            try {
+                s = Stage.fromFile(_ctx, name);
+            } catch (IllegalArgumentException excp) {
+                _problems.add("corrupt stage " + name);
+                continue;
+            }
+            for (ObjectId blob : s.getCurrStage().values()) {
+                refer(blob, "stage " + name);
+            }
+            for (ObjectId blob : s.getRemoveStage().values()) {
+                refer(blob, "stage " + name);
+            }
+        }
+    }
+
+    /** Record that the object ID is named by FROM, and that it is
+     * missing if it is.
+     */
+    private void refer(ObjectId id, String from) {
+        _referenced.add(id);
+        if (_present.contains(id)
+                || id.getType() == ObjectId.Type.BLOB && _promised) {
+            return;
+        }
+        _missing.merge(id, from, (x, y) -> x.compareTo(y) <= 0 ? x : y);
+    }
+
+    /** Return the id of the blob whose contents are in the file F,
+     * streaming it through the digest.
+     */
+    private static ObjectId hashBlob(File f) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(f)) {
+            for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                md.update(buf, 0, n);
+            }
+        }
+        return ObjectId.of(ObjectId.Type.BLOB, md.digest());
+    }
+
+    /** Return the kind of object ID names, as a word. */
+    private static String kind(ObjectId id) {
+        return id.getType() == ObjectId.Type.COMMIT ? "commit" : "blob";
+    }
+
+}
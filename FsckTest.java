@@ -0,0 +1,95 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of repository checks.
+ * @author Jason Ding
+ */
+public class FsckTest {
+
+    /** The repository checked. */
+    private Repository _repo;
+    /** Its only commit besides the initial one. */
+    private Commit _commit;
+    /** The blob of a.txt in _commit. */
+    private ObjectId _blob;
+
+    /** Make a repository with one commit of a.txt. */
+    @Before
+    public void setUp() throws IOException {
+        _repo = UnitTest.newRepository();
+        _commit = UnitTest.commit(_repo, "a.txt", "a\n", "add a");
+        _blob = ObjectId.ofBlob("a\n");
+    }
+
+    /** Return the file of object ID. */
+    private File file(ObjectId id) {
+        return ObjectStore.file(_repo.context(), id);
+    }
+
+    @Test
+    public void cleanRepositoryHasNoProblems() {
+        Fsck.Report report = _repo.fsck();
+        assertEquals(List.of(), report.getProblems());
+        assertEquals(3, report.getObjects());
+    }
+
+    @Test
+    public void reportsMissingObjects() {
+        assertTrue(file(_blob).delete());
+        assertEquals(List.of("missing blob " + _blob + " (named by commit "
+                + _commit.getSha1() + ")"), _repo.fsck().getProblems());
+    }
+
+    @Test
+    public void reportsDanglingObjects() {
+        ObjectId extra = ObjectId.ofBlob("extra\n");
+        Utils.writeContents(ObjectStore.fileForWrite(_repo.context(), extra),
+                "extra\n");
+        assertEquals(List.of("dangling blob " + extra),
+                _repo.fsck().getProblems());
+    }
+
+    @Test
+    public void reportsHashMismatches() {
+        Utils.writeContents(file(_blob), "b\n");
+        assertEquals(List.of("hash mismatch " + _blob),
+                _repo.fsck().getProblems());
+        Utils.writeContents(file(_commit.getParent()),
+                Utils.readContents(file(_commit.getSha1())));
+        assertEquals(List.of("hash mismatch " + _blob,
+                "hash mismatch " + _commit.getParent()),
+                _repo.fsck().getProblems());
+    }
+
+    @Test
+    public void promisorRemotesExcuseMissingBlobs() {
+        assertTrue(file(_blob).delete());
+        Remote.addPromisor(_repo.context(), "origin");
+        assertEquals(List.of(), _repo.fsck().getProblems());
+        assertTrue(file(_commit.getParent()).delete());
+        assertEquals(List.of("missing commit " + _commit.getParent()
+                + " (named by branch master)"), _repo.fsck().getProblems());
+    }
+
+    @Test
+    public void reportsObjectsInTheWrongShard() {
+        File right = file(_blob);
+        File wrong = Utils.join(right.getParentFile().getParentFile(),
+                right.getParentFile().getName().equals("00") ? "01" : "00",
+                right.getName());
+        wrong.getParentFile().mkdir();
+        assertTrue(right.renameTo(wrong));
+        assertEquals(List.of("misplaced blob " + _blob + " in "
+                + wrong.getParentFile().getName(),
+                "missing blob " + _blob + " (named by commit "
+                + _commit.getSha1() + ")"), _repo.fsck().getProblems());
+    }
+
+}
@@ -0,0 +1,203 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Finds and removes the objects of a repository that nothing refers
+ * to any more, such as the commits left behind by reset or rm-branch
+ * and their blobs. Marking starts from every commit listed by a branch
+ * and every blob in a stage, and walks parents one generation at a time,
+ * reading each generation's commits on Workers. Sweeping then goes
+ * through the shard directories on Workers, deleting the objects that
+ * were not marked, along with temporary files left by interrupted
+ * writes. Only files older than a grace period are removed, so that an
+ * object written by a command still under way is never lost.
+ * @author Jason Ding
+ */
+public final class GarbageCollector {
+
+    /** The grace period used when none is given: two weeks. */
+    static final long DEFAULT_GRACE = 14L * 24 * 60 * 60 * 1000;
+
+    /** Numbers of objects and of bytes in an object directory. */
+    public static final class Counts {
+        /** Number of objects. */
+        private final LongAdder _objects = new LongAdder();
+        /** Bytes taken by objects. */
+        private final LongAdder _bytes = new LongAdder();
+        /** Number of commits. */
+        private final LongAdder _commits = new LongAdder();
+        /** Number of blobs. */
+        private final LongAdder _blobs = new LongAdder();
+        /** Number of unreachable objects. */
+        private final LongAdder _unreachable = new LongAdder();
+        /** Bytes taken by unreachable objects. */
+        private final LongAdder _unreachableBytes = new LongAdder();
+        /** Number of temporary files. */
+        private final LongAdder _garbage = new LongAdder();
+        /** Bytes taken by temporary files. */
+        private final LongAdder _garbageBytes = new LongAdder();
+
+        /** Return the number of objects. */
+        public long getObjects() {
+            return _objects.sum();
+        }
+
+        /** Return the bytes taken by objects. */
+        public long getBytes() {
+            return _bytes.sum();
+        }
+
+        /** Return the number of commits. */
+        public long getCommits() {
+            return _commits.sum();
+        }
+
+        /** Return the number of blobs. */
+        public long getBlobs() {
+            return _blobs.sum();
+        }
+
+        /** Return the number of unreachable objects counted. */
+        public long getUnreachable() {
+            return _unreachable.sum();
+        }
+
+        /** Return the bytes taken by the unreachable objects counted. */
+        public long getUnreachableBytes() {
+            return _unreachableBytes.sum();
+        }
+
+        /** Return the number of temporary files counted. */
+        public long getGarbage() {
+            return _garbage.sum();
+        }
+
+        /** Return the bytes taken by the temporary files counted. */
+        public long getGarbageBytes() {
+            return _garbageBytes.sum();
+        }
+    }
+
+    /** Not instantiable. */
+    private GarbageCollector() {
+    }
+
+    /** Return the ids of every object of the repository CTX reachable
+     * from its branches and stages.
+     */
+    static Set<ObjectId> mark(Context ctx) {
+        Set<ObjectId> live = ConcurrentHashMap.newKeySet();
+        ArrayList<ObjectId> generation = new ArrayList<>();
+        for (String name : Utils.namesIn(ctx.getBranch())) {
+            for (ObjectId c : Branch.fromFile(ctx, name).getCommits()) {
+                if (live.add(c)) {
+                    generation.add(c);
+                }
+            }
+        }
+        for (String name : Utils.namesIn(ctx.getStage())) {
+            Stage s = Stage.fromFile(ctx, name);
+            live.addAll(s.getCurrStage().values());
+            live.addAll(s.getRemoveStage().values());
+        }
+        while (!generation.isEmpty()) {
+            ConcurrentLinkedQueue<ObjectId> next =
+                new ConcurrentLinkedQueue<>();
+            Workers.forEach(generation, id -> {
+                Commit c = Commit.fromFile(ctx, id);
+                for (PathTable.Cursor f = c.getFiles().cursor(); f.next();) {
+                    live.add(f.id());
+                }
+                for (ObjectId p : new ObjectId[] {c.getParent(),
+                                                  c.getParent2()}) {
+                    if (p != null && live.add(p)) {
+                        next.add(p);
+                    }
+                }
+            });
+            generation = new ArrayList<>(next);
+        }
+        return live;
+    }
+
+    /** Count the objects of the repository CTX, and delete them as
+     * well if DELETE. Objects not in LIVE are unreachable; LIVE may be
+     * null if that is not wanted. With DELETE, unreachable objects and
+     * temporary files last modified before CUTOFF, in milliseconds since
+     * the epoch, are deleted, and only those are counted as unreachable
+     * or garbage. Return the counts.
+     */
+    static Counts sweep(Context ctx, Set<ObjectId> live, long cutoff,
+                        boolean delete) {
+        Counts counts = new Counts();
+        File[] entries = ctx.getObjects().listFiles();
+        if (entries == null) {
+            return counts;
+        }
+        ArrayList<File> shards = new ArrayList<>();
+        ArrayList<File> flat = new ArrayList<>();
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                shards.add(entry);
+            } else {
+                flat.add(entry);
+            }
+        }
+        Workers.forEach(shards, dir -> {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    sweepOne(f, counts, live, cutoff, delete);
+                }
+            }
+        });
+        for (File f : flat) {
+            sweepOne(f, counts, live, cutoff, delete);
+        }
+        return counts;
+    }
+
+    /** Count the file F of an object directory in COUNTS, deleting it
+     * if DELETE and it is unreachable, as LIVE says, or temporary, and
+     * was last modified before CUTOFF.
+     */
+    private static void sweepOne(File f, Counts counts, Set<ObjectId> live,
+                                 long cutoff, boolean delete) {
+        long length = f.length();
+        boolean old = f.lastModified() < cutoff;
+        if (f.getName().startsWith(".")) {
+            if (!delete || old && f.delete()) {
+                counts._garbage.increment();
+                counts._garbageBytes.add(length);
+            }
+            return;
+        }
+        ObjectId id;
+        try {
+            id = ObjectId.parse(f.getName());
+        } catch (IllegalArgumentException excp) {
+            return;
+        }
+        if (live != null && !live.contains(id)
+                && (!delete || old && f.delete())) {
+            counts._unreachable.increment();
+            counts._unreachableBytes.add(length);
+            if (delete) {
+                return;
+            }
+        }
+        counts._objects.increment();
+        counts._bytes.add(length);
+        if (id.getType() == ObjectId.Type.COMMIT) {
+            counts._commits.increment();
+        } else {
+            counts._blobs.increment();
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of garbage collection.
+ * @author Jason Ding
+ */
+public class GarbageCollectorTest {
+
+    /** The repository collected. */
+    private Repository _repo;
+    /** The commit on master that stays reachable. */
+    private Commit _kept;
+    /** The commit on the side branch. */
+    private Commit _side;
+    /** The commit dropped from master by a reset. */
+    private Commit _dropped;
+
+    /** Make a repository whose master has a commit that was reset away,
+     * whose side branch has a commit of its own, and whose stage holds a
+     * blob no commit has.
+     */
+    @Before
+    public void setUp() throws IOException {
+        _repo = UnitTest.newRepository();
+        _kept = UnitTest.commit(_repo, "a.txt", "kept\n", "kept");
+        _repo.branch("side");
+        _repo.checkoutBranch("side");
+        _side = UnitTest.commit(_repo, "b.txt", "side\n", "side");
+        _repo.checkoutBranch("master");
+        _dropped = UnitTest.commit(_repo, "a.txt", "dropped\n", "dropped");
+        _repo.reset(_kept.getSha1().toString());
+        UnitTest.write(_repo, "c.txt", "staged\n");
+        _repo.add("c.txt");
+    }
+
+    /** Set the modification time of every object to an hour ago. */
+    private void age() {
+        long then = System.currentTimeMillis() - 60 * 60 * 1000;
+        for (String id : ObjectStore.list(_repo.context().getObjects())) {
+            assertTrue(ObjectStore.file(_repo.context(), ObjectId.parse(id))
+                    .setLastModified(then));
+        }
+    }
+
+    /** Return whether the object ID exists. */
+    private boolean exists(ObjectId id) {
+        return ObjectStore.exists(_repo.context(), id);
+    }
+
+    @Test
+    public void keepsWhatEveryBranchReaches() {
+        age();
+        _repo.gc(60 * 1000);
+        assertTrue(exists(_kept.getSha1()));
+        assertTrue(exists(_kept.getParent()));
+        assertTrue(exists(_side.getSha1()));
+        assertTrue(exists(ObjectId.ofBlob("kept\n")));
+        assertTrue(exists(ObjectId.ofBlob("side\n")));
+    }
+
+    @Test
+    public void keepsBlobsOnlyAStageNames() {
+        age();
+        _repo.gc(60 * 1000);
+        assertTrue(exists(ObjectId.ofBlob("staged\n")));
+    }
+
+    @Test
+    public void keepsUnreachableObjectsWithinTheGracePeriod() {
+        GarbageCollector.Counts counts =
+            _repo.gc(GarbageCollector.DEFAULT_GRACE);
+        assertEquals(0, counts.getUnreachable());
+        assertTrue(exists(_dropped.getSha1()));
+        assertTrue(exists(ObjectId.ofBlob("dropped\n")));
+    }
+
+    @Test
+    public void removesExpiredUnreachableObjects() {
+        age();
+        GarbageCollector.Counts counts = _repo.gc(60 * 1000);
+        assertEquals(2, counts.getUnreachable());
+        assertFalse(exists(_dropped.getSha1()));
+        assertFalse(exists(ObjectId.ofBlob("dropped\n")));
+        for (CommitLog.Entry e : _repo.globalLog()) {
+            assertNotEquals(_dropped.getSha1(), e.getSha1());
+        }
+        assertEquals(0, _repo.find(Repository.FindMode.EXACT, "dropped")
+                .size());
+    }
+
+    @Test
+    public void fsckIsCleanAfterGc() {
+        List<String> before = _repo.fsck().getProblems();
+        assertEquals(List.of("dangling commit " + _dropped.getSha1()),
+                before);
+        age();
+        _repo.gc(60 * 1000);
+        Fsck.Report after = _repo.fsck();
+        assertEquals(List.of(), after.getProblems());
+        assertEquals(6, after.getObjects());
+    }
+
+}
@@ -0,0 +1,40 @@
+package gitlet;
+
+/** Fast non-cryptographic hashes, for Bloom filters and similarity
+ * sketches whose hashes need to be well spread and stable across runs
+ * but not secure.
+ * @author Jason Ding
+ */
+final class Hashing {
+
+    /** The FNV-1a offset basis. */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    /** The FNV-1a prime. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Not instantiable. */
+    private Hashing() {
+    }
+
+    /** Return the 64-bit FNV-1a hash of DATA. */
+    static long fnv1a(byte[] data) {
+        return fnv1a(data, 0, data.length);
+    }
+
+    /** Return the 64-bit FNV-1a hash of bytes [FROM, TO) of DATA. */
+    static long fnv1a(byte[] data, int from, int to) {
+        long h = FNV_OFFSET;
+        for (int i = from; i < to; i++) {
+            h = (h ^ (data[i] & 0xff)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /** Return X with its bits mixed, by the SplitMix64 finalizer. */
+    static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+}
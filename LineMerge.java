@@ -0,0 +1,175 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/** A diff3-style merge of the lines of two files that share a base.
+ * Both files are diffed against the base; changes made on only one
+ * side, or identically on both, are applied, and only the regions that
+ * both sides changed differently are written between conflict markers.
+ * Everything is copied straight from the three byte arrays.
+ * @author Jason Ding
+ * @see Diff
+ */
+public final class LineMerge {
+
+    /** Marker opening the current branch's side of a conflict. */
+    static final byte[] OURS_MARKER =
+        "<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8);
+    /** Marker separating the two sides of a conflict. */
+    static final byte[] SEPARATOR =
+        "=======\n".getBytes(StandardCharsets.UTF_8);
+    /** Marker closing the given branch's side of a conflict. */
+    static final byte[] THEIRS_MARKER =
+        ">>>>>>>\n".getBytes(StandardCharsets.UTF_8);
+
+    /** The outcome of a merge. */
+    public static final class Result {
+        /** The merged contents. */
+        private final byte[] _contents;
+        /** Number of conflicting regions. */
+        private final int _conflicts;
+
+        /** A merge producing CONTENTS, with CONFLICTS conflicting
+         * regions.
+         */
+        Result(byte[] contents, int conflicts) {
+            _contents = contents;
+            _conflicts = conflicts;
+        }
+
+        /** Return the merged contents, with conflict markers. */
+        public byte[] getContents() {
+            return _contents;
+        }
+
+        /** Return the number of conflicting regions. */
+        public int getConflicts() {
+            return _conflicts;
+        }
+
+        /** Return whether any region conflicted. */
+        public boolean hasConflicts() {
+            return _conflicts > 0;
+        }
+    }
+
+    /** Not instantiable. */
+    private LineMerge() {
+    }
+
+    /** Return the merge of OURS and THEIRS, two versions of BASE. A
+     * file absent on some side is given as an empty array.
+     */
+    public static Result merge(byte[] base, byte[] ours, byte[] theirs) {
+        int[] lb = Diff.lineStarts(base);
+        int[] lo = Diff.lineStarts(ours);
+        int[] lt = Diff.lineStarts(theirs);
+        List<Diff.Edit> eo = Diff.diff(base, ours);
+        List<Diff.Edit> et = Diff.diff(base, theirs);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                Math.max(ours.length, theirs.length));
+        int conflicts = 0;
+        int io = 0;
+        int it = 0;
+        int pos = 0;
+        int deltaO = 0;
+        int deltaT = 0;
+        while (io < eo.size() || it < et.size()) {
+            int start = it >= et.size() || (io < eo.size()
+                    && eo.get(io).getBeginA() <= et.get(it).getBeginA())
+                    ? eo.get(io).getBeginA() : et.get(it).getBeginA();
+            int end = start;
+            int firstO = io;
+            int firstT = it;
+            while (true) {
+                if (io < eo.size() && eo.get(io).getBeginA() <= end) {
+                    end = Math.max(end, eo.get(io++).getEndA());
+                } else if (it < et.size() && et.get(it).getBeginA() <= end) {
+                    end = Math.max(end, et.get(it++).getEndA());
+                } else {
+                    break;
+                }
+            }
+            copy(out, base, lb, pos, start);
+            int oStart = regionStart(eo, firstO, io, start, deltaO);
+            int oEnd = regionEnd(eo, firstO, io, end, deltaO);
+            int tStart = regionStart(et, firstT, it, start, deltaT);
+            int tEnd = regionEnd(et, firstT, it, end, deltaT);
+            if (io == firstO) {
+                copy(out, theirs, lt, tStart, tEnd);
+            } else if (it == firstT || same(ours, lo, oStart, oEnd,
+                    theirs, lt, tStart, tEnd)) {
+                copy(out, ours, lo, oStart, oEnd);
+            } else {
+                conflicts += 1;
+                out.write(OURS_MARKER, 0, OURS_MARKER.length);
+                copyLine(out, ours, lo, oStart, oEnd);
+                out.write(SEPARATOR, 0, SEPARATOR.length);
+                copyLine(out, theirs, lt, tStart, tEnd);
+                out.write(THEIRS_MARKER, 0, THEIRS_MARKER.length);
+            }
+            deltaO = oEnd - end;
+            deltaT = tEnd - end;
+            pos = end;
+        }
+        copy(out, base, lb, pos, lb.length - 1);
+        return new Result(out.toByteArray(), conflicts);
+    }
+
+    /** Return the line of one side at which the region starting at base
+     * line START begins, given that side's edits FROM to TO of EDITS
+     * within the region and DELTA, the difference between its line
+     * numbers and the base's before the region.
+     */
+    private static int regionStart(List<Diff.Edit> edits, int from, int to,
+                                   int start, int delta) {
+        if (from == to) {
+            return start + delta;
+        }
+        Diff.Edit e = edits.get(from);
+        return e.getBeginB() - (e.getBeginA() - start);
+    }
+
+    /** Return the line of one side at which the region ending at base
+     * line END ends, given as for regionStart.
+     */
+    private static int regionEnd(List<Diff.Edit> edits, int from, int to,
+                                 int end, int delta) {
+        if (from == to) {
+            return end + delta;
+        }
+        Diff.Edit e = edits.get(to - 1);
+        return e.getEndB() + (end - e.getEndA());
+    }
+
+    /** Return whether lines [AFROM, ATO) of A, whose lines start at
+     * LA, are the same bytes as lines [BFROM, BTO) of B.
+     */
+    private static boolean same(byte[] a, int[] la, int aFrom, int aTo,
+                                byte[] b, int[] lb, int bFrom, int bTo) {
+        return Arrays.equals(a, la[aFrom], la[aTo], b, lb[bFrom], lb[bTo]);
+    }
+
+    /** Write lines [FROM, TO) of DATA, whose lines start at STARTS, to
+     * OUT.
+     */
+    private static void copy(ByteArrayOutputStream out, byte[] data,
+                             int[] starts, int from, int to) {
+        out.write(data, starts[from], starts[to] - starts[from]);
+    }
+
+    /** Write lines [FROM, TO) of DATA as copy does, adding a newline if
+     * the last one lacks it so that a marker can follow.
+     */
+    private static void copyLine(ByteArrayOutputStream out, byte[] data,
+                                 int[] starts, int from, int to) {
+        copy(out, data, starts, from, to);
+        if (to > from && data[starts[to] - 1] != '\n') {
+            out.write('\n');
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of three-way line merges.
+ * @author Jason Ding
+ */
+public class LineMergeTest {
+
+    /** Base version shared by the merges below. */
+    private static final String BASE = "one\ntwo\nthree\nfour\nfive\n";
+
+    /** Return the merge of OURS and THEIRS, two versions of BASE. */
+    private static LineMerge.Result merge(String base, String ours,
+                                          String theirs) {
+        return LineMerge.merge(base.getBytes(StandardCharsets.UTF_8),
+                ours.getBytes(StandardCharsets.UTF_8),
+                theirs.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Return the contents of RESULT as a string. */
+    private static String text(LineMerge.Result result) {
+        return new String(result.getContents(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void sameEditOnBothSidesIsClean() {
+        String edited = "one\nTWO\nthree\nfour\nfive\n";
+        LineMerge.Result r = merge(BASE, edited, edited);
+        assertFalse(r.hasConflicts());
+        assertEquals(edited, text(r));
+
+        String removed = "one\nthree\nfour\nfive\n";
+        r = merge(BASE, removed, removed);
+        assertFalse(r.hasConflicts());
+        assertEquals(removed, text(r));
+    }
+
+    @Test
+    public void adjacentEditsConflict() {
+        LineMerge.Result r = merge(BASE, "one\nTWO\nthree\nfour\nfive\n",
+                "one\ntwo\nTHREE\nfour\nfive\n");
+        assertEquals(1, r.getConflicts());
+        assertEquals("one\n<<<<<<< HEAD\nTWO\nthree\n=======\ntwo\nTHREE\n"
+                + ">>>>>>>\nfour\nfive\n", text(r));
+    }
+
+    @Test
+    public void separatedEditsAreClean() {
+        LineMerge.Result r = merge(BASE, "one\nTWO\nthree\nfour\nfive\n",
+                "one\ntwo\nthree\nFOUR\nfive\n");
+        assertFalse(r.hasConflicts());
+        assertEquals("one\nTWO\nthree\nFOUR\nfive\n", text(r));
+    }
+
+    @Test
+    public void differentEditsOfOneLineConflict() {
+        LineMerge.Result r = merge(BASE, "one\ntwo\n3\nfour\nfive\n",
+                "one\ntwo\nIII\nfour\nfive\n");
+        assertEquals(1, r.getConflicts());
+        assertEquals("one\ntwo\n<<<<<<< HEAD\n3\n=======\nIII\n>>>>>>>\n"
+                + "four\nfive\n", text(r));
+    }
+
+    @Test
+    public void conflictWithoutFinalNewlineKeepsMarkersOnTheirOwnLines() {
+        LineMerge.Result r = merge("a\nb", "a\nours", "a\ntheirs");
+        assertEquals(1, r.getConflicts());
+        assertEquals("a\n<<<<<<< HEAD\nours\n=======\ntheirs\n>>>>>>>\n",
+                text(r));
+    }
+
+}
@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the options of the log command.
+ * @author Jason Ding
+ */
+public class LogTest {
+
+    /** The working directory of the repository logged. */
+    private File _dir;
+    /** The one-line log entries of the commits on master, newest
+     * first, ending with the initial commit, made in 1970.
+     */
+    private String _first, _second, _third, _initial;
+
+    /** Make a repository with three commits on master after the initial
+     * one, the second of which changes b.txt.
+     */
+    @Before
+    public void setUp() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        _dir = repo.getWorkingDirectory();
+        _initial = oneline(Commit.fromFile(repo.context(), repo.head()));
+        _third = oneline(UnitTest.commit(repo, "a.txt", "1\n", "one"));
+        _second = oneline(UnitTest.commit(repo, "b.txt", "2\n", "two"));
+        _first = oneline(UnitTest.commit(repo, "a.txt", "3\n", "three"));
+    }
+
+    /** Return the one-line log entry of C. */
+    private static String oneline(Commit c) {
+        return c.getSha1().abbreviate(7) + " " + c.getMessage() + "\n";
+    }
+
+    /** Return the output of log with ARGS. */
+    private String log(String... args) {
+        String[] command = new String[args.length + 1];
+        command[0] = "log";
+        System.arraycopy(args, 0, command, 1, args.length);
+        return UnitTest.gitlet(_dir, command);
+    }
+
+    @Test
+    public void onelineShowsEveryCommitNewestFirst() {
+        assertEquals(_first + _second + _third + _initial, log("--oneline"));
+    }
+
+    @Test
+    public void limitStopsAfterN() {
+        assertEquals(_first + _second, log("-n", "2", "--oneline"));
+        assertEquals("", log("--oneline", "-n", "0"));
+        String full = log("-n", "1");
+        assertTrue(full, full.startsWith("===\ncommit "));
+        assertTrue(full, full.endsWith("\nthree\n\n"));
+        assertEquals(1, full.split("===").length - 1);
+    }
+
+    @Test
+    public void sinceAndUntilBoundTheDates() {
+        assertEquals(_initial, log("--until", "2000-01-01", "--oneline"));
+        assertEquals(_first + _second + _third,
+                log("--since", "2000-01-01 00:00:00", "--oneline"));
+        assertEquals(_first, log("--since", "2000-01-01", "-n", "1",
+                "--oneline"));
+        assertEquals("", log("--since", "2000-01-01", "--until",
+                "2000-01-02", "--oneline"));
+    }
+
+    @Test
+    public void pathsLimitTheCommitsShown() {
+        assertEquals(_second, log("--oneline", "--", "b.txt"));
+        assertEquals(_first + _second + _third,
+                log("--oneline", "--", "a.txt", "b.txt"));
+    }
+
+    @Test
+    public void badOptionsAreReported() {
+        assertEquals("Incorrect operands.\n", log("-n", "x"));
+        assertEquals("Incorrect operands.\n", log("-n"));
+        assertEquals("Incorrect operands.\n", log("--oneline", "--"));
+        assertEquals("Incorrect date: yesterday\n",
+                log("--since", "yesterday"));
+    }
+
+}
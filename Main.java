@@ -1,81 +1,105 @@
 package gitlet;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /** Driver class for Gitlet, the tiny stupid version-control system.
  *  @author Jason Ding
  */
 public class Main {
 
-    /** Current Working Directory. */
-    static final File CWD = new File(".");
-    /** GitLet repo directory. */
-    static final File REPO = Utils.join(CWD, ".gitlet");
-    /** GitLet object directory. */
-    static final File OBJECTS = Utils.join(REPO, "objects");
-    /** GitLet current branch directory. */
-    static final File BRANCH = Utils.join(REPO, "branch");
-    /** GitLet current branch file. */
-    static final File CURRENT_BRANCH = Utils.join(REPO, "current-branch");
-    /** GitLet staging area directory. */
-    static final File STAGE = Utils.join(REPO, "stage");
-    /** GitLet commit history file. */
-    static final File LOGS = Utils.join(REPO, "logs");
-    /** GitLet remote directory. */
-    static final File REMOTE = Utils.join(REPO, "remote");
-
-    /** The staging area of the Gitlet. */
-    private static Stage _stagingArea;
-    /** The branch of the Gitlet. */
-    private static Branch _branch;
+    /** Length of a date given as yyyy-MM-dd. */
+    private static final int DATE_LENGTH = 10;
+    /** Format of a date and time given on the command line. */
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** Lines of context shown around each change by diff. */
+    private static final int DIFF_CONTEXT = 3;
+    /** Widest bar shown by diff --stat. */
+    private static final int STAT_WIDTH = 40;
+    /** Milliseconds in a day. */
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    /** Bytes in a kilobyte. */
+    private static final long KILOBYTE = 1024;
+
+    /** The repository commands run against, kept between commands run
+     * in the same process so that its cached state can be reused. */
+    private static Repository _repo;
 
     /** Usage: java gitlet.Main ARGS, where ARGS contains
      *  <COMMAND> <OPERAND> .... */
     public static void main(String... args) throws IOException {
+        try {
+            run(args);
+        } catch (GitletException excp) {
+            Utils.message(excp.getMessage());
+        }
+        System.exit(0);
+    }
+
+    /** Run the command in ARGS on the repository in the current
+     * directory. Errors are reported by throwing a GitletException whose
+     * message is to be printed. With a leading --stats or --stats=FORMAT,
+     * or when GITLET_STATS is set, the command is measured and its
+     * statistics are reported on the standard error.
+     */
+    static void run(String... args) throws IOException {
+        Stats.Format format = Stats.parseFormat(System.getenv(Stats.ENV));
+        if (args.length > 0 && args[0].equals("--stats")) {
+            format = Stats.Format.TEXT;
+            args = Arrays.copyOfRange(args, 1, args.length);
+        } else if (args.length > 0 && args[0].startsWith("--stats=")) {
+            format = Stats.parseFormat(args[0].substring(
+                    "--stats=".length()));
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (format == null) {
+            runCommand(args);
+            return;
+        }
+        Stats stats = Stats.start(args.length > 0 ? args[0] : "", format);
+        try {
+            runCommand(args);
+        } finally {
+            System.out.flush();
+            stats.finish();
+            String report = stats.report();
+            if (report != null) {
+                System.err.println(report);
+            }
+        }
+    }
+
+    /** Run the command in ARGS on the repository in the current
+     * directory.
+     */
+    private static void runCommand(String... args) throws IOException {
         if (args.length == 0) {
             error("Please enter a command.");
         }
+        File cwd = new File(".");
         if (args[0].equals("init")) {
-            init(args);
+            _repo = Repository.init(cwd);
         } else {
-            if (!REPO.exists()) {
-                error("Not in an initialized Gitlet directory.");
-            } else {
-                _branch = Branch.fromFile(null);
-                _stagingArea = Stage.fromFile(_branch.getName());
-                helperMethod(args);
+            if (_repo == null || !new Context(cwd).getRepo().exists()) {
+                _repo = Repository.open(cwd);
             }
+            helperMethod(args);
         }
-        System.exit(0);
-    }
-
-    /** Creates a new Gitlet version-control system in the current directory.
-     * @param args Array in format: {'init'}
-     */
-    public static void init(String[] args) throws IOException {
-        if (REPO.exists()) {
-            error("A Gitlet version-control system "
-                    + "already exists in the current directory.");
-        }
-        REPO.mkdir();
-        OBJECTS.mkdir();
-        STAGE.mkdir();
-        REMOTE.mkdir();
-        LOGS.mkdir();
-        BRANCH.mkdir();
-        Commit initial = new Commit("initial commit", null);
-        initial.update();
-        _stagingArea = new Stage("master");
-        Branch b = new Branch("master", initial.getSha1());
-        b.saveBranch();
-        _branch = Branch.fromFile("master");
-        CURRENT_BRANCH.createNewFile();
-        Utils.writeContents(CURRENT_BRANCH, "master");
     }
 
     /** Helper Method that uses switch method to deal with input
@@ -84,13 +108,13 @@ public class Main {
     public static void helperMethod(String... args) throws IOException {
         switch (args[0]) {
         case "add":
-            add(args);
+            _repo.add(args[1]);
             break;
         case "commit":
-            commit(args);
+            _repo.commit(args.length > 1 ? args[1] : null);
             break;
         case "rm":
-            rm(args);
+            _repo.rm(args[1]);
             break;
         case "log":
             log(args);
@@ -108,146 +132,277 @@ public class Main {
             checkout(args);
             break;
         case "branch":
-            branch(args);
+            _repo.branch(args[1]);
             break;
         case "rm-branch":
-            rmBranch(args);
+            _repo.rmBranch(args[1]);
             break;
         case "reset":
-            reset(args);
+            _repo.reset(args[1]);
             break;
         case "merge":
-            merge(args);
+            printMerge(_repo.merge(args[1]));
+            break;
+        case "merge-tree":
+            mergeTree(args);
             break;
         case "add-remote":
-            addRemote(args);
+            _repo.addRemote(args[1], args[2]);
             break;
         case "rm-remote":
-            rmRemote(args);
+            _repo.rmRemote(args[1]);
             break;
         case "push":
-            push(args);
+            _repo.push(args[1], args[2]);
             break;
         case "fetch":
-            fetch(args);
+            _repo.fetch(args[1], args[2], blobless(args));
             break;
         case "pull":
-            pull(args);
+            printMerge(_repo.pull(args[1], args[2], blobless(args)));
+            break;
+        case "diff":
+            diff(args);
+            break;
+        case "gc":
+            gc(args);
+            break;
+        case "count-objects":
+            countObjects(args);
+            break;
+        case "fsck":
+            fsck(args);
+            break;
+        case "migrate-objects":
+            System.out.println("Migrated " + _repo.migrateObjects()
+                    + " objects.");
             break;
         default:
             error("No command with that name exists.");
         }
     }
 
-    /** Adds a copy of the file as it currently exists to the staging area.
-     * @param args Array in format: {'add', fileName}
+    /** Delete unreachable objects older than the grace period, which
+     * is two weeks unless --prune gives a number of days or "now", and
+     * print what was reclaimed.
+     * @param args Array in format: {'gc', ['--prune=' (days | 'now')]}
      */
-    public static void add(String... args) throws IOException {
-        File f = Utils.join(CWD, args[1]);
-        if (!f.exists()) {
-            error("File does not exist.");
-        }
-        Blob b = new Blob(f);
-        if (_stagingArea.getCurrStage().containsKey(args[1])) {
-            if (b.isDiff(_stagingArea.getCurrStage().get(args[1]))) {
-                _stagingArea.remove(args[1]);
-                _stagingArea.put(args[1], b.getName());
-            }
-            if (!b.isDiff(Commit.fromFile(_branch.getHead()).
-                    getBlobs().get(args[1]))) {
-                _stagingArea.remove(args[1]);
-            }
-        } else {
-            if (b.isDiff(Commit.fromFile(_branch.getHead()).
-                    getBlobs().get(args[1]))) {
-                _stagingArea.put(args[1], b.getName());
-            } else {
-                if (_stagingArea.getRemoveStage().containsKey(args[1])) {
-                    _stagingArea.getRemoveStage().remove(args[1]);
-                    _stagingArea.update();
-                }
-            }
-        }
+    public static void gc(String[] args) {
+        long grace = GarbageCollector.DEFAULT_GRACE;
+        if (args.length > 2 || args.length == 2
+                && !args[1].startsWith("--prune=")) {
+            error("Incorrect operands.");
+        } else if (args.length == 2) {
+            String when = args[1].substring("--prune=".length());
+            try {
+                grace = when.equals("now") ? 0
+                        : Long.parseLong(when) * DAY;
+            } catch (NumberFormatException excp) {
+                error("Incorrect operands.");
+            }
+        }
+        GarbageCollector.Counts removed = _repo.gc(grace);
+        System.out.println("Removed " + removed.getUnreachable()
+                + " unreachable objects and " + removed.getGarbage()
+                + " temporary files, reclaiming "
+                + kilobytes(removed.getUnreachableBytes()
+                        + removed.getGarbageBytes()) + " kilobytes.");
+    }
 
+    /** Print the number of objects and the space they take. With -v,
+     * also print how many are commits and blobs, how many temporary files
+     * are left over, and how much space gc --prune=now would reclaim.
+     * @param args Array in format: {'count-objects', ['-v']}
+     */
+    public static void countObjects(String[] args) {
+        boolean verbose = args.length == 2 && args[1].equals("-v");
+        if (args.length > 2 || args.length == 2 && !verbose) {
+            error("Incorrect operands.");
+        }
+        GarbageCollector.Counts c = _repo.countObjects(verbose);
+        if (!verbose) {
+            System.out.println(c.getObjects() + " objects, "
+                    + kilobytes(c.getBytes()) + " kilobytes");
+            return;
+        }
+        System.out.println("count: " + c.getObjects());
+        System.out.println("size: " + kilobytes(c.getBytes()));
+        System.out.println("commits: " + c.getCommits());
+        System.out.println("blobs: " + c.getBlobs());
+        System.out.println("garbage: " + c.getGarbage());
+        System.out.println("size-garbage: " + kilobytes(c.getGarbageBytes()));
+        System.out.println("unreachable: " + c.getUnreachable());
+        System.out.println("size-unreachable: "
+                + kilobytes(c.getUnreachableBytes()));
     }
 
-    /** Saves a snapshot of certain files in the current commit and staging
-     * area so they can be restored at a later time, creating a new commit.
-     * @param args Array in format: {'commit', message}
+    /** Check the integrity of the repository, printing each problem
+     * found and then the number of objects checked.
+     * @param args Array in format: {'fsck'}
      */
-    public static void commit(String[] args) throws IOException {
-        if (_stagingArea.getCurrStage().isEmpty()
-                && _stagingArea.getRemoveStage().isEmpty()) {
-            error("No changes added to the commit.");
-        }
-        if (args.length == 1 || (args.length == 2
-                && args[1].trim().isEmpty())) {
-            error("Please enter a commit message.");
-        }
-        Commit head = Commit.fromFile(_branch.getHead());
-        Commit c = new Commit(args[1], head.getSha1());
-        c.commit(_stagingArea);
-        _branch.changeHead(c.getSha1());
-        _stagingArea.getCurrStage().clear();
-        _stagingArea.getRemoveStage().clear();
-        _stagingArea.update();
+    public static void fsck(String[] args) {
+        if (args.length != 1) {
+            error("Incorrect operands.");
+        }
+        Fsck.Report report = _repo.fsck();
+        for (String problem : report.getProblems()) {
+            System.out.println(problem);
+        }
+        System.out.println("Checked " + report.getObjects() + " objects.");
+    }
+
+    /** Return BYTES in kilobytes, rounded up. */
+    private static long kilobytes(long bytes) {
+        return (bytes + KILOBYTE - 1) / KILOBYTE;
     }
 
-    /** Unstage the file if it is currently staged for addition.
-     * If the file is tracked in the current commit, stage it for
-     * removal and remove the file from the working directory if
-     * the user has not already done so.
-     * @param args Array in format: {'rm', fileName}
+    /** Return whether fetch or pull ARGS ask for a blobless fetch.
+     * @param args Array in format: {command,
+     *             remoteName, remoteBranchName[, '--blobless']}
      */
-    public static void rm(String[] args) {
-        boolean removed = false;
-        if (!_stagingArea.getCurrStage().isEmpty()) {
-            if (_stagingArea.getCurrStage().containsKey(args[1])) {
-                removed = true;
-                String b = _stagingArea.getCurrStage().get(args[1]);
-                _stagingArea.remove(args[1]);
-            }
+    private static boolean blobless(String[] args) {
+        return args.length > 3 && args[3].equals("--blobless");
+    }
+
+    /** Print the outcome RESULT of a merge or pull. */
+    private static void printMerge(Repository.MergeResult result) {
+        switch (result) {
+        case ALREADY_MERGED:
+            System.out.println(
+                    "Given branch is an ancestor of the current branch.");
+            break;
+        case FAST_FORWARD:
+            System.out.println("Current branch fast-forwarded.");
+            break;
+        case CONFLICT:
+            System.out.println("Encountered a merge conflict.");
+            break;
+        default:
+            break;
         }
-        if (Commit.fromFile(_branch.getHead()).
-                getBlobs().containsKey(args[1])) {
-            removed = true;
-            String b = Commit.fromFile(_branch.getHead()).
-                    getBlobs().get(args[1]);
-            _stagingArea.toRemove(args[1], b);
-            Utils.restrictedDelete(Utils.join(CWD, args[1]));
+    }
+
+    /** Merge one branch into another without a checkout, and print the
+     * commit made and the files with conflicts.
+     * @param args Array in format: {'merge-tree', branchName,
+     *             givenBranchName}
+     */
+    public static void mergeTree(String[] args) throws IOException {
+        if (args.length != 3) {
+            error("Incorrect operands.");
         }
-        if (!removed) {
-            error("No reason to remove the file.");
+        Repository.MergeTree merged = _repo.mergeTree(args[1], args[2]);
+        switch (merged.getResult()) {
+        case ALREADY_MERGED:
+            System.out.println("Given branch is an ancestor of "
+                    + args[1] + ".");
+            break;
+        case FAST_FORWARD:
+            System.out.println("Branch " + args[1] + " fast-forwarded to "
+                    + merged.getHead().abbreviate(7) + ".");
+            break;
+        default:
+            System.out.println(merged.getHead());
+            for (String f : merged.getConflicts()) {
+                System.out.println("CONFLICT (content): Merge conflict in "
+                        + f);
+            }
+            break;
         }
     }
 
     /** Starting at the current head commit, display information about
      * each commit backwards along the commit tree until the initial commit,
      * following the first parent commit links, ignoring any second parents
-     * found in merge commits.
-     * @param args Array in format: {'log'}
+     * found in merge commits. Commits are read from the metadata log as
+     * the walk reaches them, and the walk stops as soon as -n commits
+     * were shown or a commit older than --since is reached. Paths after
+     * -- limit the log to the commits that changed one of them.
+     * @param args Array in format: {'log', ['-n', count,]
+     *             ['--since', date,] ['--until', date,] ['--oneline',]
+     *             ['--', path...]} where dates are given as yyyy-MM-dd
+     *             or yyyy-MM-dd HH:mm:ss.
      */
     public static void log(String[] args) {
-        Commit c = Commit.fromFile(_branch.getHead());
-        while (c != null) {
-            System.out.println("===\ncommit " + c.getSha1());
-            if (c.isMerged()) {
-                System.out.println("Merge: " + c.getParent1().substring(0, 7)
-                        + " " + c.getParent2().substring(0, 7));
-            }
-            System.out.println("Date: " + c.getTime()
-                    + "\n" + c.getMessage());
-            System.out.println();
-            if (c.getParent() == null) {
+        long limit = Long.MAX_VALUE;
+        long since = Long.MIN_VALUE;
+        long until = Long.MAX_VALUE;
+        boolean oneline = false;
+        List<String> paths = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--oneline")) {
+                oneline = true;
+            } else if (args[i].equals("--")) {
+                if (i + 1 == args.length) {
+                    error("Incorrect operands.");
+                }
+                paths = Arrays.asList(args).subList(i + 1, args.length);
                 break;
-            }
-            if (c.isMerged()) {
-                c = Commit.fromFile(c.getParent1());
+            } else if (i + 1 >= args.length) {
+                error("Incorrect operands.");
+            } else if (args[i].equals("-n")) {
+                try {
+                    limit = Long.parseLong(args[++i]);
+                } catch (NumberFormatException excp) {
+                    error("Incorrect operands.");
+                }
+            } else if (args[i].equals("--since")) {
+                since = parseDate(args[++i]);
+            } else if (args[i].equals("--until")) {
+                until = parseDate(args[++i]);
             } else {
-                c = Commit.fromFile(c.getParent());
+                error("Incorrect operands.");
+            }
+        }
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        long shown = 0;
+        try (CommitLog.History history = _repo.log(paths)) {
+            while (shown < limit && history.hasNext()) {
+                CommitLog.Entry c = history.next();
+                if (c.getTimestamp() < since) {
+                    break;
+                }
+                if (c.getTimestamp() > until) {
+                    continue;
+                }
+                printLog(out, c, oneline);
+                shown += 1;
             }
         }
+        out.flush();
+    }
+
+    /** Print the log entry of commit C to OUT, on one line if ONELINE. */
+    private static void printLog(PrintWriter out, CommitLog.Entry c,
+                                 boolean oneline) {
+        if (oneline) {
+            out.print(c.getSha1().abbreviate(7) + " " + c.getMessage()
+                    + "\n");
+            return;
+        }
+        out.print("===\ncommit " + c.getSha1() + "\n");
+        if (c.isMerged()) {
+            out.print("Merge: " + c.getParent1().abbreviate(7)
+                    + " " + c.getParent2().abbreviate(7) + "\n");
+        }
+        out.print("Date: " + c.getTime() + "\n" + c.getMessage() + "\n\n");
+    }
 
+    /** Return the local date given on the command line as TEXT, in
+     * milliseconds since the epoch.
+     */
+    private static long parseDate(String text) {
+        try {
+            LocalDateTime time = text.length() == DATE_LENGTH
+                    ? LocalDate.parse(text).atStartOfDay()
+                    : LocalDateTime.parse(text, DATE_TIME_FORMAT);
+            return time.atZone(ZoneId.systemDefault()).toInstant().
+                    toEpochMilli();
+        } catch (DateTimeParseException excp) {
+            error("Incorrect date: " + text);
+            return 0;
+        }
     }
 
     /** Like log, except displays information about all commits ever made.
@@ -255,15 +410,11 @@ public class Main {
      * @param args Array in format: {'global-log'}
      */
     public static void globalLog(String[] args) {
-        for (String c : OBJECTS.list()) {
-            if (!c.startsWith("c")) {
-                continue;
-            }
-            Commit com = Commit.fromFile(c);
+        for (CommitLog.Entry com : _repo.globalLog()) {
             System.out.println("===\ncommit " + com.getSha1());
             if (com.isMerged()) {
-                System.out.println("Merge: " + com.getParent1().substring(0, 7)
-                        + " " + com.getParent2().substring(0, 7));
+                System.out.println("Merge: " + com.getParent1().abbreviate(7)
+                        + " " + com.getParent2().abbreviate(7));
             }
             System.out.println("Date: " + com.getTime()
                     + "\n" + com.getMessage());
@@ -272,24 +423,32 @@ public class Main {
     }
 
     /** Prints out the ids of all commits that have the
-     * given commit message, one per line.
-     * @param args Array in format: {'find', commitMessage}
+     * given commit message, one per line. With --token, prints the
+     * commits whose messages contain all of the given words, answered
+     * from the message index; with --substring or --regex, prints the
+     * commits whose messages contain the given text or a match of the
+     * given regular expression.
+     * @param args Array in format: {'find', [mode,] commitMessage}
      */
     public static void find(String[] args) {
-        boolean found = false;
-        for (String c : OBJECTS.list()) {
-            if (!c.startsWith("c")) {
-                continue;
-            }
-            Commit com = Commit.fromFile(c);
-            if (com.getMessage().equals(args[1])) {
-                System.out.println(com.getSha1());
-                found = true;
-            }
+        List<ObjectId> found = null;
+        if (args.length == 2) {
+            found = _repo.find(Repository.FindMode.EXACT, args[1]);
+        } else if (args.length == 3 && args[1].equals("--token")) {
+            found = _repo.find(Repository.FindMode.TOKEN, args[2]);
+        } else if (args.length == 3 && args[1].equals("--substring")) {
+            found = _repo.find(Repository.FindMode.SUBSTRING, args[2]);
+        } else if (args.length == 3 && args[1].equals("--regex")) {
+            found = _repo.find(Repository.FindMode.REGEX, args[2]);
+        } else {
+            error("Incorrect operands.");
         }
-        if (!found) {
+        if (found.isEmpty()) {
             error("Found no commit with that message.");
         }
+        for (ObjectId id : found) {
+            System.out.println(id);
+        }
     }
 
     /** Displays what branches currently exist, and marks the current branch
@@ -298,643 +457,240 @@ public class Main {
      * @param args Array in format: {'status'}
      */
     public static void status(String[] args) {
-        System.out.println("=== Branches ===");
-        ArrayList<String> arrBranch = new ArrayList<>();
-        for (String b : BRANCH.list()) {
-            if (b.equals(_branch.getName())) {
-                System.out.println("*" + b);
+        int threshold = Renames.OFF;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("-M")) {
+                threshold = renameThreshold(args[i]);
             } else {
-                arrBranch.add(b);
+                error("Incorrect operands.");
             }
         }
-        Collections.sort(arrBranch);
-        for (String b : arrBranch) {
-            System.out.println(b);
+        Repository.Status st = _repo.status(threshold);
+        System.out.println("=== Branches ===");
+        System.out.println("*" + st.getCurrent());
+        for (String b : st.getBranches()) {
+            if (!b.equals(st.getCurrent())) {
+                System.out.println(b);
+            }
         }
         System.out.println("\n=== Staged Files ===");
-        for (String f : _stagingArea.getCurrStage().keySet()) {
-            System.out.println(f);
+        for (String f : st.getStaged()) {
+            System.out.println(f + renamedFrom(st, f));
         }
         System.out.println("\n=== Removed Files ===");
-        for (String f : _stagingArea.getRemoveStage().keySet()) {
+        for (String f : st.getRemoved()) {
             System.out.println(f);
         }
         System.out.println("\n=== Modifications Not Staged For Commit ===");
-        Commit curr = Commit.fromFile(_branch.getHead());
-        for (String f : curr.getBlobs().keySet()) {
-            if (Utils.join(CWD, f).exists()) {
-                if (!Blob.fromFile(curr.getBlobs().get(f)).
-                        equals(Utils.readContentsAsString(Utils.join(CWD, f)))
-                        && !_stagingArea.getCurrStage().containsKey(f)) {
-                    System.out.println(f + " (modified)");
-                }
-            }
-            if (!Utils.join(CWD, f).exists()) {
-                if (!_stagingArea.getRemoveStage().containsKey(f)) {
-                    System.out.println(f + " (deleted)");
-                }
-            }
-        }
-        for (String f : _stagingArea.getCurrStage().keySet()) {
-            if (!Blob.fromFile(_stagingArea.getCurrStage().get(f)).
-                    equals(Utils.readContentsAsString(Utils.join(CWD, f)))) {
-                if (Utils.join(CWD, f).exists()) {
-                    System.out.println(f + " (modified)");
-                }
-            }
-            if (!Utils.join(CWD, f).exists()) {
-                System.out.println(f + " (deleted)");
-            }
+        for (Map.Entry<String, String> e : st.getNotStaged().entrySet()) {
+            System.out.println(e.getKey() + " (" + e.getValue() + ")");
         }
         System.out.println("\n=== Untracked Files ===");
-        for (String f : CWD.list()) {
-            if (!f.startsWith(".") && !Utils.join(CWD, f).isDirectory()
-                    && !f.endsWith(".iml") && !f.equals("Makefile")
-                    && !curr.getBlobs().containsKey(f)
-                    && !_stagingArea.getCurrStage().containsKey(f)) {
-                System.out.println(f);
-            }
+        for (String f : st.getUntracked()) {
+            System.out.println(f + renamedFrom(st, f));
         }
         System.out.println();
     }
 
-
-
-    /** Checkout is a kind of general command that can do a few different things
-     *  depending on what its arguments are. There are 3 possible use cases.
-     * @param args Array in three possible formats:
-     *      {'checkout', '--', fileName}
-     *      {'checkout', commitId, '--', fileName}
-     *      {'checkout', branchName}
+    /** Return the note printed after the file F in the status ST if it
+     * was renamed, or nothing.
      */
-    public static void checkout(String[] args) throws IOException {
-        if (args.length == 2) {
-            checkout2(args);
-        } else if (args.length == 3) {
-            checkout3(args);
-        } else {
-            checkout4(args);
-        }
+    private static String renamedFrom(Repository.Status st, String f) {
+        String from = st.getRenamed().get(f);
+        return from == null ? "" : " (renamed from " + from + ")";
     }
 
-    /** Helper method for checkout with 3 args.
-     * @param args Array in format:
-     *             {'checkout', '--', fileName}
+    /** Return the rename threshold given by the option ARG, which is -M
+     * alone for the default or followed by a percentage.
      */
-    public static void checkout3(String[] args) throws IOException {
-        if (!args[1].equals("--")) {
-            error("Incorrect operands.");
+    private static int renameThreshold(String arg) {
+        if (arg.equals("-M")) {
+            return Renames.DEFAULT_THRESHOLD;
         }
-        Commit c = Commit.fromFile(_branch.getHead());
-        String content = null;
-        boolean contained = false;
-        if (c.getBlobs().containsKey(args[2])) {
-            contained = true;
-            content = Blob.fromFile(c.getBlobs().get(args[2]));
-        }
-        if (!contained) {
-            error("File does not exist in that commit.");
-        }
-        File f = Utils.join(CWD, args[2]);
-        f.createNewFile();
-        Utils.writeContents(f, content);
-
+        return Renames.parseThreshold(arg.substring(2));
     }
 
-    /** Helper method for checkout with 4 args.
-     * @param args Array in format:
-     *             {'checkout', commitId, '--', fileName}
+    /** Shows the changes between two commits as a unified diff, with
+     * three lines of context around each change. With no commits, shows
+     * the changes in the working directory that are not staged; with one,
+     * the changes in the working directory since that commit. Files named
+     * after -- limit the diff to those files. With --stat, prints the
+     * number of lines added and removed in each file instead. A removed
+     * and an added file that are similar enough are shown as a rename;
+     * -M sets how similar, as a percentage, and --no-renames turns this
+     * off.
+     * @param args Array in format: {'diff', ['--stat',] ['-M[n]',]
+     *             ['--no-renames',] [commitId, [commitId,]]
+     *             ['--', fileName...]}
      */
-    public static void checkout4(String[] args) throws IOException {
-        if (!args[2].equals("--")) {
-            error("Incorrect operands.");
-        }
-        boolean found = false;
-        Commit commit = null;
-        for (String c : OBJECTS.list()) {
-            if (c.startsWith(args[1])) {
-                found = true;
-                commit = Commit.fromFile(c);
-                break;
+    public static void diff(String[] args) {
+        boolean stat = false;
+        int threshold = Renames.threshold();
+        ArrayList<String> commits = new ArrayList<>();
+        ArrayList<String> paths = new ArrayList<>();
+        int i = 1;
+        for (; i < args.length && !args[i].equals("--"); i++) {
+            if (args[i].equals("--stat")) {
+                stat = true;
+            } else if (args[i].equals("--no-renames")) {
+                threshold = Renames.OFF;
+            } else if (args[i].startsWith("-M")) {
+                threshold = renameThreshold(args[i]);
+            } else {
+                commits.add(args[i]);
             }
         }
-        if (!found) {
-            error("No commit with that id exists.");
+        for (i += 1; i < args.length; i++) {
+            paths.add(args[i]);
         }
-        if (!commit.getBlobs().containsKey(args[3])) {
-            error("File does not exist in that commit.");
+        if (commits.size() > 2) {
+            error("Incorrect operands.");
         }
-        String content = Blob.fromFile(commit.getBlobs().get(args[3]));
-        File f = Utils.join(CWD, args[3]);
-        f.createNewFile();
-        Utils.writeContents(f, content);
-    }
-
-    /** Helper method for checkout with 3 args.
-     * @param args Array in format:
-     *             {'checkout', branchName}
-     */
-    public static void checkout2(String[] args) throws IOException {
-        String remoteBr = args[1].replace("/", "-");
-        if (!Arrays.asList(BRANCH.list()).contains(remoteBr)) {
-            error("No such branch exists.");
-        } else if (_branch.getName().equals(remoteBr)) {
-            error("No need to checkout the current branch.");
+        List<Repository.FileDiff> diffs = _repo.diffFiles(
+                commits.size() > 0 ? commits.get(0) : null,
+                commits.size() > 1 ? commits.get(1) : null, paths,
+                threshold);
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        if (stat) {
+            printStat(out, diffs);
         } else {
-            for (String f : CWD.list()) {
-                if (!f.startsWith(".") && !Commit.fromFile(_branch.getHead()).
-                        getBlobs().containsKey(f)
-                        && Commit.fromFile(Branch.fromFile(remoteBr).
-                                getHead()).getBlobs().containsKey(f)
-                        && !Blob.fromFile(Commit.fromFile(Branch.fromFile(
-                                remoteBr).getHead()).getBlobs().get(f)).equals(
-                                        Utils.readContentsAsString(
-                                                Utils.join(CWD, f)))) {
-                    error("There is an untracked file in the way; "
-                            + "delete it, or add and commit it first.");
-                }
+            for (Repository.FileDiff d : diffs) {
+                printPatch(out, d);
             }
-            HashMap<String, String> commits = Commit.fromFile(Branch.
-                    fromFile(remoteBr).getHead()).getBlobs();
-            for (String f : commits.keySet()) {
-                Utils.join(CWD, f).createNewFile();
-                Utils.writeContents(Utils.join(CWD, f),
-                        Blob.fromFile(commits.get(f)));
-            }
-            HashMap<String, String> prev = Commit.
-                    fromFile(_branch.getHead()).getBlobs();
-            for (String f : prev.keySet()) {
-                if (!commits.containsKey(f)) {
-                    Utils.join(CWD, f).delete();
-                }
-            }
-            _branch = Branch.fromFile(remoteBr);
-            Utils.writeContents(CURRENT_BRANCH, _branch.getName());
-        }
-        _stagingArea.getCurrStage().clear();
-        _stagingArea.update();
-        Stage stageArea = new Stage(_branch.getName());
-        stageArea.update();
-    }
-
-    /** Creates a new branch with the given name, and
-     * points it at the current head node.
-     * @param args Array in format: {'branch', branchName}
-     */
-    public static void branch(String[] args) throws IOException {
-        if (Arrays.asList(BRANCH.list()).contains(args[1])) {
-            error("A branch with that name already exists.");
         }
-        Branch newBr = new Branch(args[1], _branch.getHead());
-        newBr.changeCommits(_branch.getCommits());
-        newBr.saveBranch();
+        out.flush();
     }
 
-    /** Deletes the branch with the given name. This only means to
-     * delete the pointer associated with the branch; it does not
-     * mean to delete all commits that were created under the
-     * branch, or anything like that.
-     * @param args Array in format: {'rm-branch', branchName}
-     */
-    public static void rmBranch(String[] args) {
-        if (_branch.getName().equals(args[1])) {
-            error("Cannot remove the current branch.");
-        }
-        if (!Arrays.asList(BRANCH.list()).contains(args[1])) {
-            error("A branch with that name does not exist.");
-        }
-        Utils.join(BRANCH, args[1]).delete();
-        Utils.join(STAGE, args[1]).delete();
-
+    /** Print the change D to OUT as a unified diff. */
+    private static void printPatch(PrintWriter out, Repository.FileDiff d) {
+        String name = d.getName();
+        String oldName = d.getOldName();
+        out.print("diff --git a/" + oldName + " b/" + name + "\n");
+        if (d.getChange() == Repository.Change.ADDED) {
+            out.print("new file\n");
+        } else if (d.getChange() == Repository.Change.REMOVED) {
+            out.print("deleted file\n");
+        } else if (d.getChange() == Repository.Change.RENAMED) {
+            out.print("similarity index " + d.getSimilarity() + "%\n"
+                    + "rename from " + oldName + "\n"
+                    + "rename to " + name + "\n");
+            if (d.getOldId().equals(d.getNewId())) {
+                return;
+            }
+        }
+        if (Diff.isBinary(d.getOld()) || Diff.isBinary(d.getNew())) {
+            out.print("Binary files a/" + oldName + " and b/" + name
+                    + " differ\n");
+            return;
+        }
+        out.print("--- " + (d.getOldId() == null ? "/dev/null"
+                : "a/" + oldName) + "\n");
+        out.print("+++ " + (d.getNewId() == null ? "/dev/null"
+                : "b/" + name) + "\n");
+        out.print(Diff.unified(d.getOld(), d.getNew(),
+                Diff.diff(d.getOld(), d.getNew()), DIFF_CONTEXT));
     }
 
-    /** Checks out all the files tracked by the given commit.
-     * Removes tracked files that are not present in that
-     * commit. Also moves the current branch's head to that
-     * commit node.
-     * @param args Array in format: {'reset', commitId}
+    /** Print to OUT the number of lines added and removed by each change
+     * in DIFFS, with a bar of +s and -s, followed by the totals.
      */
-    public static void reset(String[] args) throws IOException {
-        boolean found = false;
-        Commit commit = null;
-        for (String c : OBJECTS.list()) {
-            if (c.startsWith(args[1])) {
-                found = true;
-                commit = Commit.fromFile(c);
-                break;
-            }
-        }
-        if (!found) {
-            error("No commit with that id exists.");
-        }
-        for (String f : CWD.list()) {
-            if (!f.startsWith(".")
-                    && !Commit.fromFile(_branch.getHead()).
-                    getBlobs().containsKey(f)
-                    && commit.getBlobs().containsKey(f)
-                    && !Blob.fromFile(commit.getBlobs().get(f)).
-                    equals(Utils.readContentsAsString(Utils.join(CWD, f)))) {
-                error("There is an untracked file in the way; "
-                        + "delete it, or add and commit it first.");
-            }
-        }
-        for (File file : CWD.listFiles()) {
-            if (!file.isHidden()
-                    && !file.getName().equals("Makefile")
-                    && !file.getName().endsWith(".iml")) {
-                file.delete();
-            }
-        }
-        HashMap<String, String> commits = commit.getBlobs();
-        for (String f : commits.keySet()) {
-            Utils.join(CWD, f).createNewFile();
-            Utils.writeContents(Utils.join(CWD, f),
-                    Blob.fromFile(commits.get(f)));
-        }
-        _stagingArea.getCurrStage().clear();
-        _stagingArea.update();
-        if (!_branch.getCommits().contains(commit.getSha1())) {
-            _branch.changeHead(commit.getSha1());
-        } else {
-            int index = _branch.getCommits().indexOf(commit.getSha1());
-            int j = _branch.getCommits().size();
-            for (int i = index + 1; i < j; i++) {
-                _branch.getCommits().remove(i);
+    private static void printStat(PrintWriter out,
+                                  List<Repository.FileDiff> diffs) {
+        int[] added = new int[diffs.size()];
+        int[] removed = new int[diffs.size()];
+        boolean[] binary = new boolean[diffs.size()];
+        int width = 0;
+        int most = 0;
+        for (int i = 0; i < diffs.size(); i++) {
+            Repository.FileDiff d = diffs.get(i);
+            width = Math.max(width, statName(d).length());
+            binary[i] = Diff.isBinary(d.getOld()) || Diff.isBinary(d.getNew());
+            if (!binary[i]) {
+                List<Diff.Edit> edits = Diff.diff(d.getOld(), d.getNew());
+                added[i] = Diff.insertions(edits);
+                removed[i] = Diff.deletions(edits);
+                most = Math.max(most, added[i] + removed[i]);
+            }
+        }
+        int digits = Integer.toString(most).length();
+        int totalAdded = 0;
+        int totalRemoved = 0;
+        for (int i = 0; i < diffs.size(); i++) {
+            String name = String.format("%-" + width + "s",
+                    statName(diffs.get(i)));
+            if (binary[i]) {
+                out.print(" " + name + " | Bin\n");
+                continue;
             }
-            _branch.setHead(commit.getSha1());
-        }
-        _branch.saveBranch();
-
+            int plus = scale(added[i], most);
+            int minus = scale(removed[i], most);
+            out.print(" " + name + " | "
+                    + String.format("%" + digits + "d", added[i] + removed[i])
+                    + " " + "+".repeat(plus) + "-".repeat(minus) + "\n");
+            totalAdded += added[i];
+            totalRemoved += removed[i];
+        }
+        StringBuilder summary = new StringBuilder();
+        summary.append(" ").append(diffs.size())
+            .append(diffs.size() == 1 ? " file changed" : " files changed");
+        if (totalAdded > 0 || totalRemoved == 0) {
+            summary.append(", ").append(totalAdded).append(totalAdded == 1
+                    ? " insertion(+)" : " insertions(+)");
+        }
+        if (totalRemoved > 0 || totalAdded == 0) {
+            summary.append(", ").append(totalRemoved).append(totalRemoved
+                    == 1 ? " deletion(-)" : " deletions(-)");
+        }
+        out.print(summary.append("\n"));
     }
 
-    /** Merges files from the given branch into the current branch.
-     * @param args Array in format: {'merge', branchName}
-     */
-    public static void merge(String[] args) throws IOException {
-        if (!_stagingArea.getRemoveStage().isEmpty()
-                || !_stagingArea.getCurrStage().isEmpty()) {
-            error("You have uncommitted changes.");
-        }
-        if (!Arrays.asList(BRANCH.list()).contains(args[1])) {
-            error("A branch with that name does not exist.");
-        }
-        if (_branch.getName().equals(args[1])) {
-            error("Cannot merge a branch with itself.");
-        }
-        Branch mergeBr = Branch.fromFile(args[1]);
-        Commit mergeCom = Commit.fromFile(mergeBr.getHead());
-        for (String f : mergeCom.getBlobs().keySet()) {
-            if (!f.startsWith(".") && !Commit.fromFile(_branch.getHead()).
-                    getBlobs().containsKey(f) && Utils.join(CWD, f).exists()
-                    && !Blob.fromFile(mergeCom.getBlobs().get(f)).
-                    equals(Utils.readContentsAsString(Utils.join(CWD, f)))) {
-                error("There is an untracked file in the way; "
-                        + "delete it, or add and commit it first.");
-            }
-        }
-        String splitPoint = findSplit(args[1]);
-        if (mergeBr.getHead().equals(splitPoint)) {
-            error("Given branch is an ancestor of the current branch.");
-        }
-        if (_branch.getHead().equals(splitPoint)) {
-            checkout2(new String[]{"checkout", args[1]});
-            error("Current branch fast-forwarded.");
-        }
-        HashMap<String, String> mergeFile =
-                Commit.fromFile(mergeBr.getHead()).getBlobs();
-        HashMap<String, String> splitFile =
-                Commit.fromFile(splitPoint).getBlobs();
-        HashMap<String, String> currFile =
-                Commit.fromFile(_branch.getHead()).getBlobs();
-        HashMap<String, String> allFile = new HashMap<>();
-        allFile.putAll(mergeFile);
-        allFile.putAll(splitFile);
-        allFile.putAll(currFile);
-        help(allFile, splitFile, mergeFile, currFile, splitPoint, mergeBr);
-        String rmBranch = args[1].replace("-", "/");
-        Commit mergedCom = new Commit("Merged " + rmBranch + " into "
-                + _branch.getName() + ".",
-                _branch.getHead(), mergeBr.getHead());
-        mergedCom.commit(_stagingArea);
-        _branch.changeHead(mergedCom.getSha1());
-        _stagingArea.getRemoveStage().clear();
-        _stagingArea.getCurrStage().clear();
-        _stagingArea.update();
-        for (File file : CWD.listFiles()) {
-            if (mergedCom.getBlobs() != null && !mergedCom.
-                    getBlobs().containsKey(file.getName())
-                    && !file.isHidden() && !file.isDirectory()
-                    && !file.getName().equals("Makefile")
-                    && !file.getName().endsWith(".iml")) {
-                file.delete();
-            }
+    /** Return the name shown for the change D by diff --stat. */
+    private static String statName(Repository.FileDiff d) {
+        if (d.getChange() == Repository.Change.RENAMED) {
+            return d.getOldName() + " => " + d.getName();
         }
+        return d.getName();
     }
 
-    /** Helper method for merge. Take in HashMap ALLFILE, SPLITFILE,
-     * MERGEFILE, and CURRFILE, String SPLITPOINT, and Branch MERGEBR.
+    /** Return the length of the bar for COUNT lines when the largest
+     * count shown is MOST.
      */
-    public static void help(HashMap<String, String> allFile,
-                            HashMap<String, String> splitFile,
-                            HashMap<String, String> mergeFile,
-                            HashMap<String, String> currFile,
-                            String splitPoint, Branch mergeBr
-                            ) throws IOException {
-        Boolean conflict = false;
-        for (String f : allFile.keySet()) {
-            if (splitFile.containsKey(f)) {
-                if (mergeFile.containsKey(f) && currFile.containsKey(f)
-                        && checkModified(f, splitPoint, mergeBr.getHead())
-                        && !checkModified(f, splitPoint, _branch.getHead())) {
-                    checkout4(new String[]{"checkout",
-                            mergeBr.getHead(), "--", f});
-                    Blob b = new Blob(Utils.join(CWD, f));
-                    _stagingArea.put(f, b.getName());
-                } else if (currFile.containsKey(f) && !checkModified(f,
-                        splitPoint, _branch.getHead())
-                        && !mergeFile.containsKey(f)) {
-                    rm(new String[]{"rm", f});
-                }
-            } else {
-                if (!currFile.containsKey(f) && mergeFile.containsKey(f)) {
-                    checkout4(new String[]{"checkout",
-                            mergeBr.getHead(), "--", f});
-                    Blob b = new Blob(Utils.join(CWD, f));
-                    _stagingArea.put(f, b.getName());
-                }
-            }
-            if (checkConflict(f, _branch.getHead(), mergeBr.getHead(),
-                    splitPoint, mergeFile, splitFile, currFile)) {
-                conflict = true;
-                String current = currFile.containsKey(f)
-                        ? Blob.fromFile(currFile.get(f))
-                        : "";
-                String merge = mergeFile.containsKey(f)
-                        ? Blob.fromFile(mergeFile.get(f))
-                        : "";
-                String content = "<<<<<<< HEAD\n"
-                        + current + "=======\n"
-                        + merge + ">>>>>>>\n";
-                Utils.join(CWD, f).createNewFile();
-                Utils.writeContents(Utils.join(CWD, f), content);
-                Blob b = new Blob(Utils.join(CWD, f));
-                _stagingArea.put(f, b.getName());
-            }
-        }
-        if (conflict) {
-            System.out.println("Encountered a merge conflict.");
+    private static int scale(int count, int most) {
+        if (most <= STAT_WIDTH || count == 0) {
+            return count;
         }
+        return Math.max(1, count * STAT_WIDTH / most);
     }
 
-    /** Helper method for finding a split point.
-     * Take in MERGEBRANCH. Return sha1 of the commit. */
-    public static String findSplit(String mergeBranch) {
-        HashMap<String, Integer> split = new HashMap<>();
-        Branch mB = Branch.fromFile(mergeBranch);
-        for (String com : mB.getCommits()) {
-            if (Commit.fromFile(com).isMerged()) {
-                if (_branch.getCommits().contains(
-                        Commit.fromFile(com).getParent2())) {
-                    split.put(com, 1);
-                    continue;
-                }
-            }
-            if (_branch.getCommits().contains(com)) {
-                split.put(com, 0);
-            }
-        }
-        for (String com : _branch.getCommits()) {
-            if (Commit.fromFile(com).isMerged()) {
-                if (mB.getCommits().contains(
-                        Commit.fromFile(com).getParent2())) {
-                    split.put(com, 1);
-                    continue;
-                }
-            }
-            if (mB.getCommits().contains(com)) {
-                split.put(com, 0);
-            }
-        }
-        HashMap<String, Integer> result = new HashMap<>();
-        for (String com : split.keySet()) {
-            Commit c = Commit.fromFile(com);
-            int dist;
-            if (c.isMerged()) {
-                dist = calcDist(com, c, mB);
-                result.put(c.getParent2(), dist);
-            } else {
-                dist = Math.min(_branch.getCommits().size() - 1
-                                - _branch.getCommits().indexOf(com),
-                        mB.getCommits().size() - 1
-                                - mB.getCommits().indexOf(com));
-                result.put(com, dist);
-            }
-        }
-        int min = Collections.min(result.values());
-        String splitPoint = "";
-        for (String point : result.keySet()) {
-            if (result.get(point) == min) {
-                splitPoint = point;
-                break;
-            }
-        }
-        return splitPoint;
-    }
-
-    /** Helper method for calculating distance. Take in String COM,
-     * Commit C, and Branch MB. Return the distance.
-     */
-    public static int calcDist(String com, Commit c, Branch mB) {
-        int dist;
-        if (_branch.getCommits().contains(com)) {
-            dist = Math.min(_branch.getCommits().size()
-                            - _branch.getCommits().indexOf(com),
-                    mB.getCommits().size() - 1
-                            - mB.getCommits().indexOf(c.getParent2()));
-        } else {
-            dist = Math.min(mB.getCommits().size()
-                            - mB.getCommits().indexOf(com),
-                    _branch.getCommits().size() - 1
-                            - _branch.getCommits().
-                            indexOf(c.getParent2()));
-        }
-        return dist;
-    }
-
-    /** Helper method for checking modified. Take in file F,
-     * commit COM1, and commit COM2. Return whether it's modified.
-     */
-    public static boolean checkModified(String f, String com1, String com2) {
-        String content1 = Blob.fromFile(
-                Commit.fromFile(com1).getBlobs().get(f));
-        String content2 = Blob.fromFile(
-                Commit.fromFile(com2).getBlobs().get(f));
-        return !content1.equals(content2);
-    }
-
-    /** Helper method for checking conflict. Take in file F,
-     * commit CURRCOM, commit MERGECOM, commit SPLITCOM, HashMap M,
-     * HashMap S, and HashMap C. Return whether there is conflict.
+    /** Checkout is a kind of general command that can do a few different things
+     *  depending on what its arguments are. There are 3 possible use cases.
+     * @param args Array in three possible formats:
+     *      {'checkout', '--', fileName}
+     *      {'checkout', commitId, '--', fileName}
+     *      {'checkout', branchName}
      */
-    public static boolean checkConflict(String f, String currCom,
-                                        String mergeCom, String splitCom,
-                                        HashMap<String, String> m,
-                                        HashMap<String, String> s,
-                                        HashMap<String, String> c) {
-        if (c.containsKey(f)
-                && s.containsKey(f) && m.containsKey(f)) {
-            if (checkModified(f, splitCom, currCom)
-                    && checkModified(f, splitCom, mergeCom)
-                    && checkModified(f, currCom, mergeCom)) {
-                return true;
-            }
-        }
-        if (c.containsKey(f)
-                && s.containsKey(f) && !m.containsKey(f)) {
-            if (checkModified(f, splitCom, currCom)) {
-                return true;
-            }
-        }
-        if (!c.containsKey(f)
-                && s.containsKey(f) && m.containsKey(f)) {
-            if (checkModified(f, splitCom, mergeCom)) {
-                return true;
-            }
-        }
-        if (c.containsKey(f)
-                && !s.containsKey(f) && m.containsKey(f)) {
-            if (checkModified(f, mergeCom, currCom)) {
-                return true;
+    public static void checkout(String[] args) throws IOException {
+        if (args.length == 2) {
+            _repo.checkoutBranch(args[1]);
+        } else if (args.length == 3) {
+            if (!args[1].equals("--")) {
+                error("Incorrect operands.");
             }
-        }
-        return false;
-    }
-
-    /** Saves the given login information under the given remote name.
-     * Attempts to push or pull from the given remote name will then
-     * attempt to use this .gitlet directory.
-     * @param args Array in format: {'add-remote', remoteName,
-     *             remoteDirectoryName/.gitlet}
-     */
-    public static void addRemote(String[] args) throws IOException {
-        String remoteName = args[1];
-        String remoteDir = args[2];
-        File f = Utils.join(REMOTE, remoteName);
-        if (f.exists()) {
-            error("A remote with that name already exists.");
-        } else {
-            new Remote(remoteName, remoteDir);
-        }
-    }
-
-    /** Remove information associated with the given remote name.
-     * The idea here is that if you ever wanted to change a remote
-     * that you added, you would have to first remove it
-     * and then re-add it.
-     * @param args Array in format: {'rm-remote', remoteName}
-     */
-    public static void rmRemote(String[] args) {
-        File f = Utils.join(REMOTE, args[1]);
-        if (!f.exists()) {
-            error("A remote with that name does not exist.");
-        }
-        f.delete();
-    }
-
-    /** Attempts to append the current branch's commits to the end
-     * of the given branch at the given remote.
-     * @param args Array in format: {'push', remoteName, remoteBranchName}
-     */
-    public static void push(String[] args) throws IOException {
-        Remote remote = Remote.fromFile(args[1]);
-        if (!remote.getRepo().exists()) {
-            error("Remote directory not found.");
-        }
-        Commit com = Commit.fromFile(_branch.getHead());
-        HashMap<String, String> rmFiles = com.getBlobs();
-        Branch rmBranch;
-        if (!Utils.join(remote.getBranch(), args[2]).exists()) {
-            rmBranch = new Branch(args[2], _branch.getHead());
-            rmBranch.changeCommits(_branch.getCommits());
-            Utils.join(remote.getBranch(), args[2]).createNewFile();
+            _repo.checkoutFile(args[2]);
         } else {
-            rmBranch = remote.branchFromFile(args[2]);
-            if (!_branch.getCommits().contains(rmBranch.getHead())) {
-                error("Please pull down remote changes before pushing.");
-            }
-            int index = _branch.getCommits().indexOf(rmBranch.getHead());
-            for (int i = index + 1; i < _branch.getCommits().size(); i++) {
-                rmBranch.getCommits().add(_branch.getCommits().get(i));
+            if (!args[2].equals("--")) {
+                error("Incorrect operands.");
             }
+            _repo.checkoutFile(args[1], args[3]);
         }
-        rmBranch.changeHead(_branch.getHead());
-        Utils.writeObject(Utils.join(remote.getBranch(), args[2]), rmBranch);
-        for (String c : rmBranch.getCommits()) {
-            Utils.writeObject(Utils.join(remote.getObject(), c),
-                    Commit.fromFile(c));
-        }
-        if (remote.getCwd().list() != null) {
-            for (File f : remote.getCwd().listFiles()) {
-                if (!f.isHidden()
-                        && !f.getName().equals("Makefile")
-                        && !f.getName().endsWith(".iml")) {
-                    f.delete();
-                }
-            }
-        }
-        for (String name : rmFiles.keySet()) {
-            Utils.join(remote.getCwd(), name).createNewFile();
-            Utils.writeContents(Utils.join(
-                    remote.getCwd(), name), rmFiles.get(name));
-        }
-
     }
 
-    /** Brings down commits from the remote Gitlet repository into
-     * the local Gitlet repository.
-     * @param args Array in format: {'fetch',
-     *             remoteName, remoteBranchName}
+    /** Abandon the current command with the error MESSAGE, which main
+     * prints before exiting with code 0.
      */
-    public static void fetch(String[] args) throws IOException {
-        Remote remote = Remote.fromFile(args[1]);
-        if (!remote.getRepo().exists()) {
-            error("Remote directory not found.");
-        }
-        if (!Utils.join(remote.getBranch(), args[2]).exists()) {
-            error("That remote does not have that branch.");
-        }
-        Branch rmBranch = remote.branchFromFile(args[2]);
-        rmBranch.changeName(args[1] + "-" + args[2]);
-        rmBranch.saveBranch();
-        for (String c : rmBranch.getCommits()) {
-            Utils.join(OBJECTS, c).createNewFile();
-            Utils.writeObject(Utils.join(OBJECTS, c), remote.commitFromFile(c));
-        }
-        for (String c : rmBranch.getCommits()) {
-            for (String b : remote.commitFromFile(c).getBlobs().values()) {
-                Utils.join(OBJECTS, b).createNewFile();
-                Utils.writeObject(Utils.join(OBJECTS, b),
-                        remote.blobFromFile(b));
-            }
-        }
-        Stage rmStage = remote.stageFromFile(args[2]);
-        Utils.join(STAGE, args[1] + "-" + args[2]).createNewFile();
-        Utils.writeObject(Utils.join(STAGE, args[1] + "-" + args[2]), rmStage);
-    }
-
-    /** Fetches branch [remote name]/[remote branch name] as for the
-     * fetch command, and then merges that fetch into the current branch.
-     * @param args Array in format: {'pull', remoteName, remoteBranchName}
-     */
-    public static void pull(String[] args) throws IOException {
-        fetch(new String[]{"fetch", args[1], args[2]});
-        merge(new String[]{"merge", args[1] + "-" + args[2]});
-    }
-
-    /** Print out error MESSAGE and exit with code 0. */
     public static void error(String message) {
-        Utils.message(message);
-        System.exit(0);
+        throw Utils.error("%s", message);
     }
 
 }
@@ -0,0 +1,106 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Writes blobs out to a working directory on Workers threads.
+ * In atomic mode every file is first written to a temporary file next
+ * to its destination, and only renamed into place once all of them have
+ * been written, so a failed checkout leaves the working files untouched.
+ * @author Jason Ding
+ */
+class Materializer {
+
+    /** Environment variable holding the maximum number of writer
+     * threads, overriding GITLET_JOBS for checkouts.
+     */
+    static final String JOBS_ENV = "GITLET_CHECKOUT_JOBS";
+    /** Environment variable that turns on atomic mode when "true". */
+    static final String ATOMIC_ENV = "GITLET_CHECKOUT_ATOMIC";
+
+    /** The repository the blobs are read from. */
+    private Context _ctx;
+    /** The directory that files are written into. */
+    private File _dir;
+    /** The maximum number of writer threads. */
+    private int _jobs;
+    /** Whether writes are all-or-nothing. */
+    private boolean _atomic;
+
+    /** A materializer writing blobs of the repository CTX into its
+     * working directory with at most JOBS threads, which stages all
+     * writes before renaming them if ATOMIC.
+     */
+    Materializer(Context ctx, int jobs, boolean atomic) {
+        _ctx = ctx;
+        _dir = ctx.getCwd();
+        _jobs = Math.max(1, jobs);
+        _atomic = atomic;
+    }
+
+    /** Return a materializer writing into the working directory of the
+     * repository CTX, configured from the GITLET_CHECKOUT_JOBS (or else
+     * GITLET_JOBS) and GITLET_CHECKOUT_ATOMIC variables.
+     */
+    static Materializer fromEnvironment(Context ctx) {
+        return new Materializer(ctx, Workers.jobs(JOBS_ENV),
+                "true".equals(System.getenv(ATOMIC_ENV)));
+    }
+
+    /** Write each file in FILES, a map from file names to blobs. */
+    void write(Map<String, ObjectId> files) {
+        ArrayList<String> names = new ArrayList<>(files.keySet());
+        ArrayList<File> staged = new ArrayList<>();
+        for (String name : names) {
+            File dest = Utils.join(_dir, name);
+            staged.add(_atomic ? Utils.join(dest.getParentFile(),
+                    "." + dest.getName() + ".gitlet-tmp") : dest);
+        }
+        try {
+            run(names, files, staged);
+        } catch (RuntimeException excp) {
+            if (_atomic) {
+                for (File f : staged) {
+                    f.delete();
+                }
+            }
+            throw excp;
+        }
+        if (_atomic) {
+            for (int i = 0; i < names.size(); i++) {
+                try {
+                    Files.move(staged.get(i).toPath(),
+                            Utils.join(_dir, names.get(i)).toPath(),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Write the blob FILES maps each of NAMES to into the corresponding
+     * file in TARGETS, in parallel when there are enough of them.
+     */
+    private void run(List<String> names, Map<String, ObjectId> files,
+                     List<File> targets) {
+        ArrayList<Integer> indices = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            indices.add(i);
+        }
+        Workers.forEach(indices, _jobs,
+                i -> writeOne(files.get(names.get(i)), targets.get(i)));
+    }
+
+    /** Write the contents of BLOB to TARGET. */
+    private void writeOne(ObjectId blob, File target) {
+        Utils.writeContents(target, (Object) Blob.bytesFromFile(_ctx, blob));
+    }
+
+}
@@ -0,0 +1,80 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of writing blobs out to the working directory.
+ * @author Jason Ding
+ */
+public class MaterializerTest {
+
+    /** Number of files written by each test. */
+    private static final int FILES = 200;
+
+    /** Store FILES blobs in CTX and return them by the file names they
+     * are written to, each file holding its own name and TAG.
+     */
+    private static Map<String, ObjectId> blobs(Context ctx, String tag)
+        throws IOException {
+        HashMap<String, ObjectId> files = new HashMap<>();
+        for (int i = 0; i < FILES; i++) {
+            String name = "file" + i;
+            files.put(name, new Blob(ctx, (name + " " + tag + "\n")
+                    .getBytes(StandardCharsets.UTF_8)).getName());
+        }
+        return files;
+    }
+
+    /** Check that the files of the working directory of CTX hold TAG,
+     * and that nothing else is there.
+     */
+    private static void check(Context ctx, String tag) {
+        for (int i = 0; i < FILES; i++) {
+            File f = Utils.join(ctx.getCwd(), "file" + i);
+            assertEquals("file" + i + " " + tag + "\n",
+                    Utils.readContentsAsString(f));
+        }
+        for (String name : ctx.getCwd().list()) {
+            assertTrue(name, name.startsWith("file")
+                    || name.equals(Context.REPO_NAME));
+        }
+    }
+
+    @Test
+    public void writesEveryFileOnManyThreads() throws IOException {
+        Context ctx = UnitTest.tempRepository();
+        new Materializer(ctx, 8, false).write(blobs(ctx, "a"));
+        check(ctx, "a");
+        new Materializer(ctx, 1, false).write(blobs(ctx, "b"));
+        check(ctx, "b");
+    }
+
+    @Test
+    public void atomicWriteReplacesEveryFile() throws IOException {
+        Context ctx = UnitTest.tempRepository();
+        new Materializer(ctx, 4, false).write(blobs(ctx, "a"));
+        new Materializer(ctx, 4, true).write(blobs(ctx, "b"));
+        check(ctx, "b");
+    }
+
+    @Test
+    public void failedAtomicWriteChangesNothing() throws IOException {
+        Context ctx = UnitTest.tempRepository();
+        new Materializer(ctx, 4, false).write(blobs(ctx, "a"));
+        Map<String, ObjectId> next = blobs(ctx, "b");
+        next.put("file7", ObjectId.ofBlob("never stored\n"));
+        try {
+            new Materializer(ctx, 4, true).write(next);
+            fail("missing blob written");
+        } catch (IllegalArgumentException excp) {
+            check(ctx, "a");
+        }
+    }
+
+}
@@ -0,0 +1,305 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of merges between branches.
+ * @author Jason Ding
+ */
+public class MergeTest {
+
+    /** Number of files in the merges of many files. */
+    private static final int FILES = 200;
+    /** Number of files the side branch adds in those merges. */
+    private static final int ADDED = 20;
+
+    /** Return TEXT as UTF-8 with the bytes 0xff 0xfe, which are not
+     * UTF-8, put in place of each '#'.
+     */
+    private static byte[] latin(String text) {
+        byte[] utf = text.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[utf.length * 2];
+        int n = 0;
+        for (byte b : utf) {
+            if (b == '#') {
+                out[n++] = (byte) 0xff;
+                out[n++] = (byte) 0xfe;
+            } else {
+                out[n++] = b;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** Write CONTENTS to NAME in REPO and commit it with MESSAGE. */
+    private static void commitBytes(Repository repo, String name,
+                                    byte[] contents, String message)
+        throws IOException {
+        Utils.writeContents(Utils.join(repo.getWorkingDirectory(), name),
+                (Object) contents);
+        repo.add(name);
+        repo.commit(message);
+    }
+
+    /** Return the name of file number I. */
+    private static String name(int i) {
+        return String.format("f%03d.txt", i);
+    }
+
+    /** Return the contents of a file with FIRST and LAST around three
+     * lines that never change.
+     */
+    private static String file(String first, String last) {
+        return first + "\nb\nc\nd\n" + last + "\n";
+    }
+
+    /** Return file number I at the split point. */
+    private static String base(int i) {
+        return file("base " + i, "base " + i);
+    }
+
+    /** Return file number I on master, which changes the first line of
+     * the even files.
+     */
+    private static String ours(int i) {
+        return i % 2 == 0 ? file("master " + i, "base " + i) : base(i);
+    }
+
+    /** Return file number I on side, which changes the first line of
+     * every fifth file and the last line of every third, or null if side
+     * deletes it, which it does to every fourteenth, all of which master
+     * leaves alone.
+     */
+    private static String theirs(int i) {
+        if (i % 14 == 1) {
+            return null;
+        }
+        return file(i % 5 == 0 ? "side " + i : "base " + i,
+                i % 3 == 0 ? "side " + i : "base " + i);
+    }
+
+    /** Return file number I once merged, or null if it is deleted.
+     * Files whose first lines both sides changed hold conflicts.
+     */
+    private static String merged(int i) {
+        if (theirs(i) == null) {
+            return null;
+        }
+        if (i % 10 == 0) {
+            return "<<<<<<< HEAD\nmaster " + i + "\n=======\nside " + i
+                    + "\n>>>>>>>\nb\nc\nd\n" + (i % 3 == 0 ? "side " : "base ")
+                    + i + "\n";
+        }
+        return file(i % 2 == 0 ? "master " + i
+                        : i % 5 == 0 ? "side " + i : "base " + i,
+                i % 3 == 0 ? "side " + i : "base " + i);
+    }
+
+    /** Commit FILES files to REPO, then change them on master as ours
+     * says and on a new branch side as theirs says, side also adding
+     * ADDED files. Leave master checked out.
+     */
+    private static void diverge(Repository repo) throws IOException {
+        for (int i = 0; i < FILES; i++) {
+            UnitTest.write(repo, name(i), base(i));
+            repo.add(name(i));
+        }
+        repo.commit("base");
+        repo.branch("side");
+        for (int i = 0; i < FILES; i += 2) {
+            UnitTest.write(repo, name(i), ours(i));
+            repo.add(name(i));
+        }
+        repo.commit("ours");
+        repo.checkoutBranch("side");
+        for (int i = 0; i < FILES; i++) {
+            if (theirs(i) == null) {
+                repo.rm(name(i));
+            } else if (!theirs(i).equals(base(i))) {
+                UnitTest.write(repo, name(i), theirs(i));
+                repo.add(name(i));
+            }
+        }
+        for (int i = FILES; i < FILES + ADDED; i++) {
+            UnitTest.write(repo, name(i), "new " + i + "\n");
+            repo.add(name(i));
+        }
+        repo.commit("theirs");
+        repo.checkoutBranch("master");
+    }
+
+    /** Return the contents of the files in the working directory of
+     * REPO, by name.
+     */
+    private static Map<String, String> workingFiles(Repository repo) {
+        HashMap<String, String> result = new HashMap<>();
+        for (String f : Utils.plainFilenamesIn(repo.getWorkingDirectory())) {
+            result.put(f, Utils.readContentsAsString(
+                    Utils.join(repo.getWorkingDirectory(), f)));
+        }
+        return result;
+    }
+
+    @Test
+    public void mergeKeepsBytesThatAreNotUtf8() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        commitBytes(repo, "a.bin", latin("one\n#two\nthree\n"), "base");
+        repo.branch("other");
+        commitBytes(repo, "a.bin", latin("ONE\n#two\nthree\n"), "ours");
+        repo.checkoutBranch("other");
+        commitBytes(repo, "a.bin", latin("one\n#two\nTHREE#\n"), "theirs");
+        repo.checkoutBranch("master");
+
+        assertEquals(Repository.MergeResult.MERGED, repo.merge("other"));
+        byte[] expected = latin("ONE\n#two\nTHREE#\n");
+        File f = Utils.join(repo.getWorkingDirectory(), "a.bin");
+        assertArrayEquals(expected, Utils.readContents(f));
+        ObjectId merged = Commit.fromFile(repo.context(), repo.head())
+                .getFiles().get("a.bin");
+        assertEquals(ObjectId.ofBlob(expected), merged);
+        assertArrayEquals(expected,
+                Blob.bytesFromFile(repo.context(), merged));
+        assertEquals(0, repo.status().getNotStaged().size());
+        assertEquals(0, repo.fsck().getProblems().size());
+    }
+
+    @Test
+    public void mergeOfManyFilesResolvesEachOne() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        diverge(repo);
+        ObjectId ours = repo.head();
+        ObjectId theirs = Branch.fromFile(repo.context(), "side").getHead();
+        assertEquals(Repository.MergeResult.CONFLICT, repo.merge("side"));
+
+        Commit c = Commit.fromFile(repo.context(), repo.head());
+        assertEquals(ours, c.getParent1());
+        assertEquals(theirs, c.getParent2());
+        assertEquals("Merged side into master.", c.getMessage());
+        PathTable files = c.getFiles();
+        for (int i = 0; i < FILES + ADDED; i++) {
+            String expected = i < FILES ? merged(i) : "new " + i + "\n";
+            File wf = Utils.join(repo.getWorkingDirectory(), name(i));
+            if (expected == null) {
+                assertFalse(name(i), files.contains(name(i)));
+                assertFalse(name(i), wf.exists());
+            } else {
+                assertEquals(name(i), ObjectId.ofBlob(expected),
+                        files.get(name(i)));
+                assertEquals(name(i), expected,
+                        Utils.readContentsAsString(wf));
+            }
+        }
+        assertEquals(0, repo.status().getNotStaged().size());
+        assertEquals(0, repo.fsck().getProblems().size());
+    }
+
+    @Test
+    public void mergeIsTheSameOnAnyNumberOfThreads() throws IOException {
+        Map<String, ObjectId> first = null;
+        String firstOut = null;
+        for (String jobs : new String[] {"1", "8"}) {
+            Repository repo = UnitTest.newRepository();
+            diverge(repo);
+            String[] out = UnitTest.gitlet(repo.getWorkingDirectory(),
+                    Map.of(Workers.JOBS_ENV, jobs), "merge", "side");
+            assertEquals("", out[1]);
+            repo = Repository.open(repo.getWorkingDirectory());
+            Map<String, ObjectId> files =
+                    Commit.fromFile(repo.context(), repo.head())
+                    .getFiles().toMap();
+            if (first == null) {
+                first = files;
+                firstOut = out[0];
+            } else {
+                assertEquals(first, files);
+                assertEquals(firstOut, out[0]);
+            }
+        }
+        assertEquals("Encountered a merge conflict.\n", firstOut);
+    }
+
+    @Test
+    public void mergeTreeLeavesTheWorkingDirectoryAlone() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        diverge(repo);
+        ObjectId ours = repo.head();
+        ObjectId theirs = Branch.fromFile(repo.context(), "side").getHead();
+        repo.branch("work");
+        repo.checkoutBranch("work");
+        UnitTest.write(repo, "stray.txt", "stray\n");
+        Map<String, String> before = workingFiles(repo);
+
+        Repository.MergeTree m = repo.mergeTree("master", "side");
+        assertEquals(Repository.MergeResult.CONFLICT, m.getResult());
+        List<String> conflicts = new ArrayList<>();
+        for (int i = 0; i < FILES; i += 10) {
+            conflicts.add(name(i));
+        }
+        assertEquals(conflicts, m.getConflicts());
+        assertEquals(m.getHead(),
+                Branch.fromFile(repo.context(), "master").getHead());
+        Commit c = Commit.fromFile(repo.context(), m.getHead());
+        assertEquals(ours, c.getParent1());
+        assertEquals(theirs, c.getParent2());
+        assertEquals("Merged side into master.", c.getMessage());
+        for (int i = 0; i < FILES + ADDED; i++) {
+            String expected = i < FILES ? merged(i) : "new " + i + "\n";
+            assertEquals(name(i), expected == null ? null
+                    : ObjectId.ofBlob(expected), c.getFiles().get(name(i)));
+        }
+
+        assertEquals(before, workingFiles(repo));
+        assertEquals("work", repo.currentBranch());
+        assertEquals(ours, repo.head());
+        Repository.Status st = repo.status();
+        assertTrue(st.getStaged().isEmpty());
+        assertTrue(st.getNotStaged().isEmpty());
+        assertEquals(List.of("stray.txt"), st.getUntracked());
+        assertEquals(0, repo.fsck().getProblems().size());
+    }
+
+    @Test
+    public void mergeTreeMovesOnlyTheBranchNamed() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        UnitTest.commit(repo, "a.txt", "a\n", "a");
+        repo.branch("behind");
+        repo.branch("ahead");
+        repo.checkoutBranch("ahead");
+        ObjectId ahead = UnitTest.commit(repo, "b.txt", "b\n", "b")
+                .getSha1();
+        repo.checkoutBranch("master");
+        ObjectId master = repo.head();
+
+        Repository.MergeTree m = repo.mergeTree("ahead", "behind");
+        assertEquals(Repository.MergeResult.ALREADY_MERGED, m.getResult());
+        assertEquals(ahead, m.getHead());
+        m = repo.mergeTree("behind", "ahead");
+        assertEquals(Repository.MergeResult.FAST_FORWARD, m.getResult());
+        assertEquals(ahead, m.getHead());
+        assertEquals(ahead,
+                Branch.fromFile(repo.context(), "behind").getHead());
+        assertEquals(master, repo.head());
+        assertFalse(Utils.join(repo.getWorkingDirectory(), "b.txt")
+                .exists());
+
+        for (String[] bad : new String[][] {{"master", "ahead"},
+                {"ahead", "ahead"}, {"ahead", "none"}}) {
+            try {
+                repo.mergeTree(bad[0], bad[1]);
+                fail(Arrays.toString(bad) + " merged");
+            } catch (GitletException excp) {
+                assertEquals(master, repo.head());
+            }
+        }
+    }
+
+}
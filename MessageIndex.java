@@ -0,0 +1,178 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/** An inverted index from the words of commit messages to the ids of
+ * the commits containing them. Postings are spread over BUCKETS
+ * append-only files by a hash of the word, so a lookup reads a single
+ * small file, and committing appends one line per distinct word.
+ * @author Jason Ding
+ */
+class MessageIndex {
+
+    /** Number of posting files. */
+    private static final int BUCKETS = 256;
+    /** Pattern separating the words of a message. */
+    private static final Pattern SEPARATOR =
+        Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Add the words of MESSAGE, the message of commit SHA1, to the
+     * index of the repository CTX.
+     */
+    static void add(Context ctx, ObjectId sha1, String message) {
+        if (!ctx.getMessageIndex().isDirectory()) {
+            rebuild(ctx);
+            return;
+        }
+        for (String token : tokens(message)) {
+            WriteBatch.appendLines(bucket(ctx, token),
+                    token + " " + sha1 + "\n", false);
+        }
+    }
+
+    /** Return the ids of commits of the repository CTX whose messages
+     * contain every word of QUERY, in the order they were committed.
+     */
+    static List<ObjectId> findTokens(Context ctx, String query) {
+        if (!ctx.getMessageIndex().isDirectory()) {
+            rebuild(ctx);
+        }
+        LinkedHashSet<ObjectId> result = null;
+        for (String token : tokens(query)) {
+            LinkedHashSet<ObjectId> ids = new LinkedHashSet<>();
+            File f = bucket(ctx, token);
+            if (f.exists()) {
+                for (String line : Utils.readContentsAsString(f).
+                        split("\n")) {
+                    int space = line.indexOf(' ');
+                    if (space > 0 && line.substring(0, space).equals(token)) {
+                        ObjectId id = posting(line.substring(space + 1));
+                        if (id != null) {
+                            ids.add(id);
+                        }
+                    }
+                }
+            }
+            if (result == null) {
+                result = ids;
+            } else {
+                result.retainAll(ids);
+            }
+        }
+        return result == null ? new ArrayList<>() : new ArrayList<>(result);
+    }
+
+    /** Return the ids of commits of the repository CTX whose messages
+     * contain TEXT. The message store is scanned in parallel.
+     */
+    static List<ObjectId> findSubstring(Context ctx, String text) {
+        return scan(ctx, Pattern.compile(Pattern.quote(text)));
+    }
+
+    /** Return the ids of commits of the repository CTX whose messages
+     * contain a match of the regular expression REGEX. The message store
+     * is scanned in parallel.
+     */
+    static List<ObjectId> findRegex(Context ctx, String regex) {
+        return scan(ctx, Pattern.compile(regex));
+    }
+
+    /** Return the ids of commits of the repository CTX whose messages
+     * contain a match of PATTERN, in log order.
+     */
+    private static List<ObjectId> scan(Context ctx, Pattern pattern) {
+        ArrayList<CommitLog.Entry> entries = new ArrayList<>();
+        for (CommitLog.Entry e : CommitLog.open(ctx)) {
+            entries.add(e);
+        }
+        return entries.parallelStream()
+                .filter(e -> pattern.matcher(e.getMessage()).find())
+                .map(CommitLog.Entry::getSha1)
+                .collect(Collectors.toList());
+    }
+
+    /** Return the commit id TEXT of a posting, or null if the line was
+     * torn by a crash.
+     */
+    private static ObjectId posting(String text) {
+        try {
+            return ObjectId.parse(text);
+        } catch (IllegalArgumentException excp) {
+            return null;
+        }
+    }
+
+    /** Recreate the index of the repository CTX from its commit log. The
+     * new index is written beside the old one and moved into place, so
+     * that a crash midway leaves no index, which is rebuilt on next use,
+     * rather than a partial one.
+     */
+    static void rebuild(Context ctx) {
+        File index = ctx.getMessageIndex();
+        File fresh = Utils.join(ctx.getLogs(), "." + index.getName() + ".new");
+        delete(fresh);
+        fresh.mkdirs();
+        HashMap<File, StringBuilder> buckets = new HashMap<>();
+        for (CommitLog.Entry e : CommitLog.open(ctx)) {
+            for (String token : tokens(e.getMessage())) {
+                buckets.computeIfAbsent(bucket(fresh, token),
+                        k -> new StringBuilder())
+                    .append(token).append(' ').append(e.getSha1())
+                    .append('\n');
+            }
+        }
+        for (Map.Entry<File, StringBuilder> b : buckets.entrySet()) {
+            WriteBatch.writeDurable(b.getKey(), b.getValue().toString()
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        delete(index);
+        if (!fresh.renameTo(index)) {
+            throw new IllegalArgumentException(
+                    "Could not replace the message index.");
+        }
+    }
+
+    /** Delete the directory DIR and the files in it, if it exists. */
+    private static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /** Return the distinct lower-case words of TEXT. */
+    static Set<String> tokens(String text) {
+        LinkedHashSet<String> result = new LinkedHashSet<>();
+        for (String token : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    /** Return the posting file for TOKEN in the repository CTX. */
+    private static File bucket(Context ctx, String token) {
+        return bucket(ctx.getMessageIndex(), token);
+    }
+
+    /** Return the posting file for TOKEN in the index directory DIR. */
+    private static File bucket(File dir, String token) {
+        return Utils.join(dir, String.format("%02x",
+                Math.floorMod(token.hashCode(), BUCKETS)));
+    }
+
+}
@@ -0,0 +1,111 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of find's searches of commit messages.
+ * @author Jason Ding
+ */
+public class MessageIndexTest {
+
+    /** The repository searched. */
+    private Repository _repo;
+    /** Commits whose messages are searched, in the order made. */
+    private Commit _fix, _lexer, _tests;
+
+    /** Make a repository with three commits whose messages share some
+     * words.
+     */
+    @Before
+    public void setUp() throws IOException {
+        _repo = UnitTest.newRepository();
+        _fix = UnitTest.commit(_repo, "a.txt", "1\n", "Fix parser bug");
+        _lexer = UnitTest.commit(_repo, "a.txt", "2\n", "fix lexer");
+        _tests = UnitTest.commit(_repo, "a.txt", "3\n", "Add parser tests");
+    }
+
+    /** Return the ids of the commits found by searching for QUERY in the
+     * way given by MODE.
+     */
+    private List<ObjectId> find(Repository.FindMode mode, String query) {
+        return _repo.find(mode, query);
+    }
+
+    /** Return the ids of COMMITS. */
+    private static List<ObjectId> ids(Commit... commits) {
+        ObjectId[] ids = new ObjectId[commits.length];
+        for (int i = 0; i < commits.length; i++) {
+            ids[i] = commits[i].getSha1();
+        }
+        return Arrays.asList(ids);
+    }
+
+    @Test
+    public void tokensAreDistinctLowerCaseWords() {
+        assertEquals(Arrays.asList("fix", "the", "parser", "it"),
+                List.copyOf(MessageIndex.tokens("Fix: the Parser, fix it!")));
+        assertEquals(0, MessageIndex.tokens(" -- ").size());
+    }
+
+    @Test
+    public void tokenSearchNeedsEveryWord() {
+        assertEquals(ids(_fix, _lexer),
+                find(Repository.FindMode.TOKEN, "FIX"));
+        assertEquals(ids(_fix), find(Repository.FindMode.TOKEN, "parser fix"));
+        assertEquals(ids(), find(Repository.FindMode.TOKEN, "lexer tests"));
+        assertEquals(ids(), find(Repository.FindMode.TOKEN, "pars"));
+    }
+
+    @Test
+    public void substringSearchMatchesPartsOfWords() {
+        assertEquals(ids(_fix, _tests),
+                find(Repository.FindMode.SUBSTRING, "arse"));
+        assertEquals(ids(_lexer), find(Repository.FindMode.SUBSTRING, "fix"));
+        assertEquals(ids(), find(Repository.FindMode.SUBSTRING, "(p"));
+    }
+
+    @Test
+    public void regexSearch() {
+        assertEquals(ids(_fix, _tests),
+                find(Repository.FindMode.REGEX, "^(Fix|Add) parser"));
+        assertEquals(ids(_lexer, _tests),
+                find(Repository.FindMode.REGEX, "[a-z]+ (lexer|tests)$"));
+        try {
+            find(Repository.FindMode.REGEX, "(parser");
+            fail("bad regex accepted");
+        } catch (GitletException excp) {
+            assertEquals("Invalid regular expression.", excp.getMessage());
+        }
+    }
+
+    @Test
+    public void missingIndexIsRebuilt() throws IOException {
+        File index = _repo.context().getMessageIndex();
+        for (File f : index.listFiles()) {
+            assertTrue(f.delete());
+        }
+        assertTrue(index.delete());
+        Commit more = UnitTest.commit(_repo, "a.txt", "4\n", "more parser");
+        assertTrue(index.isDirectory());
+        assertEquals(ids(_fix, _tests, more),
+                find(Repository.FindMode.TOKEN, "parser"));
+    }
+
+    @Test
+    public void tornPostingsAreSkipped() {
+        File index = _repo.context().getMessageIndex();
+        for (File f : index.listFiles()) {
+            Utils.writeContents(f, Utils.readContentsAsString(f)
+                    + "parser c12");
+        }
+        assertEquals(ids(_fix, _tests),
+                find(Repository.FindMode.TOKEN, "parser"));
+    }
+
+}
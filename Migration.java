@@ -0,0 +1,400 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+
+/** Upgrades repositories written before their format was versioned
+ * (format 0) to the current format. Format 0 kept objects flat in the
+ * object directory, named commits and blobs by String ids, and stored
+ * commit times as formatted text. Commits are rewritten parents first,
+ * which gives each a new id; branches, stages and remotes are then
+ * rewritten to match, objects are sharded, and the log and index are
+ * rebuilt. The ids the commits were given are saved before any old file
+ * is changed, so an upgrade cut short is finished by the next one.
+ * @author Jason Ding
+ */
+class Migration {
+
+    /** Name of the file, in the repository directory, that maps the
+     * ids of format 0 commits to their new ids during an upgrade.
+     */
+    static final String MAP = "upgrade-map";
+
+    /** The commit of a format 0 repository. */
+    private static class OldCommit implements Serializable {
+        /** The time of the commit, formatted by SimpleDateFormat. */
+        private String _time;
+        /** The commit message. */
+        private String _message;
+        /** The parent, or both parents of a merge run together. */
+        private String _parent;
+        /** The first parent of a merge. */
+        private String _parent1;
+        /** The second parent of a merge. */
+        private String _parent2;
+        /** The ids of the blobs of the commit, by file name. */
+        private HashMap<String, String> _blobs;
+        /** The id of the commit. */
+        private String _sha1;
+        /** Whether the commit is a merge. */
+        private boolean _isMerged;
+    }
+
+    /** The branch of a format 0 repository. */
+    private static class OldBranch implements Serializable {
+        /** The name of the branch. */
+        private String _name;
+        /** The id of the head commit. */
+        private String _head;
+        /** The ids of the commits of the branch. */
+        private LinkedList<String> _commits;
+    }
+
+    /** The stage of a format 0 repository. */
+    private static class OldStage implements Serializable {
+        /** The blob ids of the files staged for addition. */
+        private HashMap<String, String> _currStage;
+        /** The blob ids of the files staged for removal. */
+        private HashMap<String, String> _removeStage;
+        /** The branch of the stage. */
+        private String _branch;
+        /** The file of the stage. */
+        private File _file;
+    }
+
+    /** The remote of a format 0 repository. */
+    private static class OldRemote implements Serializable {
+        /** Working directory of the remote. */
+        private File _cwd;
+        /** Repository directory of the remote. */
+        private File _repo;
+        /** Object directory of the remote. */
+        private File _objects;
+        /** Branch directory of the remote. */
+        private File _branch;
+        /** Current branch file of the remote. */
+        private File _currBranch;
+        /** Stage directory of the remote. */
+        private File _stagingArea;
+        /** The name of the remote. */
+        private String _name;
+    }
+
+    /** The classes format 0 objects are read as, by the names they were
+     * written under.
+     */
+    private static final Map<String, Class<?>> LEGACY = Map.of(
+            "gitlet.Commit", OldCommit.class,
+            "gitlet.Branch", OldBranch.class,
+            "gitlet.Stage", OldStage.class,
+            "gitlet.Remote", OldRemote.class);
+
+    /** Reads format 0 objects as their legacy classes. Objects already
+     * in the current format, whose classes declare their version, are
+     * read as they are.
+     */
+    private static class LegacyInput extends ObjectInputStream {
+
+        /** A stream reading objects from IN. */
+        LegacyInput(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor()
+            throws IOException, ClassNotFoundException {
+            ObjectStreamClass desc = super.readClassDescriptor();
+            Class<?> legacy = LEGACY.get(desc.getName());
+            if (legacy == null || desc.getSerialVersionUID() == 1L) {
+                return desc;
+            }
+            ObjectStreamClass local = ObjectStreamClass.lookup(legacy);
+            if (!sameFields(desc, local)) {
+                throw new InvalidClassException(desc.getName(),
+                        "not a format 0 object");
+            }
+            return local;
+        }
+    }
+
+    /** Return whether A and B have the same serialized fields. */
+    private static boolean sameFields(ObjectStreamClass a,
+                                      ObjectStreamClass b) {
+        ObjectStreamField[] fa = a.getFields();
+        ObjectStreamField[] fb = b.getFields();
+        if (fa.length != fb.length) {
+            return false;
+        }
+        for (int i = 0; i < fa.length; i++) {
+            if (!fa[i].getName().equals(fb[i].getName())
+                    || fa[i].getTypeCode() != fb[i].getTypeCode()
+                    || !String.valueOf(fa[i].getTypeString()).equals(
+                            String.valueOf(fb[i].getTypeString()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the object in FILE, read as a format 0 object if it is
+     * one.
+     */
+    static Object read(File file) {
+        try (LegacyInput in = new LegacyInput(new FileInputStream(file))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(file.getName() + ": "
+                    + excp.getMessage());
+        }
+    }
+
+    /** Upgrade the format 0 repository CTX to the current format. The
+     * caller holds the repository's exclusive lock.
+     */
+    static void upgrade(Context ctx) throws IOException {
+        File mapFile = Utils.join(ctx.getRepo(), MAP);
+        Map<String, ObjectId> ids = mapFile.exists() ? readMap(mapFile)
+                : convertCommits(ctx, mapFile);
+        convertBranches(ctx, ids);
+        convertStages(ctx);
+        convertRemotes(ctx);
+        for (String old : ids.keySet()) {
+            ObjectStore.file(ctx.getObjects(), old).delete();
+        }
+        ObjectStore.migrate(ctx.getObjects());
+        ctx.getCommitLog().delete();
+        ctx.getMessageIndex().delete();
+        CommitLog.rebuild(ctx);
+        CommitIndex.rebuild(ctx);
+        WriteBatch.writeDurable(ctx.getFormat(), (Repository.FORMAT + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        mapFile.delete();
+    }
+
+    /** Write every format 0 commit of the repository CTX in the current
+     * format, parents before children, and save the ids they were given
+     * to MAPFILE. Return the new ids by old id.
+     */
+    private static Map<String, ObjectId> convertCommits(Context ctx,
+                                                        File mapFile)
+        throws IOException {
+        HashMap<String, OldCommit> old = new HashMap<>();
+        for (String id : ObjectStore.list(ctx.getObjects())) {
+            if (id.startsWith("c")) {
+                Object obj = read(ObjectStore.file(ctx.getObjects(), id));
+                if (obj instanceof OldCommit) {
+                    old.put(id, (OldCommit) obj);
+                }
+            }
+        }
+        HashMap<String, ObjectId> ids = new HashMap<>();
+        ArrayDeque<String> pending = new ArrayDeque<>();
+        for (String start : old.keySet()) {
+            pending.push(start);
+            while (!pending.isEmpty()) {
+                String id = pending.peek();
+                if (ids.containsKey(id)) {
+                    pending.pop();
+                    continue;
+                }
+                OldCommit c = old.get(id);
+                String[] parents = parents(c);
+                boolean ready = true;
+                for (String p : parents) {
+                    if (p == null || ids.containsKey(p)) {
+                        continue;
+                    }
+                    if (!old.containsKey(p)) {
+                        throw Utils.error("Cannot upgrade the repository: "
+                                + "parent %s of commit %s is missing.",
+                                p, id);
+                    }
+                    pending.push(p);
+                    ready = false;
+                }
+                if (ready) {
+                    ids.put(id, convert(ctx, c, ids));
+                    pending.pop();
+                }
+            }
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, ObjectId> e : ids.entrySet()) {
+            lines.append(e.getKey()).append(' ').append(e.getValue())
+                    .append('\n');
+        }
+        WriteBatch.writeDurable(mapFile,
+                lines.toString().getBytes(StandardCharsets.UTF_8));
+        return ids;
+    }
+
+    /** Return the parent ids of the format 0 commit C, either of which
+     * may be null.
+     */
+    private static String[] parents(OldCommit c) {
+        if (c._isMerged) {
+            return new String[] {c._parent1, c._parent2};
+        }
+        return new String[] {c._parent, null};
+    }
+
+    /** Write the format 0 commit C, whose parents have the new ids in
+     * IDS, as a commit of the repository CTX. Return its new id.
+     */
+    private static ObjectId convert(Context ctx, OldCommit c,
+                                    Map<String, ObjectId> ids)
+        throws IOException {
+        String[] parents = parents(c);
+        HashMap<String, ObjectId> files = new HashMap<>();
+        if (c._blobs != null) {
+            for (Map.Entry<String, String> e : c._blobs.entrySet()) {
+                files.put(e.getKey(), ObjectId.parse(e.getValue()));
+            }
+        }
+        long millis = parseTime(c._time);
+        Commit commit = new Commit(ctx, c._message,
+                parents[0] == null ? null : ids.get(parents[0]),
+                parents[1] == null ? null : ids.get(parents[1]),
+                millis, zoneOffset(c._time), PathTable.of(files));
+        return commit.getSha1();
+    }
+
+    /** Return the time TEXT of a format 0 commit in milliseconds since
+     * the epoch. It was formatted in the default locale, which is tried
+     * before English.
+     */
+    private static long parseTime(String text) {
+        for (Locale locale : new Locale[] {Locale.getDefault(),
+                                           Locale.US}) {
+            SimpleDateFormat format =
+                new SimpleDateFormat("EEE LLL d HH:mm:ss y Z", locale);
+            try {
+                Date date = format.parse(text);
+                return date.getTime();
+            } catch (ParseException excp) {
+                continue;
+            }
+        }
+        throw Utils.error("Cannot upgrade the repository: bad commit "
+                + "time %s.", text);
+    }
+
+    /** Return the zone offset in seconds that ends the time TEXT of a
+     * format 0 commit.
+     */
+    private static int zoneOffset(String text) {
+        String zone = text.substring(text.lastIndexOf(' ') + 1);
+        int hhmm = Integer.parseInt(zone.substring(1));
+        int seconds = (hhmm / 100) * 3600 + (hhmm % 100) * 60;
+        return zone.charAt(0) == '-' ? -seconds : seconds;
+    }
+
+    /** Return the commit ids saved in MAPFILE by an upgrade that was cut
+     * short.
+     */
+    private static Map<String, ObjectId> readMap(File mapFile) {
+        HashMap<String, ObjectId> ids = new HashMap<>();
+        for (String line : Utils.readContentsAsString(mapFile)
+                .split("\n")) {
+            String[] fields = line.split(" ");
+            if (fields.length == 2) {
+                ids.put(fields[0], ObjectId.parse(fields[1]));
+            }
+        }
+        return ids;
+    }
+
+    /** Return the new id of the format 0 commit OLD given IDS. */
+    private static ObjectId newId(Map<String, ObjectId> ids, String old) {
+        ObjectId id = ids.get(old);
+        if (id == null) {
+            throw Utils.error("Cannot upgrade the repository: commit %s "
+                    + "is missing.", old);
+        }
+        return id;
+    }
+
+    /** Rewrite the format 0 branches of the repository CTX, whose
+     * commits have the new ids IDS.
+     */
+    private static void convertBranches(Context ctx,
+                                        Map<String, ObjectId> ids)
+        throws IOException {
+        File[] files = ctx.getBranch().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            Object obj = f.getName().startsWith(".") ? null : read(f);
+            if (!(obj instanceof OldBranch)) {
+                continue;
+            }
+            OldBranch old = (OldBranch) obj;
+            Branch b = new Branch(f.getName(), newId(ids, old._head));
+            LinkedList<ObjectId> commits = new LinkedList<>();
+            for (String c : old._commits) {
+                commits.add(newId(ids, c));
+            }
+            b.changeCommits(commits);
+            b.saveBranch(ctx);
+        }
+    }
+
+    /** Rewrite the format 0 stages of the repository CTX. */
+    private static void convertStages(Context ctx) throws IOException {
+        File[] files = ctx.getStage().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            Object obj = f.getName().startsWith(".") ? null : read(f);
+            if (!(obj instanceof OldStage)) {
+                continue;
+            }
+            OldStage old = (OldStage) obj;
+            Stage s = new Stage(ctx, f.getName());
+            for (Map.Entry<String, String> e : old._currStage.entrySet()) {
+                s.getCurrStage().put(e.getKey(),
+                        ObjectId.parse(e.getValue()));
+            }
+            for (Map.Entry<String, String> e
+                     : old._removeStage.entrySet()) {
+                s.getRemoveStage().put(e.getKey(),
+                        ObjectId.parse(e.getValue()));
+            }
+            s.update();
+        }
+    }
+
+    /** Rewrite the format 0 remotes of the repository CTX. */
+    private static void convertRemotes(Context ctx) throws IOException {
+        File[] files = ctx.getRemote().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            Object obj = f.getName().startsWith(".") ? null : read(f);
+            if (obj instanceof OldRemote) {
+                OldRemote old = (OldRemote) obj;
+                new Remote(ctx, f.getName(), old._repo.getPath());
+            }
+        }
+    }
+
+}
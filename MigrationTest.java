@@ -0,0 +1,211 @@
+package gitlet;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the upgrade of repositories from format 0.
+ * @author Jason Ding
+ */
+public class MigrationTest {
+
+    /** A commit laid out as format 0 wrote it. */
+    private static class Commit implements Serializable {
+        /** The formatted time. */
+        private String _time;
+        /** The message. */
+        private String _message;
+        /** The parent, or both parents of a merge. */
+        private String _parent;
+        /** The first parent of a merge. */
+        private String _parent1;
+        /** The second parent of a merge. */
+        private String _parent2;
+        /** The blob ids by file name. */
+        private HashMap<String, String> _blobs = new HashMap<>();
+        /** The id. */
+        private String _sha1;
+        /** Whether the commit is a merge. */
+        private boolean _isMerged;
+    }
+
+    /** A branch laid out as format 0 wrote it. */
+    private static class Branch implements Serializable {
+        /** The name. */
+        private String _name;
+        /** The head commit id. */
+        private String _head;
+        /** The commit ids. */
+        private LinkedList<String> _commits = new LinkedList<>();
+    }
+
+    /** A stage laid out as format 0 wrote it. */
+    private static class Stage implements Serializable {
+        /** Files staged for addition. */
+        private HashMap<String, String> _currStage = new HashMap<>();
+        /** Files staged for removal. */
+        private HashMap<String, String> _removeStage = new HashMap<>();
+        /** The branch. */
+        private String _branch;
+        /** The file. */
+        private File _file;
+    }
+
+    /** Write OBJ to FILE as format 0 did, under the name of the gitlet
+     * class it stands for.
+     */
+    private static void writeLegacy(File file, Serializable obj) {
+        String from = obj.getClass().getName();
+        String to = "gitlet." + obj.getClass().getSimpleName();
+        byte[] data = Utils.serialize(obj);
+        byte[] pattern = utf(from);
+        byte[] replacement = utf(to);
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            if (Arrays.equals(data, i, i + pattern.length,
+                    pattern, 0, pattern.length)) {
+                byte[] out = new byte[data.length - pattern.length
+                        + replacement.length];
+                System.arraycopy(data, 0, out, 0, i);
+                System.arraycopy(replacement, 0, out, i, replacement.length);
+                System.arraycopy(data, i + pattern.length, out,
+                        i + replacement.length, data.length - i
+                        - pattern.length);
+                Utils.writeContents(file, out);
+                return;
+            }
+        }
+        fail("class name not found in stream");
+    }
+
+    /** Return TEXT as written by DataOutput.writeUTF. */
+    private static byte[] utf(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[bytes.length + 2];
+        out[0] = (byte) (bytes.length >> 8);
+        out[1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, out, 2, bytes.length);
+        return out;
+    }
+
+    /** Return the context of a format 0 repository with an initial
+     * commit, a commit of a.txt on master, d.txt staged and a.txt staged
+     * for removal.
+     */
+    private static Context legacyRepository() {
+        Context ctx = UnitTest.tempRepository();
+        ctx.getBranch().mkdir();
+        ctx.getStage().mkdir();
+        ctx.getRemote().mkdir();
+        String a = "b" + Utils.sha1("a\n");
+        Utils.writeContents(Utils.join(ctx.getObjects(), a), "a\n");
+        String d = "b" + Utils.sha1("d\n");
+        Utils.writeContents(Utils.join(ctx.getObjects(), d), "d\n");
+
+        Commit initial = new Commit();
+        initial._time = "Thu Jan 1 00:00:00 1970 +0000";
+        initial._message = "initial commit";
+        initial._sha1 = "c" + Utils.sha1("initial");
+        writeLegacy(Utils.join(ctx.getObjects(), initial._sha1), initial);
+        Commit first = new Commit();
+        first._time = "Mon Oct 19 15:15:49 2026 -0700";
+        first._message = "first";
+        first._parent = initial._sha1;
+        first._blobs.put("a.txt", a);
+        first._sha1 = "c" + Utils.sha1("first");
+        writeLegacy(Utils.join(ctx.getObjects(), first._sha1), first);
+
+        Branch master = new Branch();
+        master._name = "master";
+        master._head = first._sha1;
+        master._commits.add(initial._sha1);
+        master._commits.add(first._sha1);
+        writeLegacy(Utils.join(ctx.getBranch(), "master"), master);
+        Stage stage = new Stage();
+        stage._branch = "master";
+        stage._file = new File(".gitlet/stage/master");
+        stage._currStage.put("d.txt", d);
+        stage._removeStage.put("a.txt", a);
+        writeLegacy(Utils.join(ctx.getStage(), "master"), stage);
+        Utils.writeContents(ctx.getCurrentBranch(), "master");
+        return ctx;
+    }
+
+    @Test
+    public void upgradesFormatZero() {
+        Context ctx = legacyRepository();
+        Repository.checkFormat(ctx);
+        assertEquals(Repository.FORMAT + "\n",
+                Utils.readContentsAsString(ctx.getFormat()));
+        for (File f : ctx.getObjects().listFiles()) {
+            assertTrue(f.getName(), f.isDirectory());
+        }
+
+        gitlet.Branch master = gitlet.Branch.fromFile(ctx, "master");
+        gitlet.Commit head = gitlet.Commit.fromFile(ctx, master.getHead());
+        assertEquals("first", head.getMessage());
+        assertEquals(1792448149000L, head.getTimestamp());
+        assertEquals(-7 * 3600, head.getZoneOffset());
+        assertEquals(ObjectId.ofBlob("a\n"), head.getFiles().get("a.txt"));
+        assertEquals(head.hash(), head.getSha1());
+        gitlet.Commit initial = gitlet.Commit.fromFile(ctx,
+                head.getParent());
+        assertEquals("initial commit", initial.getMessage());
+        assertEquals(0, initial.getTimestamp());
+        assertNull(initial.getParent());
+        assertEquals(Arrays.asList(initial.getSha1(), head.getSha1()),
+                master.getCommits());
+
+        gitlet.Stage stage = gitlet.Stage.fromFile(ctx, "master");
+        assertEquals(ObjectId.ofBlob("d\n"), stage.getCurrStage().get("d.txt"));
+        assertEquals(ObjectId.ofBlob("a\n"),
+                stage.getRemoveStage().get("a.txt"));
+
+        int commits = 0;
+        for (CommitLog.Entry e : CommitLog.open(ctx)) {
+            commits += 1;
+        }
+        assertEquals(2, commits);
+        assertEquals(1, CommitIndex.matches(ctx,
+                head.getSha1().toString(), 2).size());
+        assertEquals(0, CommitIndex.matches(ctx,
+                "c" + Utils.sha1("first"), 2).size());
+    }
+
+    @Test
+    public void finishesAnUpgradeCutShort() throws Exception {
+        Context ctx = legacyRepository();
+        File master = Utils.join(ctx.getBranch(), "master");
+        byte[] legacyMaster = Utils.readContents(master);
+        Repository.checkFormat(ctx);
+        ObjectId head = gitlet.Branch.fromFile(ctx, "master").getHead();
+
+        ctx.getFormat().delete();
+        Utils.writeContents(master, legacyMaster);
+        Utils.writeContents(Utils.join(ctx.getRepo(), Migration.MAP),
+                "c" + Utils.sha1("first") + " " + head + "\n"
+                + "c" + Utils.sha1("initial") + " "
+                + gitlet.Commit.fromFile(ctx, head).getParent() + "\n");
+        Repository.checkFormat(ctx);
+        assertEquals(head, gitlet.Branch.fromFile(ctx, "master").getHead());
+        assertFalse(Utils.join(ctx.getRepo(), Migration.MAP).exists());
+    }
+
+    @Test
+    public void refusesNewerFormats() {
+        Context ctx = UnitTest.tempRepository();
+        Utils.writeContents(ctx.getFormat(), (Repository.FORMAT + 1) + "\n");
+        try {
+            Repository.checkFormat(ctx);
+            fail("newer format accepted");
+        } catch (GitletException excp) {
+            assertTrue(excp.getMessage().contains("not supported"));
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+package gitlet;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/** The id of a commit or blob: the SHA-1 of its contents, held as two
+ * longs and an int rather than as hex text, plus a tag giving the type
+ * of object. Ids print and parse as the tag letter followed by forty
+ * hex digits, as in "c3f2...". Since the digest bits are already
+ * uniformly distributed, the hash code is simply the leading ones.
+ * @author Jason Ding
+ */
+public final class ObjectId implements Comparable<ObjectId>, Serializable {
+
+    /** Version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
+    /** The kinds of object an id can name. */
+    public enum Type {
+        /** A blob, written with the tag "b". */
+        BLOB('b'),
+        /** A commit, written with the tag "c". */
+        COMMIT('c');
+
+        /** The tag letter. */
+        private final char _tag;
+
+        /** A type written with TAG. */
+        Type(char tag) {
+            _tag = tag;
+        }
+
+        /** Return the tag letter. */
+        public char getTag() {
+            return _tag;
+        }
+
+        /** Return the type written with TAG, or null if there is none. */
+        static Type ofTag(char tag) {
+            for (Type t : values()) {
+                if (t._tag == tag) {
+                    return t;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Length of an id as text: the tag plus a SHA-1 in hex. */
+    public static final int LENGTH = Utils.UID_LENGTH + 1;
+
+    /** Hex digits, by value. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** The type of the object. */
+    private final Type _type;
+    /** Bytes 0 to 7 of the digest. */
+    private final long _hi;
+    /** Bytes 8 to 15 of the digest. */
+    private final long _mid;
+    /** Bytes 16 to 19 of the digest. */
+    private final int _lo;
+
+    /** The id of an object of type TYPE whose digest is HI, MID and LO,
+     * most significant bytes first.
+     */
+    private ObjectId(Type type, long hi, long mid, int lo) {
+        _type = type;
+        _hi = hi;
+        _mid = mid;
+        _lo = lo;
+    }
+
+    /** Return the id of an object of type TYPE whose SHA-1 is HEX. */
+    public static ObjectId of(Type type, String hex) {
+        if (hex.length() != Utils.UID_LENGTH) {
+            throw new IllegalArgumentException("Bad object id: " + hex);
+        }
+        try {
+            return new ObjectId(type,
+                    Long.parseUnsignedLong(hex.substring(0, 16), 16),
+                    Long.parseUnsignedLong(hex.substring(16, 32), 16),
+                    (int) Long.parseLong(hex.substring(32), 16));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("Bad object id: " + hex);
+        }
+    }
+
+    /** Return the id of an object of type TYPE whose SHA-1 digest is
+     * the twenty bytes DIGEST.
+     */
+    public static ObjectId of(Type type, byte[] digest) {
+        if (digest.length != Utils.UID_LENGTH / 2) {
+            throw new IllegalArgumentException("Bad object digest.");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(digest);
+        return new ObjectId(type, buf.getLong(), buf.getLong(),
+                buf.getInt());
+    }
+
+    /** Return the id written as TEXT, a tag letter and forty hex
+     * digits.
+     */
+    public static ObjectId parse(String text) {
+        Type type = text.isEmpty() ? null : Type.ofTag(text.charAt(0));
+        if (type == null) {
+            throw new IllegalArgumentException("Bad object id: " + text);
+        }
+        return of(type, text.substring(1));
+    }
+
+    /** Return the id of the blob whose contents are the String
+     * CONTENTS.
+     */
+    public static ObjectId ofBlob(String contents) {
+        return of(Type.BLOB, Utils.sha1(contents));
+    }
+
+    /** Return the id of the blob whose contents are the bytes CONTENTS,
+     * which is that of the String they encode if they are UTF-8.
+     */
+    public static ObjectId ofBlob(byte[] contents) {
+        return of(Type.BLOB, Utils.sha1(contents));
+    }
+
+    /** Return the type of the object. */
+    public Type getType() {
+        return _type;
+    }
+
+    /** Return the first N characters of this id as text. */
+    public String abbreviate(int n) {
+        return toString().substring(0, n);
+    }
+
+    @Override
+    public String toString() {
+        char[] out = new char[LENGTH];
+        out[0] = _type.getTag();
+        hex(out, 1, _hi, 16);
+        hex(out, 17, _mid, 16);
+        hex(out, 33, _lo & 0xffffffffL, 8);
+        return new String(out);
+    }
+
+    /** Write the low DIGITS hex digits of VALUE into OUT at POS. */
+    private static void hex(char[] out, int pos, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            out[pos + i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ObjectId)) {
+            return false;
+        }
+        ObjectId o = (ObjectId) obj;
+        return _hi == o._hi && _mid == o._mid && _lo == o._lo
+                && _type == o._type;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (_hi >>> 32);
+    }
+
+    /** Order ids as their text is ordered: by tag, then by digest. */
+    @Override
+    public int compareTo(ObjectId o) {
+        int c = Character.compare(_type.getTag(), o._type.getTag());
+        if (c == 0) {
+            c = Long.compareUnsigned(_hi, o._hi);
+        }
+        if (c == 0) {
+            c = Long.compareUnsigned(_mid, o._mid);
+        }
+        if (c == 0) {
+            c = Integer.compareUnsigned(_lo, o._lo);
+        }
+        return c;
+    }
+
+}
@@ -0,0 +1,119 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Resolves object ids to files in an object directory. Objects are
+ * sharded into subdirectories named after the first two hex digits of
+ * their hash, so that no single directory grows too large. Objects
+ * written by older versions directly into the object directory are
+ * still found, and can be moved into place with migrate.
+ * @author Jason Ding
+ */
+class ObjectStore {
+
+    /** Number of hash digits naming a shard directory. */
+    static final int SHARD_LENGTH = 2;
+
+    /** Return the file holding object ID in the repository CTX. */
+    static File file(Context ctx, ObjectId id) {
+        return file(ctx.getObjects(), id.toString());
+    }
+
+    /** Return the file holding object ID in the object directory DIR,
+     * falling back to the flat layout if the object has not been
+     * migrated yet.
+     */
+    static File file(File dir, String id) {
+        File sharded = shardedFile(dir, id);
+        if (!sharded.exists()) {
+            File flat = Utils.join(dir, id);
+            if (flat.exists()) {
+                return flat;
+            }
+        }
+        return sharded;
+    }
+
+    /** Return the file object ID should be written to in the
+     * repository CTX, creating its shard directory if needed.
+     */
+    static File fileForWrite(Context ctx, ObjectId id) {
+        return fileForWrite(ctx.getObjects(), id.toString());
+    }
+
+    /** Return the file object ID should be written to in the object
+     * directory DIR, creating its shard directory if needed.
+     */
+    static File fileForWrite(File dir, String id) {
+        File f = shardedFile(dir, id);
+        f.getParentFile().mkdir();
+        return f;
+    }
+
+    /** Return whether object ID exists in the repository CTX. */
+    static boolean exists(Context ctx, ObjectId id) {
+        return file(ctx, id).exists();
+    }
+
+    /** Return the ids of all objects in the object directory DIR, in
+     * either layout.
+     */
+    static List<String> list(File dir) {
+        ArrayList<String> ids = new ArrayList<>();
+        File[] entries = dir.listFiles();
+        if (entries == null) {
+            return ids;
+        }
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                String[] names = entry.list();
+                if (names != null) {
+                    for (String name : names) {
+                        if (!name.startsWith(".")) {
+                            ids.add(name);
+                        }
+                    }
+                }
+            } else if (!entry.getName().startsWith(".")) {
+                ids.add(entry.getName());
+            }
+        }
+        return ids;
+    }
+
+    /** Move every object stored flat in the object directory DIR into
+     * its shard directory. Return the number of objects moved.
+     */
+    static int migrate(File dir) {
+        int moved = 0;
+        File[] entries = dir.listFiles();
+        if (entries == null) {
+            return moved;
+        }
+        for (File entry : entries) {
+            if (!entry.isFile() || entry.getName().startsWith(".")) {
+                continue;
+            }
+            File dest = fileForWrite(dir, entry.getName());
+            if (dest.exists()) {
+                entry.delete();
+            } else if (!entry.renameTo(dest)) {
+                throw new IllegalArgumentException(
+                        "Could not move object " + entry.getName() + ".");
+            }
+            moved += 1;
+        }
+        return moved;
+    }
+
+    /** Return the sharded location of object ID in DIR. */
+    private static File shardedFile(File dir, String id) {
+        if (id.length() <= SHARD_LENGTH + 1) {
+            return Utils.join(dir, id);
+        }
+        return Utils.join(dir, id.substring(1, SHARD_LENGTH + 1), id);
+    }
+
+}
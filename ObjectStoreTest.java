@@ -0,0 +1,49 @@
+package gitlet;
+
+import java.io.File;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the sharded object layout and the flat one it replaced.
+ * @author Jason Ding
+ */
+public class ObjectStoreTest {
+
+    @Test
+    public void shardsByLeadingHexDigits() {
+        Context ctx = UnitTest.tempRepository();
+        ObjectId id = ObjectId.ofBlob("sharded");
+        File f = ObjectStore.fileForWrite(ctx, id);
+        assertEquals(id.toString(), f.getName());
+        assertEquals(id.toString().substring(1, 3),
+                f.getParentFile().getName());
+        assertTrue(f.getParentFile().isDirectory());
+    }
+
+    @Test
+    public void readsAndMigratesFlatObjects() {
+        Context ctx = UnitTest.tempRepository();
+        ObjectId flat = ObjectId.ofBlob("flat");
+        ObjectId both = ObjectId.ofBlob("both");
+        Utils.writeContents(Utils.join(ctx.getObjects(), flat.toString()),
+                "flat");
+        Utils.writeContents(Utils.join(ctx.getObjects(), both.toString()),
+                "both");
+        Utils.writeContents(ObjectStore.fileForWrite(ctx, both), "both");
+
+        assertTrue(ObjectStore.exists(ctx, flat));
+        assertEquals("flat", Blob.fromFile(ctx, flat));
+        assertEquals(3, ObjectStore.list(ctx.getObjects()).size());
+
+        assertEquals(2, ObjectStore.migrate(ctx.getObjects()));
+        assertFalse(Utils.join(ctx.getObjects(), flat.toString()).exists());
+        assertFalse(Utils.join(ctx.getObjects(), both.toString()).exists());
+        assertEquals(ObjectStore.fileForWrite(ctx, flat),
+                ObjectStore.file(ctx, flat));
+        assertEquals("flat", Blob.fromFile(ctx, flat));
+        assertEquals(2, ObjectStore.list(ctx.getObjects()).size());
+        assertEquals(0, ObjectStore.migrate(ctx.getObjects()));
+    }
+
+}
@@ -0,0 +1,117 @@
+package gitlet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A Bloom filter of the paths a commit changed from its first parent,
+ * kept in the commit log so that log -- PATH can pass over the commits
+ * that did not touch PATH without reading them. A filter can say that a
+ * path was certainly not changed, or that it may have been. Filters
+ * take BITS_PER_PATH bits per changed path, which with NUM_HASHES hash
+ * functions lets about one path in a hundred through wrongly. Commits
+ * changing more than MAX_PATHS paths get no filter, and are always
+ * read.
+ * @author Jason Ding
+ */
+class PathFilter {
+
+    /** Bits of filter per changed path. */
+    private static final int BITS_PER_PATH = 10;
+    /** Number of bits set per path. */
+    private static final int NUM_HASHES = 7;
+    /** Largest number of changed paths a filter is kept for. */
+    static final int MAX_PATHS = 512;
+
+    /** The bits of the filter. */
+    private final byte[] _bits;
+
+    /** A filter whose bits are BITS. */
+    private PathFilter(byte[] bits) {
+        _bits = bits;
+    }
+
+    /** Return a filter of the paths whose blobs differ between BEFORE
+     * and AFTER, or null if there are more than MAX_PATHS of them.
+     */
+    static PathFilter changes(PathTable before, PathTable after) {
+        ArrayList<String> paths = new ArrayList<>();
+        for (PathTable.Join j = PathTable.join(before, after);
+             j.nextChanged();) {
+            if (paths.size() == MAX_PATHS) {
+                return null;
+            }
+            paths.add(j.name());
+        }
+        return of(paths);
+    }
+
+    /** Return a filter of PATHS. */
+    static PathFilter of(List<String> paths) {
+        PathFilter result = new PathFilter(
+                new byte[(paths.size() * BITS_PER_PATH + 7) / 8 + 1]);
+        for (String path : paths) {
+            long h = hash(path);
+            long step = Hashing.mix(h) | 1;
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int bit = result.bit(h + i * step);
+                result._bits[bit >>> 3] |= 1 << (bit & 7);
+            }
+        }
+        return result;
+    }
+
+    /** Return false if PATH was certainly not changed, or true if it
+     * may have been.
+     */
+    boolean mightContain(String path) {
+        long h = hash(path);
+        long step = Hashing.mix(h) | 1;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            int bit = bit(h + i * step);
+            if ((_bits[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Write FILTER, which may be null, to OUT. */
+    static void write(DataOutputStream out, PathFilter filter)
+        throws IOException {
+        if (filter == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(filter._bits.length);
+            out.write(filter._bits);
+        }
+    }
+
+    /** Read and return a filter written by write from IN, which may be
+     * null.
+     */
+    static PathFilter read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bits = new byte[length];
+        in.readFully(bits);
+        return new PathFilter(bits);
+    }
+
+    /** Return the bit the hash H falls on. */
+    private int bit(long h) {
+        return (int) Long.remainderUnsigned(h, _bits.length * 8L);
+    }
+
+    /** Return a 64-bit hash of PATH. */
+    private static long hash(String path) {
+        return Hashing.mix(Hashing.fnv1a(
+                path.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
@@ -0,0 +1,108 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the Bloom filters of changed paths and of the pruning of
+ * log -- PATH with them.
+ * @author Jason Ding
+ */
+public class PathFilterTest {
+
+    /** Return N distinct paths starting with PREFIX. */
+    private static List<String> paths(String prefix, int n) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            result.add(prefix + "/dir" + (i % 7) + "/file" + i + ".txt");
+        }
+        return result;
+    }
+
+    @Test
+    public void hasNoFalseNegatives() {
+        for (int n : new int[] {0, 1, 2, 3, 10, 100, PathFilter.MAX_PATHS}) {
+            List<String> paths = paths("src", n);
+            PathFilter filter = PathFilter.of(paths);
+            for (String path : paths) {
+                assertTrue(path, filter.mightContain(path));
+            }
+        }
+    }
+
+    @Test
+    public void letsFewAbsentPathsThrough() {
+        PathFilter filter = PathFilter.of(paths("src", 500));
+        int wrong = 0;
+        for (String path : paths("test", 10000)) {
+            if (filter.mightContain(path)) {
+                wrong += 1;
+            }
+        }
+        assertTrue("false positives: " + wrong, wrong < 300);
+    }
+
+    @Test
+    public void survivesWriteAndRead() throws IOException {
+        List<String> paths = paths("src", 50);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        PathFilter.write(out, PathFilter.of(paths));
+        PathFilter.write(out, null);
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        PathFilter filter = PathFilter.read(in);
+        for (String path : paths) {
+            assertTrue(path, filter.mightContain(path));
+        }
+        assertNull(PathFilter.read(in));
+    }
+
+    @Test
+    public void changesHoldsOnlyChangedPaths() {
+        PathTable before = PathTable.of(Map.of("same",
+                ObjectId.ofBlob("s"), "edited", ObjectId.ofBlob("e1"),
+                "gone", ObjectId.ofBlob("g")));
+        PathTable after = PathTable.of(Map.of("same", ObjectId.ofBlob("s"),
+                "edited", ObjectId.ofBlob("e2"), "new", ObjectId.ofBlob("n")));
+        PathFilter filter = PathFilter.changes(before, after);
+        for (String path : new String[] {"edited", "gone", "new"}) {
+            assertTrue(path, filter.mightContain(path));
+        }
+        HashMap<String, ObjectId> many = new HashMap<>();
+        for (String path : paths("src", PathFilter.MAX_PATHS + 1)) {
+            many.put(path, ObjectId.ofBlob(path));
+        }
+        assertNull(PathFilter.changes(PathTable.EMPTY, PathTable.of(many)));
+    }
+
+    @Test
+    public void logOfAPathPassesOverCommitsWithoutReadingThem()
+        throws IOException {
+        Repository repo = UnitTest.newRepository();
+        Commit a1 = UnitTest.commit(repo, "a.txt", "1\n", "a1");
+        UnitTest.commit(repo, "b.txt", "1\n", "b1");
+        Commit b2 = UnitTest.commit(repo, "b.txt", "2\n", "b2");
+        UnitTest.commit(repo, "b.txt", "3\n", "b3");
+        Commit a2 = UnitTest.commit(repo, "a.txt", "2\n", "a2");
+        assertTrue(ObjectStore.file(repo.context(), b2.getSha1()).delete());
+
+        ArrayList<ObjectId> shown = new ArrayList<>();
+        try (CommitLog.History h = repo.log(List.of("a.txt"))) {
+            while (h.hasNext()) {
+                shown.add(h.next().getSha1());
+            }
+        }
+        assertEquals(List.of(a2.getSha1(), a1.getSha1()), shown);
+    }
+
+}
@@ -0,0 +1,405 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/** An immutable map from file names to blob ids, kept sorted by name.
+ * Names are stored UTF-8 encoded in one byte array, each holding only
+ * the part that differs from the name before it, with a full name every
+ * RESTART_INTERVAL entries so that lookups can bisect; ids are kept in a
+ * parallel array. A commit of many files thus costs a handful of arrays
+ * rather than a hash map entry and two strings per file, and two tables
+ * can be compared by walking them side by side with a Join.
+ * @author Jason Ding
+ */
+public final class PathTable implements Serializable {
+
+    /** Version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
+    /** The table with no files. */
+    public static final PathTable EMPTY =
+        new PathTable(new byte[0], new int[0], new ObjectId[0]);
+
+    /** Number of entries between full names. */
+    private static final int RESTART_INTERVAL = 16;
+
+    /** The encoded names: for each entry, the number of leading bytes
+     * it shares with the previous name, the number of bytes that follow,
+     * and those bytes. Both numbers are written as varints.
+     */
+    private final byte[] _names;
+    /** Offset in _names of every RESTART_INTERVAL-th entry, which shares
+     * nothing with the entry before it.
+     */
+    private final int[] _restarts;
+    /** The blob id of each entry, in name order. */
+    private final ObjectId[] _ids;
+
+    /** A table of the entries encoded in NAMES with restart points
+     * RESTARTS and blob ids IDS.
+     */
+    private PathTable(byte[] names, int[] restarts, ObjectId[] ids) {
+        _names = names;
+        _restarts = restarts;
+        _ids = ids;
+    }
+
+    /** Return a table of the files in FILES, a map from names to blob
+     * ids.
+     */
+    public static PathTable of(Map<String, ObjectId> files) {
+        if (files.isEmpty()) {
+            return EMPTY;
+        }
+        ArrayList<Map.Entry<byte[], ObjectId>> entries =
+            new ArrayList<>(files.size());
+        for (Map.Entry<String, ObjectId> e : files.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(
+                    e.getKey().getBytes(StandardCharsets.UTF_8),
+                    e.getValue()));
+        }
+        entries.sort((x, y) -> Arrays.compareUnsigned(x.getKey(),
+                y.getKey()));
+        Builder b = new Builder(entries.size());
+        for (Map.Entry<byte[], ObjectId> e : entries) {
+            b.add(e.getKey(), e.getKey().length, e.getValue());
+        }
+        return b.build();
+    }
+
+    /** Return the number of files. */
+    public int size() {
+        return _ids.length;
+    }
+
+    /** Return whether there are no files. */
+    public boolean isEmpty() {
+        return _ids.length == 0;
+    }
+
+    /** Return whether the file NAME is in the table. */
+    public boolean contains(String name) {
+        return get(name) != null;
+    }
+
+    /** Return the blob id of the file NAME, or null if there is no such
+     * file.
+     */
+    public ObjectId get(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = _restarts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int pos = _restarts[mid];
+            pos = skipVarint(pos);
+            int length = readVarint(pos);
+            pos = skipVarint(pos);
+            int c = Arrays.compareUnsigned(_names, pos, pos + length,
+                    key, 0, key.length);
+            if (c == 0) {
+                return _ids[mid * RESTART_INTERVAL];
+            } else if (c < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (hi < 0) {
+            return null;
+        }
+        Cursor c = new Cursor(hi);
+        for (int i = 0; i < RESTART_INTERVAL && c.next(); i++) {
+            int cmp = c.compareTo(key, key.length);
+            if (cmp == 0) {
+                return c.id();
+            } else if (cmp > 0) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /** Return a cursor before the first file. */
+    public Cursor cursor() {
+        return new Cursor(0);
+    }
+
+    /** Return a HashMap holding the same files. */
+    public HashMap<String, ObjectId> toMap() {
+        HashMap<String, ObjectId> result = new HashMap<>(size() * 2);
+        for (Cursor c = cursor(); c.next();) {
+            result.put(c.name(), c.id());
+        }
+        return result;
+    }
+
+    /** Return this table with the files in ADDED added or replaced and
+     * those named in REMOVED taken out.
+     */
+    public PathTable with(Map<String, ObjectId> added,
+                          Map<String, ObjectId> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return this;
+        }
+        Builder b = new Builder(size() + added.size());
+        Join j = join(this, of(added), of(removed));
+        while (j.next()) {
+            if (j.id(1) != null) {
+                j.addTo(b, j.id(1));
+            } else if (j.id(2) == null) {
+                j.addTo(b, j.id(0));
+            }
+        }
+        return b.build();
+    }
+
+    /** Return a walk over TABLES side by side, in name order. */
+    public static Join join(PathTable... tables) {
+        return new Join(tables);
+    }
+
+    /** A forward walk over the files of a table. */
+    public final class Cursor {
+        /** Index of the current entry; -1 before the first. */
+        private int _index;
+        /** Offset in _names of the next entry. */
+        private int _pos;
+        /** The current name, in its first _length bytes. */
+        private byte[] _name = new byte[64];
+        /** Length of the current name. */
+        private int _length;
+
+        /** A cursor before the first entry of restart block BLOCK. */
+        private Cursor(int block) {
+            _index = block * RESTART_INTERVAL - 1;
+            _pos = _restarts.length == 0 ? 0 : _restarts[block];
+        }
+
+        /** Move to the next file. Return false if there is none. */
+        public boolean next() {
+            if (_index + 1 >= _ids.length) {
+                _index = _ids.length;
+                return false;
+            }
+            _index += 1;
+            int shared = readVarint(_pos);
+            _pos = skipVarint(_pos);
+            int rest = readVarint(_pos);
+            _pos = skipVarint(_pos);
+            _length = shared + rest;
+            if (_length > _name.length) {
+                _name = Arrays.copyOf(_name,
+                        Math.max(_length, _name.length * 2));
+            }
+            System.arraycopy(_names, _pos, _name, shared, rest);
+            _pos += rest;
+            return true;
+        }
+
+        /** Return the name of the current file. */
+        public String name() {
+            return new String(_name, 0, _length, StandardCharsets.UTF_8);
+        }
+
+        /** Return the blob id of the current file. */
+        public ObjectId id() {
+            return _ids[_index];
+        }
+
+        /** Return whether the cursor has moved past the last file. */
+        boolean done() {
+            return _index >= _ids.length;
+        }
+
+        /** Compare the current name with the first LENGTH bytes of
+         * KEY, in byte order. Return a negative number, zero or a
+         * positive number as the name is smaller, equal or larger.
+         */
+        int compareTo(byte[] key, int length) {
+            return Arrays.compareUnsigned(_name, 0, _length,
+                    key, 0, length);
+        }
+    }
+
+    /** A walk over several tables side by side. Each step stops at the
+     * next name found in any of them, giving the blob id that name has
+     * in each table, or null where it is absent. Only names that are
+     * asked for are decoded, so walking two large, mostly equal tables
+     * with nextChanged costs no allocation for the files they share.
+     */
+    public static final class Join {
+        /** One cursor per table. */
+        private final Cursor[] _cursors;
+        /** Whether each cursor is at the current name. */
+        private final boolean[] _here;
+        /** The cursor whose name is current, or null. */
+        private Cursor _current;
+
+        /** A walk over TABLES. */
+        private Join(PathTable[] tables) {
+            _cursors = new Cursor[tables.length];
+            _here = new boolean[tables.length];
+            for (int i = 0; i < tables.length; i++) {
+                _cursors[i] = tables[i].cursor();
+                _cursors[i].next();
+            }
+        }
+
+        /** Move to the next name. Return false if there is none. */
+        public boolean next() {
+            for (int i = 0; i < _cursors.length; i++) {
+                if (_here[i]) {
+                    _cursors[i].next();
+                    _here[i] = false;
+                }
+            }
+            _current = null;
+            for (Cursor c : _cursors) {
+                if (!c.done() && (_current == null
+                        || c.compareTo(_current._name, _current._length)
+                        < 0)) {
+                    _current = c;
+                }
+            }
+            if (_current == null) {
+                return false;
+            }
+            for (int i = 0; i < _cursors.length; i++) {
+                Cursor c = _cursors[i];
+                _here[i] = !c.done()
+                        && c.compareTo(_current._name, _current._length) == 0;
+            }
+            return true;
+        }
+
+        /** Move to the next name whose blob id is not the same in every
+         * table. Return false if there is none.
+         */
+        public boolean nextChanged() {
+            while (next()) {
+                ObjectId first = id(0);
+                for (int i = 1; i < _cursors.length; i++) {
+                    if (first == null || !first.equals(id(i))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /** Return the current name. */
+        public String name() {
+            return _current.name();
+        }
+
+        /** Return the blob id of the current name in table I, or null
+         * if it is not there.
+         */
+        public ObjectId id(int i) {
+            return _here[i] ? _cursors[i].id() : null;
+        }
+
+        /** Add the current name with blob id ID to B. */
+        private void addTo(Builder b, ObjectId id) {
+            b.add(_current._name, _current._length, id);
+        }
+    }
+
+    /** Accumulates entries, added in name order, into a table. */
+    private static final class Builder {
+        /** The encoded names so far. */
+        private final ByteArrayOutputStream _names =
+            new ByteArrayOutputStream();
+        /** The restart offsets so far. */
+        private int[] _restarts;
+        /** The ids so far. */
+        private ObjectId[] _ids;
+        /** Number of entries so far. */
+        private int _count;
+        /** The last name added. */
+        private byte[] _last = new byte[0];
+
+        /** A builder expecting about EXPECTED entries. */
+        Builder(int expected) {
+            _restarts = new int[expected / RESTART_INTERVAL + 1];
+            _ids = new ObjectId[Math.max(expected, 1)];
+        }
+
+        /** Add the name in the first LENGTH bytes of NAME, with blob id
+         * ID.
+         */
+        void add(byte[] name, int length, ObjectId id) {
+            int shared = 0;
+            if (_count % RESTART_INTERVAL == 0) {
+                int block = _count / RESTART_INTERVAL;
+                if (block >= _restarts.length) {
+                    _restarts = Arrays.copyOf(_restarts, block * 2 + 1);
+                }
+                _restarts[block] = _names.size();
+            } else {
+                int max = Math.min(length, _last.length);
+                while (shared < max && name[shared] == _last[shared]) {
+                    shared += 1;
+                }
+            }
+            writeVarint(shared);
+            writeVarint(length - shared);
+            _names.write(name, shared, length - shared);
+            if (_count >= _ids.length) {
+                _ids = Arrays.copyOf(_ids, _count * 2);
+            }
+            _ids[_count] = id;
+            _count += 1;
+            _last = Arrays.copyOf(name, length);
+        }
+
+        /** Write the non-negative VALUE as a varint. */
+        private void writeVarint(int value) {
+            while (value >= 0x80) {
+                _names.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            _names.write(value);
+        }
+
+        /** Return the table built. */
+        PathTable build() {
+            if (_count == 0) {
+                return EMPTY;
+            }
+            int blocks = (_count + RESTART_INTERVAL - 1) / RESTART_INTERVAL;
+            return new PathTable(_names.toByteArray(),
+                    Arrays.copyOf(_restarts, blocks),
+                    Arrays.copyOf(_ids, _count));
+        }
+    }
+
+    /** Return the varint at POS in the names. */
+    private int readVarint(int pos) {
+        int result = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = _names[pos++];
+            result |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+    }
+
+    /** Return the offset just after the varint at POS in the names. */
+    private int skipVarint(int pos) {
+        while (_names[pos] < 0) {
+            pos += 1;
+        }
+        return pos + 1;
+    }
+
+}
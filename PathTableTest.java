@@ -0,0 +1,122 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the prefix-compressed file tables of commits.
+ * @author Jason Ding
+ */
+public class PathTableTest {
+
+    /** Return the id of the blob holding CONTENTS. */
+    private static ObjectId blob(String contents) {
+        return ObjectId.ofBlob(contents);
+    }
+
+    /** Return the names of the files of TABLE, in order. */
+    private static List<String> names(PathTable table) {
+        ArrayList<String> result = new ArrayList<>();
+        for (PathTable.Cursor c = table.cursor(); c.next();) {
+            result.add(c.name());
+        }
+        return result;
+    }
+
+    @Test
+    public void findsEntriesAroundRestartBoundary() {
+        TreeMap<String, ObjectId> files = new TreeMap<>();
+        for (int i = 0; i < 40; i++) {
+            String name = String.format("src/file%02d.txt", i);
+            files.put(name, blob(name));
+        }
+        PathTable table = PathTable.of(files);
+        assertEquals(40, table.size());
+        for (int i : new int[] {0, 15, 16, 17, 31, 32, 39}) {
+            String name = String.format("src/file%02d.txt", i);
+            assertEquals(name, blob(name), table.get(name));
+        }
+        assertNull(table.get("src/file15.txt~"));
+        assertNull(table.get("src/file16"));
+        assertNull(table.get("src/file16.txt/x"));
+        assertNull(table.get("a"));
+        assertNull(table.get("z"));
+        assertEquals(new ArrayList<>(files.keySet()), names(table));
+    }
+
+    @Test
+    public void keepsNamesSharingPartsOfCharacters() {
+        HashMap<String, ObjectId> files = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            /* Neighbouring code points share the first two of their
+             * three UTF-8 bytes, so shared prefixes end mid-character. */
+            String name = "\u6587\u6863/" + (char) ('\u65e0' + i) + ".txt";
+            files.put(name, blob(name));
+        }
+        files.put("\u00e9", blob("e acute"));
+        files.put("\u00ea/x", blob("e circumflex"));
+        files.put("e", blob("e"));
+        PathTable table = PathTable.of(files);
+        assertEquals(files, table.toMap());
+        for (Map.Entry<String, ObjectId> e : files.entrySet()) {
+            assertEquals(e.getKey(), e.getValue(), table.get(e.getKey()));
+        }
+        assertNull(table.get("\u6587\u6863/" + '\u65e0'));
+        assertNull(table.get("\u6587"));
+        List<String> names = names(table);
+        assertEquals("e", names.get(0));
+        assertEquals("\u00e9", names.get(1));
+        assertEquals("\u00ea/x", names.get(2));
+    }
+
+    @Test
+    public void withPrefersAddedOverRemoved() {
+        PathTable table = PathTable.of(Map.of("a", blob("a1"),
+                "b", blob("b1"), "c", blob("c1")));
+        PathTable result = table.with(
+                Map.of("b", blob("b2"), "d", blob("d1")),
+                Map.of("b", blob("b1"), "c", blob("c1"), "d", blob("d0")));
+        assertEquals(Map.of("a", blob("a1"), "b", blob("b2"),
+                "d", blob("d1")), result.toMap());
+        assertEquals(Map.of("a", blob("a1")),
+                table.with(Map.of(), Map.of("b", blob("b1"),
+                        "c", blob("c1"))).toMap());
+        assertSame(table, table.with(Map.of(), Map.of()));
+    }
+
+    @Test
+    public void nextChangedSkipsNamesEqualInAllThree() {
+        PathTable base = PathTable.of(Map.of("same", blob("s"),
+                "edited", blob("e1"), "gone", blob("g"),
+                "partly", blob("p")));
+        PathTable ours = PathTable.of(Map.of("same", blob("s"),
+                "edited", blob("e2"), "partly", blob("p"),
+                "new", blob("n")));
+        PathTable theirs = PathTable.of(Map.of("same", blob("s"),
+                "edited", blob("e1"), "partly", blob("p2")));
+        ArrayList<String> seen = new ArrayList<>();
+        for (PathTable.Join j = PathTable.join(base, ours, theirs);
+             j.nextChanged();) {
+            seen.add(j.name() + "=" + label(j.id(0)) + "," + label(j.id(1))
+                    + "," + label(j.id(2)));
+        }
+        assertEquals(List.of("edited=" + label(blob("e1")) + ","
+                        + label(blob("e2")) + "," + label(blob("e1")),
+                "gone=" + label(blob("g")) + ",-,-",
+                "new=-," + label(blob("n")) + ",-",
+                "partly=" + label(blob("p")) + "," + label(blob("p")) + ","
+                        + label(blob("p2"))),
+                seen);
+    }
+
+    /** Return ID abbreviated, or "-" if it is null. */
+    private static String label(ObjectId id) {
+        return id == null ? "-" : id.abbreviate(8);
+    }
+
+}
@@ -0,0 +1,398 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/** A file of checksummed records, for metadata that is appended to
+ * rather than rewritten. The file starts with MAGIC, and each record is
+ * framed by its length, then its bytes, a CRC-32 of them, and its length
+ * again. A record torn by a crash fails its checksum; readers stop
+ * there, and the next append cuts it off before writing its own record.
+ * The trailing length lets a file be read from its end, newest record
+ * first. Whole files are rewritten through a Writer, which renames a
+ * synced temporary file over the old one.
+ * @author Jason Ding
+ */
+class RecordFile {
+
+    /** The first four bytes of every record file. */
+    static final int MAGIC = 0x474c5231;
+    /** Length of the header holding MAGIC. */
+    private static final int HEADER = 4;
+    /** Bytes a frame adds to its record. */
+    private static final int OVERHEAD = 12;
+    /** Size of the blocks read when reading a file backwards. */
+    private static final int BLOCK = 1 << 16;
+
+    /** Not instantiable. */
+    private RecordFile() {
+    }
+
+    /** Return whether FILE exists and is a record file. */
+    static boolean isValid(File file) {
+        if (file.length() < HEADER) {
+            return false;
+        }
+        try (DataInputStream in =
+                     new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Append RECORD to FILE, creating it if needed, and sync it, so
+     * that the record is either wholly there after a crash or not at
+     * all.
+     */
+    static void append(File file, byte[] record) {
+        try (FileChannel ch = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long end = ch.size();
+            if (end == 0) {
+                writeFully(ch, ByteBuffer.allocate(HEADER).putInt(0, MAGIC),
+                        0);
+                end = HEADER;
+            } else {
+                long valid = validEnd(ch);
+                if (valid < end) {
+                    ch.truncate(valid);
+                    end = valid;
+                }
+            }
+            writeFully(ch, ByteBuffer.wrap(frame(record)), end);
+            ch.force(false);
+            Stats.countWritten(record.length + OVERHEAD);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return RECORD framed for writing. */
+    private static byte[] frame(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        ByteBuffer buf = ByteBuffer.allocate(record.length + OVERHEAD);
+        buf.putInt(record.length).put(record).putInt((int) crc.getValue())
+            .putInt(record.length);
+        return buf.array();
+    }
+
+    /** Return whether the frame in FRAME, of which the record is LENGTH
+     * bytes, is whole.
+     */
+    private static boolean whole(byte[] frame, int length) {
+        ByteBuffer buf = ByteBuffer.wrap(frame);
+        if (buf.getInt(0) != length
+                || buf.getInt(length + OVERHEAD - 4) != length) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(frame, 4, length);
+        return buf.getInt(length + 4) == (int) crc.getValue();
+    }
+
+    /** Return the offset in CH just past its last whole record. Only the
+     * last record is checked unless it is torn, in which case the file
+     * is scanned from the start.
+     */
+    private static long validEnd(FileChannel ch) throws IOException {
+        long size = ch.size();
+        if (size == HEADER || frameBefore(ch, size) != null) {
+            return size;
+        }
+        long pos = HEADER;
+        while (true) {
+            ByteBuffer len = ByteBuffer.allocate(4);
+            if (pos + OVERHEAD > size || ch.read(len, pos) < 4) {
+                return pos;
+            }
+            int length = len.getInt(0);
+            if (length < 0 || pos + OVERHEAD + length > size) {
+                return pos;
+            }
+            ByteBuffer frame = ByteBuffer.allocate(length + OVERHEAD);
+            readFully(ch, frame, pos);
+            if (!whole(frame.array(), length)) {
+                return pos;
+            }
+            pos += length + OVERHEAD;
+        }
+    }
+
+    /** Return the whole frame of CH that ends at END, or null if there
+     * is none.
+     */
+    private static byte[] frameBefore(FileChannel ch, long end)
+        throws IOException {
+        if (end < HEADER + OVERHEAD) {
+            return null;
+        }
+        ByteBuffer len = ByteBuffer.allocate(4);
+        readFully(ch, len, end - 4);
+        int length = len.getInt(0);
+        if (length < 0 || end - HEADER - OVERHEAD < length) {
+            return null;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(length + OVERHEAD);
+        readFully(ch, frame, end - length - OVERHEAD);
+        return whole(frame.array(), length) ? frame.array() : null;
+    }
+
+    /** Write all of BUF to CH at POS. */
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long pos)
+        throws IOException {
+        while (buf.hasRemaining()) {
+            pos += ch.write(buf, pos);
+        }
+    }
+
+    /** Fill BUF from CH at POS. */
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos)
+        throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            pos += n;
+        }
+    }
+
+    /** A reader of the records of a file, oldest first. */
+    static class Reader implements AutoCloseable {
+        /** The file being read. */
+        private final DataInputStream _in;
+
+        /** A reader of the record file FILE. */
+        Reader(File file) {
+            try {
+                _in = new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(file)));
+                if (_in.readInt() != MAGIC) {
+                    _in.close();
+                    throw new IllegalArgumentException(
+                            file.getName() + " is not a record file");
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        /** Return the next record, or null at the end of the file or at
+         * a torn record.
+         */
+        byte[] next() {
+            try {
+                int length;
+                try {
+                    length = _in.readInt();
+                } catch (EOFException excp) {
+                    return null;
+                }
+                if (length < 0) {
+                    return null;
+                }
+                byte[] rest = _in.readNBytes(length + OVERHEAD - 4);
+                if (rest.length < length + OVERHEAD - 4) {
+                    return null;
+                }
+                byte[] frame = new byte[length + OVERHEAD];
+                ByteBuffer.wrap(frame).putInt(length);
+                System.arraycopy(rest, 0, frame, 4, rest.length);
+                if (!whole(frame, length)) {
+                    return null;
+                }
+                Stats.countRead(frame.length);
+                return Arrays.copyOfRange(frame, 4, 4 + length);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                _in.close();
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+    }
+
+    /** A reader of the records of a file, newest first. The file is read
+     * in blocks from its end, so that a reader that stops early reads
+     * only the end of the file.
+     */
+    static class Backward implements AutoCloseable {
+        /** The file being read. */
+        private final FileChannel _ch;
+        /** The end of the next record to return. */
+        private long _pos;
+        /** The last block read. */
+        private byte[] _block = new byte[0];
+        /** The offset of _block in the file. */
+        private long _blockStart;
+
+        /** A reader of the record file FILE from its last whole
+         * record.
+         */
+        Backward(File file) {
+            try {
+                _ch = FileChannel.open(file.toPath(),
+                        StandardOpenOption.READ);
+                ByteBuffer magic = ByteBuffer.allocate(HEADER);
+                if (_ch.read(magic, 0) < HEADER || magic.getInt(0) != MAGIC) {
+                    _ch.close();
+                    throw new IllegalArgumentException(
+                            file.getName() + " is not a record file");
+                }
+                _pos = validEnd(_ch);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        /** Return the record before the last one returned, or null at
+         * the start of the file.
+         */
+        byte[] previous() {
+            if (_pos < HEADER + OVERHEAD) {
+                return null;
+            }
+            int length = ByteBuffer.wrap(read(_pos - 4, 4)).getInt();
+            long start = _pos - length - OVERHEAD;
+            if (length < 0 || start < HEADER) {
+                return null;
+            }
+            byte[] frame = read(start, length + OVERHEAD);
+            if (!whole(frame, length)) {
+                return null;
+            }
+            _pos = start;
+            return Arrays.copyOfRange(frame, 4, 4 + length);
+        }
+
+        /** Return the N bytes of the file at FROM, reading a new block
+         * ending with them if they are not all in the last one.
+         */
+        private byte[] read(long from, int n) {
+            if (from < _blockStart
+                    || from + n > _blockStart + _block.length) {
+                long end = from + n;
+                long start = Math.max(0, Math.min(from, end - BLOCK));
+                _block = new byte[(int) (end - start)];
+                try {
+                    readFully(_ch, ByteBuffer.wrap(_block), start);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+                _blockStart = start;
+                Stats.countRead(_block.length);
+            }
+            int offset = (int) (from - _blockStart);
+            return Arrays.copyOfRange(_block, offset, offset + n);
+        }
+
+        @Override
+        public void close() {
+            try {
+                _ch.close();
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+    }
+
+    /** A writer of a new version of a record file, which replaces the
+     * old one only when committed.
+     */
+    static class Writer implements AutoCloseable {
+        /** The file replaced. */
+        private final File _file;
+        /** The temporary file written. */
+        private final Path _temp;
+        /** The stream to _temp. */
+        private final FileOutputStream _stream;
+        /** The buffered stream to _temp. */
+        private final DataOutputStream _out;
+        /** Whether the new version replaced the old. */
+        private boolean _committed;
+
+        /** A writer of a new version of FILE. */
+        Writer(File file) {
+            _file = file;
+            try {
+                _temp = Files.createTempFile(
+                        file.getAbsoluteFile().getParentFile().toPath(),
+                        "." + file.getName(), ".tmp");
+                _stream = new FileOutputStream(_temp.toFile());
+                _out = new DataOutputStream(
+                        new BufferedOutputStream(_stream));
+                _out.writeInt(MAGIC);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        /** Add RECORD to the new version. */
+        void add(byte[] record) {
+            try {
+                _out.write(frame(record));
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        /** Sync the new version and rename it over the old one. */
+        void commit() {
+            try {
+                _out.flush();
+                _stream.getFD().sync();
+                _out.close();
+                try {
+                    Files.move(_temp, _file.toPath(),
+                            StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException excp) {
+                    Files.move(_temp, _file.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                _committed = true;
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        /** Discard the new version unless it was committed. */
+        @Override
+        public void close() {
+            if (!_committed) {
+                try {
+                    _out.close();
+                } catch (IOException excp) {
+                    /* The file is deleted anyway. */
+                }
+                _temp.toFile().delete();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of checksummed record files and their recovery from crashes.
+ * @author Jason Ding
+ */
+public class RecordFileTest {
+
+    /** Return a new record file holding the records "one", "two" and
+     * "three", in a temporary repository.
+     */
+    private static File threeRecords() {
+        File f = Utils.join(UnitTest.tempRepository().getLogs(), "records");
+        for (String r : new String[] {"one", "two", "three"}) {
+            RecordFile.append(f, r.getBytes(StandardCharsets.UTF_8));
+        }
+        return f;
+    }
+
+    /** Return the records of FILE, oldest first. */
+    private static List<String> forward(File file) {
+        ArrayList<String> result = new ArrayList<>();
+        try (RecordFile.Reader in = new RecordFile.Reader(file)) {
+            for (byte[] r = in.next(); r != null; r = in.next()) {
+                result.add(new String(r, StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    /** Return the records of FILE, newest first. */
+    private static List<String> backward(File file) {
+        ArrayList<String> result = new ArrayList<>();
+        try (RecordFile.Backward in = new RecordFile.Backward(file)) {
+            for (byte[] r = in.previous(); r != null; r = in.previous()) {
+                result.add(new String(r, StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    /** Check that FILE, whose last record was damaged, reads as its
+     * first two records, and that an append replaces the damage.
+     */
+    private static void checkRecovered(File file) {
+        assertEquals(List.of("one", "two"), forward(file));
+        assertEquals(List.of("two", "one"), backward(file));
+        RecordFile.append(file, "four".getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of("one", "two", "four"), forward(file));
+        assertEquals(List.of("four", "two", "one"), backward(file));
+    }
+
+    @Test
+    public void readsWholeRecordsBothWays() {
+        File f = threeRecords();
+        assertTrue(RecordFile.isValid(f));
+        assertEquals(List.of("one", "two", "three"), forward(f));
+        assertEquals(List.of("three", "two", "one"), backward(f));
+    }
+
+    @Test
+    public void dropsRecordTruncatedMidway() throws IOException {
+        File f = threeRecords();
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(raf.length() - 7);
+        }
+        checkRecovered(f);
+    }
+
+    @Test
+    public void dropsRecordWithBadChecksum() throws IOException {
+        File f = threeRecords();
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            long crc = raf.length() - 8;
+            raf.seek(crc);
+            int b = raf.read();
+            raf.seek(crc);
+            raf.write(b ^ 0x01);
+        }
+        checkRecovered(f);
+    }
+
+    @Test
+    public void writerReplacesTheFileOnlyOnCommit() {
+        File f = threeRecords();
+        try (RecordFile.Writer out = new RecordFile.Writer(f)) {
+            out.add("new".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(List.of("one", "two", "three"), forward(f));
+        assertArrayEquals(new String[] {"records"},
+                f.getParentFile().list());
+
+        try (RecordFile.Writer out = new RecordFile.Writer(f)) {
+            out.add("new".getBytes(StandardCharsets.UTF_8));
+            out.commit();
+        }
+        assertEquals(List.of("new"), forward(f));
+        assertArrayEquals(new String[] {"records"},
+                f.getParentFile().list());
+    }
+
+}
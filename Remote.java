@@ -3,6 +3,12 @@ package gitlet;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /** The remote class of the Gitlet.
  * @author Jason Ding
@@ -10,6 +16,9 @@ import java.io.Serializable;
 
 public class Remote implements Serializable {
 
+    /** Version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
     /** Gitlet current working directory for remote. */
     private File _cwd;
     /** GitLet repo directory for remote. */
@@ -18,24 +27,38 @@ public class Remote implements Serializable {
     private File _objects;
     /** GitLet branch directory for remote. */
     private File _branch;
-    /** GitLet current branch directory for remote. */
-    private File _currBranch;
     /** GitLet staging area directory for remote. */
     private File _stagingArea;
 
     /** The name of the remote. */
     private String _name;
 
-    /** Constructor of remote with NAME and DIRECTORY. */
-    public Remote(String name, String directory) throws IOException {
+    /** Constructor of remote with NAME and DIRECTORY, saved in the
+     * repository CTX. A relative DIRECTORY is taken relative to the
+     * working directory of CTX.
+     */
+    public Remote(Context ctx, String name, String directory)
+        throws IOException {
         _name = name;
-        _repo = new File(directory);
+        locate(ctx, new File(directory));
+        saveRemote(ctx);
+    }
+
+    /** Point this remote at the repository directory REPO, relative to
+     * the working directory of CTX unless it is absolute.
+     */
+    private void locate(Context ctx, File repo) {
+        _repo = repo.isAbsolute() ? repo
+                : Utils.join(ctx.getCwd(), repo.getPath());
         _cwd = Utils.join(_repo, "..");
         _objects = Utils.join(_repo, "objects");
         _branch = Utils.join(_repo, "branch");
         _stagingArea = Utils.join(_repo, "stage");
-        _currBranch = Utils.join(_repo, "current-branch");
-        saveRemote();
+    }
+
+    /** Return the context of the remote repository. */
+    Context context() {
+        return new Context(_cwd, _repo);
     }
 
     /** Return the name of the remote. */
@@ -58,35 +81,32 @@ public class Remote implements Serializable {
         return _branch;
     }
 
-    /** Return the object of the remote. */
-    public File getObject() {
-        return _objects;
-    }
-
-    /** Save the remote into a File. */
-    public void saveRemote() throws IOException {
-        File f = Utils.join(Main.REMOTE, _name);
+    /** Save the remote into a File of the repository CTX. */
+    public void saveRemote(Context ctx) throws IOException {
+        File f = Utils.join(ctx.getRemote(), _name);
         f.createNewFile();
         Utils.writeObject(f, this);
     }
 
-    /** Reads in a blob from a file according
-     * to its SHA1. Return the string content.
+    /** Copy the object SHA1 byte for byte from this remote into the
+     * object directory of the repository CTX. Return whether the remote
+     * had the object.
      */
-    public String blobFromFile(String sha1) {
-        File blobFile = Utils.join(_objects, sha1);
-        if (!blobFile.exists()) {
-            throw new IllegalArgumentException(
-                    "No blob file with that name found.");
+    public boolean copyObject(Context ctx, ObjectId sha1) {
+        File src = ObjectStore.file(_objects, sha1.toString());
+        if (!src.exists()) {
+            return false;
         }
-        return Utils.readContentsAsString(blobFile);
+        WriteBatch.writeObject(ObjectStore.fileForWrite(ctx, sha1),
+                Utils.readContents(src));
+        return true;
     }
 
     /** Reads in a commit from a file according
      * to its SHA1. Return the COMMIT.
      */
-    public Commit commitFromFile(String sha1) {
-        File commitFile = Utils.join(_objects, sha1);
+    public Commit commitFromFile(ObjectId sha1) {
+        File commitFile = ObjectStore.file(_objects, sha1.toString());
         if (!commitFile.exists()) {
             throw new IllegalArgumentException(
                     "No commit file with that name found.");
@@ -118,15 +138,103 @@ public class Remote implements Serializable {
         return Utils.readObject(stageFile, Stage.class);
     }
 
-    /** Reads in a remote from a file according to its NAME.
-     * Return the REMOTE.
+    /** Return the names of the promisor remotes of the repository CTX,
+     * i.e. the remotes that were fetched without blobs and may be asked
+     * for them later.
+     */
+    public static List<String> promisors(Context ctx) {
+        ArrayList<String> result = new ArrayList<>();
+        if (ctx.getPromisor().exists()) {
+            for (String name : Utils.readContentsAsString(ctx.getPromisor())
+                    .split("\n")) {
+                if (!name.isEmpty()) {
+                    result.add(name);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Record the remote NAME as a promisor remote of CTX. */
+    public static void addPromisor(Context ctx, String name) {
+        List<String> names = promisors(ctx);
+        if (!names.contains(name)) {
+            names.add(name);
+            WriteBatch.writeDurable(ctx.getPromisor(),
+                    (String.join("\n", names) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Forget the remote NAME as a promisor remote of CTX. */
+    public static void removePromisor(Context ctx, String name) {
+        List<String> names = promisors(ctx);
+        if (names.remove(name)) {
+            WriteBatch.writeDurable(ctx.getPromisor(), (names.isEmpty()
+                    ? "" : String.join("\n", names) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Fetch the blob SHA1 missing from the repository CTX from the
+     * first promisor remote that has it. Return whether the blob was
+     * retrieved.
+     */
+    public static boolean fetchMissing(Context ctx, ObjectId sha1) {
+        return prefetch(ctx, Arrays.asList(sha1)).isEmpty();
+    }
+
+    /** Fetch all of BLOBS that are missing from the repository CTX from
+     * its promisor remotes in one pass, reading each remote's
+     * configuration once. Return the blobs that could not be found
+     * anywhere.
+     */
+    public static List<ObjectId> prefetch(Context ctx,
+                                          Collection<ObjectId> blobs) {
+        ArrayList<ObjectId> missing = new ArrayList<>();
+        for (ObjectId b : new LinkedHashSet<>(blobs)) {
+            if (b != null && !ObjectStore.exists(ctx, b)) {
+                missing.add(b);
+            }
+        }
+        if (missing.isEmpty()) {
+            return missing;
+        }
+        for (String name : promisors(ctx)) {
+            if (!Utils.join(ctx.getRemote(), name).exists()) {
+                continue;
+            }
+            Remote remote = fromFile(ctx, name);
+            if (!remote.getRepo().exists()) {
+                continue;
+            }
+            ArrayList<ObjectId> left = new ArrayList<>();
+            for (ObjectId b : missing) {
+                if (!remote.copyObject(ctx, b)) {
+                    left.add(b);
+                }
+            }
+            missing = left;
+            if (missing.isEmpty()) {
+                break;
+            }
+        }
+        return missing;
+    }
+
+    /** Reads in a remote of the repository CTX from a file according to
+     * its NAME. A remote saved with a relative directory is located
+     * relative to the working directory of CTX. Return the REMOTE.
      */
-    public static Remote fromFile(String name) {
-        if (!Utils.join(Main.REMOTE, name).exists()) {
+    public static Remote fromFile(Context ctx, String name) {
+        File f = Utils.join(ctx.getRemote(), name);
+        if (!f.exists()) {
             throw new IllegalArgumentException(
                     "No remote file with that name found.");
         }
-        return Utils.readObject(Utils.join(Main.REMOTE, name), Remote.class);
+        Remote remote = Utils.readObject(f, Remote.class);
+        remote.locate(ctx, remote._repo);
+        return remote;
     }
 
 }
@@ -0,0 +1,316 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Finds the files that were renamed, and perhaps edited as well,
+ * between two sides of a comparison, given the files present only on
+ * the first side and those present only on the second. Files with the
+ * same blob pair up first. The rest are compared by MinHash sketches of
+ * their lines: each file is reduced to NUM_HASHES minimum hashes, the
+ * fraction of which two files share estimates the overlap of their
+ * lines. Sketches are cut into bands and a pair is only scored if some
+ * band of theirs is equal, so that thousands of added and removed files
+ * are not compared all against all. Sketching and scoring run on
+ * Workers.
+ * @author Jason Ding
+ */
+public final class Renames {
+
+    /** Environment variable holding the similarity, as a percentage,
+     * above which a removed and an added file count as a rename, or
+     * "off" to turn rename detection off.
+     */
+    static final String THRESHOLD_ENV = "GITLET_RENAME_THRESHOLD";
+    /** The similarity threshold used when none is given. */
+    static final int DEFAULT_THRESHOLD = 50;
+    /** The threshold that turns rename detection off. */
+    static final int OFF = -1;
+
+    /** Number of minimum hashes in a sketch. */
+    private static final int NUM_HASHES = 64;
+    /** The lowest threshold at which bands two hashes wide still find
+     * nearly every pair that reaches it; below it bands are one wide.
+     */
+    private static final int WIDE_BANDS = 30;
+    /** The seed of each of the NUM_HASHES hash functions. */
+    private static final long[] SEEDS = seeds();
+
+    /** A file found under a new name. */
+    public static final class Rename {
+        /** The name on the first side. */
+        private final String _from;
+        /** The name on the second side. */
+        private final String _to;
+        /** Similarity of the two versions, as a percentage. */
+        private final int _score;
+
+        /** FROM renamed to TO, with SCORE percent similarity. */
+        Rename(String from, String to, int score) {
+            _from = from;
+            _to = to;
+            _score = score;
+        }
+
+        /** Return the name on the first side. */
+        public String getFrom() {
+            return _from;
+        }
+
+        /** Return the name on the second side. */
+        public String getTo() {
+            return _to;
+        }
+
+        /** Return the similarity of the two versions, as a percentage. */
+        public int getScore() {
+            return _score;
+        }
+    }
+
+    /** Reads the contents of a file being compared. */
+    interface Loader {
+        /** Return the contents of the file NAME, whose blob is ID. */
+        byte[] load(String name, ObjectId id) throws IOException;
+    }
+
+    /** A file on one side, with its sketch once computed. */
+    private static final class Side {
+        /** The name of the file. */
+        private final String _name;
+        /** The blob of the file. */
+        private final ObjectId _id;
+        /** The sketch, or null if the file has no lines. */
+        private long[] _sketch;
+        /** The renames of this added file that reach the threshold. */
+        private final List<Rename> _candidates = new ArrayList<>();
+
+        /** The file NAME, whose blob is ID. */
+        Side(String name, ObjectId id) {
+            _name = name;
+            _id = id;
+        }
+    }
+
+    /** Not instantiable. */
+    private Renames() {
+    }
+
+    /** Return the threshold set by GITLET_RENAME_THRESHOLD, or
+     * DEFAULT_THRESHOLD if it is not set, or OFF.
+     */
+    static int threshold() {
+        String value = System.getenv(THRESHOLD_ENV);
+        if (value == null) {
+            return DEFAULT_THRESHOLD;
+        }
+        try {
+            return parseThreshold(value);
+        } catch (GitletException excp) {
+            throw Utils.error("%s must be a percentage or \"off\".",
+                    THRESHOLD_ENV);
+        }
+    }
+
+    /** Return the threshold written as TEXT: a percentage, with or
+     * without a trailing "%", or "off".
+     */
+    static int parseThreshold(String text) {
+        text = text.trim();
+        if (text.equals("off")) {
+            return OFF;
+        }
+        if (text.endsWith("%")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        try {
+            int result = Integer.parseInt(text);
+            if (result >= 0 && result <= 100) {
+                return result;
+            }
+        } catch (NumberFormatException excp) {
+            /* Reported below. */
+        }
+        throw Utils.error(
+                "A rename threshold must be a percentage or \"off\".");
+    }
+
+    /** Return the renames from the files REMOVED to the files ADDED,
+     * both maps from names to blobs, that are at least THRESHOLD percent
+     * similar, with contents read by LOADER. Each file is in at most one
+     * rename, the most similar pairs being taken first. The result is in
+     * order of the new names, and depends only on the inputs.
+     */
+    public static List<Rename> detect(Map<String, ObjectId> removed,
+                                      Map<String, ObjectId> added,
+                                      int threshold, Loader loader) {
+        ArrayList<Rename> result = new ArrayList<>();
+        if (threshold == OFF || removed.isEmpty() || added.isEmpty()) {
+            return result;
+        }
+        HashMap<ObjectId, ArrayDeque<String>> byId = new HashMap<>();
+        for (Map.Entry<String, ObjectId> e
+                : new TreeMap<>(removed).entrySet()) {
+            byId.computeIfAbsent(e.getValue(), k -> new ArrayDeque<>())
+                    .add(e.getKey());
+        }
+        HashSet<String> taken = new HashSet<>();
+        ArrayList<Side> news = new ArrayList<>();
+        for (Map.Entry<String, ObjectId> e
+                : new TreeMap<>(added).entrySet()) {
+            ArrayDeque<String> same = byId.get(e.getValue());
+            if (same != null && !same.isEmpty()) {
+                String from = same.poll();
+                taken.add(from);
+                result.add(new Rename(from, e.getKey(), 100));
+            } else {
+                news.add(new Side(e.getKey(), e.getValue()));
+            }
+        }
+        ArrayList<Side> olds = new ArrayList<>();
+        for (Map.Entry<String, ObjectId> e
+                : new TreeMap<>(removed).entrySet()) {
+            if (!taken.contains(e.getKey())) {
+                olds.add(new Side(e.getKey(), e.getValue()));
+            }
+        }
+        if (!olds.isEmpty() && !news.isEmpty()) {
+            result.addAll(similar(olds, news, threshold, loader));
+        }
+        result.sort(Comparator.comparing(Rename::getTo));
+        return result;
+    }
+
+    /** Return the renames from OLDS to NEWS, none of which has the same
+     * blob as another, that are at least THRESHOLD percent similar, with
+     * contents read by LOADER.
+     */
+    private static List<Rename> similar(List<Side> olds, List<Side> news,
+                                        int threshold, Loader loader) {
+        ArrayList<Side> all = new ArrayList<>(olds);
+        all.addAll(news);
+        Workers.forEach(all, s -> s._sketch =
+                sketch(loader.load(s._name, s._id)));
+        int rows = threshold >= WIDE_BANDS ? 2 : 1;
+        int bands = NUM_HASHES / rows;
+        ArrayList<HashMap<Long, List<Side>>> buckets = new ArrayList<>();
+        for (int b = 0; b < bands; b++) {
+            HashMap<Long, List<Side>> bucket = new HashMap<>();
+            for (Side s : olds) {
+                if (s._sketch != null) {
+                    bucket.computeIfAbsent(band(s._sketch, b, rows),
+                            k -> new ArrayList<>()).add(s);
+                }
+            }
+            buckets.add(bucket);
+        }
+        Workers.forEach(news, s -> {
+            if (s._sketch == null) {
+                return;
+            }
+            HashSet<Side> seen = new HashSet<>();
+            for (int b = 0; b < bands; b++) {
+                List<Side> bucket =
+                    buckets.get(b).get(band(s._sketch, b, rows));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Side o : bucket) {
+                    if (!seen.add(o)) {
+                        continue;
+                    }
+                    int score = score(o._sketch, s._sketch);
+                    if (score >= threshold) {
+                        s._candidates.add(new Rename(o._name, s._name,
+                                score));
+                    }
+                }
+            }
+        });
+        ArrayList<Rename> pairs = new ArrayList<>();
+        for (Side s : news) {
+            pairs.addAll(s._candidates);
+        }
+        pairs.sort(Comparator.comparing(Rename::getScore).reversed()
+                .thenComparing(Rename::getTo)
+                .thenComparing(Rename::getFrom));
+        HashSet<String> used = new HashSet<>();
+        ArrayList<Rename> result = new ArrayList<>();
+        for (Rename r : pairs) {
+            if (!used.contains(r._from) && !used.contains(r._to)) {
+                used.add(r._from);
+                used.add(r._to);
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    /** Return the MinHash sketch of the lines of DATA, or null if it
+     * has none. A line that occurs again is hashed with its count, so
+     * that repeated lines weigh as often as they occur.
+     */
+    static long[] sketch(byte[] data) {
+        int[] starts = Diff.lineStarts(data);
+        if (starts.length < 2) {
+            return null;
+        }
+        long[] result = new long[NUM_HASHES];
+        Arrays.fill(result, Long.MAX_VALUE);
+        HashMap<Long, Integer> seen = new HashMap<>();
+        for (int i = 0; i + 1 < starts.length; i++) {
+            long h = Hashing.fnv1a(data, starts[i], starts[i + 1]);
+            int n = seen.merge(h, 1, Integer::sum);
+            long shingle = Hashing.mix(h + n);
+            for (int k = 0; k < NUM_HASHES; k++) {
+                long v = Hashing.mix(shingle ^ SEEDS[k]);
+                if (v < result[k]) {
+                    result[k] = v;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the estimated similarity of the files with sketches A and
+     * B, as a percentage.
+     */
+    static int score(long[] a, long[] b) {
+        int same = 0;
+        for (int k = 0; k < NUM_HASHES; k++) {
+            if (a[k] == b[k]) {
+                same += 1;
+            }
+        }
+        return same * 100 / NUM_HASHES;
+    }
+
+    /** Return the key of band B of SKETCH, whose bands are ROWS hashes
+     * wide.
+     */
+    private static long band(long[] sketch, int b, int rows) {
+        long key = 0;
+        for (int k = b * rows; k < (b + 1) * rows; k++) {
+            key = Hashing.mix(key ^ sketch[k]);
+        }
+        return key;
+    }
+
+    /** Return NUM_HASHES distinct seeds. */
+    private static long[] seeds() {
+        long[] result = new long[NUM_HASHES];
+        for (int k = 0; k < NUM_HASHES; k++) {
+            result[k] = Hashing.mix((k + 1) * 0x9e3779b97f4a7c15L);
+        }
+        return result;
+    }
+
+}
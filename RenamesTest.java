@@ -0,0 +1,110 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of rename detection.
+ * @author Jason Ding
+ */
+public class RenamesTest {
+
+    /** The contents of the blobs stored so far, by id. */
+    private final HashMap<ObjectId, byte[]> _blobs = new HashMap<>();
+
+    /** Return the id of a blob holding CONTENTS, remembering it. */
+    private ObjectId store(String contents) {
+        ObjectId id = ObjectId.ofBlob(contents);
+        _blobs.put(id, contents.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    /** Return the renames from REMOVED to ADDED at THRESHOLD. */
+    private List<Renames.Rename> detect(Map<String, ObjectId> removed,
+                                        Map<String, ObjectId> added,
+                                        int threshold) {
+        return Renames.detect(removed, added, threshold,
+                (name, id) -> _blobs.get(id));
+    }
+
+    /** Return N numbered lines, each holding WORD. */
+    private static String lines(String word, int n) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            out.append(word).append(' ').append(i).append('\n');
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void renameAtExactlyTheThreshold() {
+        String before = lines("kept", 30) + lines("old", 10);
+        String after = lines("kept", 30) + lines("new", 10);
+        int score = Renames.score(
+                Renames.sketch(before.getBytes(StandardCharsets.UTF_8)),
+                Renames.sketch(after.getBytes(StandardCharsets.UTF_8)));
+        assertTrue("similar but not equal", score > 0 && score < 100);
+        Map<String, ObjectId> removed = Map.of("a.txt", store(before));
+        Map<String, ObjectId> added = Map.of("b.txt", store(after));
+
+        List<Renames.Rename> found = detect(removed, added,
+                Renames.parseThreshold(score + "%"));
+        assertEquals(1, found.size());
+        assertEquals("a.txt", found.get(0).getFrom());
+        assertEquals("b.txt", found.get(0).getTo());
+        assertEquals(score, found.get(0).getScore());
+
+        assertEquals(0, detect(removed, added,
+                Renames.parseThreshold(Integer.toString(score + 1))).size());
+    }
+
+    @Test
+    public void mostSimilarOfTwoCandidatesWins() {
+        String source = lines("line", 40);
+        Map<String, ObjectId> removed = Map.of("old.txt", store(source));
+        Map<String, ObjectId> added = Map.of(
+                "close.txt", store(lines("line", 38) + lines("x", 2)),
+                "far.txt", store(lines("line", 28) + lines("y", 12)));
+        List<Renames.Rename> found = detect(removed, added, 50);
+        assertEquals(1, found.size());
+        assertEquals("old.txt", found.get(0).getFrom());
+        assertEquals("close.txt", found.get(0).getTo());
+    }
+
+    @Test
+    public void exactCopyIsClaimedOnce() {
+        ObjectId id = store(lines("same", 5));
+        List<Renames.Rename> found = detect(Map.of("old.txt", id),
+                Map.of("b.txt", id, "a.txt", id), 50);
+        assertEquals(1, found.size());
+        assertEquals("a.txt", found.get(0).getTo());
+        assertEquals(100, found.get(0).getScore());
+    }
+
+    @Test
+    public void badThresholdsAreReportedToTheUser() {
+        for (String bad : new String[] {"abc", "101", "-1", "50%%", ""}) {
+            try {
+                Renames.parseThreshold(bad);
+                fail(bad + " accepted");
+            } catch (GitletException excp) {
+                assertTrue(excp.getMessage().contains("percentage"));
+            }
+        }
+        assertEquals(0, Renames.parseThreshold(" 0% "));
+        assertEquals(100, Renames.parseThreshold("100"));
+    }
+
+    @Test
+    public void offDetectsNothing() {
+        ObjectId id = store(lines("same", 5));
+        assertEquals(Renames.OFF, Renames.parseThreshold("off"));
+        assertEquals(0, detect(Map.of("a", id), Map.of("b", id),
+                Renames.OFF).size());
+    }
+
+}
@@ -0,0 +1,172 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/** A lock on the whole repository, held for the duration of a command.
+ * Commands that only read take a shared lock and may run together;
+ * commands that write take an exclusive lock and run one at a time.
+ * Within a process, each repository has a read-write lock that threads
+ * take first, and the holders share one lock on the lock file that
+ * keeps other processes out. Locks are reentrant within a thread.
+ * Waiting gives up after GITLET_LOCK_TIMEOUT milliseconds.
+ * @author Jason Ding
+ */
+class RepoLock implements AutoCloseable {
+
+    /** Environment variable holding the lock timeout in milliseconds. */
+    static final String TIMEOUT_ENV = "GITLET_LOCK_TIMEOUT";
+    /** The default lock timeout in milliseconds. */
+    static final long DEFAULT_TIMEOUT = 10000;
+    /** Milliseconds to wait between attempts to take the lock. */
+    private static final long POLL = 20;
+
+    /** The lock state of each repository used in this process, by the
+     * absolute path of its lock file. */
+    private static final ConcurrentHashMap<String, State> STATES =
+        new ConcurrentHashMap<>();
+
+    /** The lock state of one repository within this process. */
+    private static class State {
+        /** The lock taken by threads of this process. */
+        private final ReentrantReadWriteLock _threads =
+            new ReentrantReadWriteLock();
+        /** The channel of the lock file while it is locked, or null. */
+        private FileChannel _channel;
+        /** The lock held on the lock file, or null. */
+        private FileLock _lock;
+        /** Number of holds on the file lock. */
+        private int _holders;
+    }
+
+    /** The state of the locked repository. */
+    private State _state;
+    /** The lock taken in _state._threads. */
+    private Lock _held;
+
+    /** A hold of HELD in the lock state STATE. */
+    private RepoLock(State state, Lock held) {
+        _state = state;
+        _held = held;
+    }
+
+    /** Lock the repository CTX, sharing the lock with other readers if
+     * SHARED, waiting at most the configured timeout. Return the lock.
+     */
+    static RepoLock acquire(Context ctx, boolean shared) {
+        return acquire(ctx, shared, timeout());
+    }
+
+    /** Lock the repository CTX, sharing the lock with other readers if
+     * SHARED, waiting at most TIMEOUT milliseconds. Return the lock.
+     */
+    static RepoLock acquire(Context ctx, boolean shared, long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        File file = ctx.getLock().getAbsoluteFile();
+        State state = STATES.computeIfAbsent(file.getPath(),
+            k -> new State());
+        Lock held = shared ? state._threads.readLock()
+                : state._threads.writeLock();
+        try {
+            if (!held.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+                throw busy();
+            }
+            try {
+                synchronized (state) {
+                    if (state._holders == 0) {
+                        lockFile(state, file, shared, deadline);
+                    }
+                    state._holders += 1;
+                }
+            } catch (RuntimeException excp) {
+                held.unlock();
+                throw excp;
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw Utils.error("Interrupted while locking the repository.");
+        }
+        return new RepoLock(state, held);
+    }
+
+    /** Take the lock on the lock file FILE for STATE, shared with other
+     * processes if SHARED, polling until DEADLINE.
+     */
+    private static void lockFile(State state, File file, boolean shared,
+                                 long deadline)
+        throws InterruptedException {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            while (true) {
+                FileLock lock = null;
+                try {
+                    lock = channel.tryLock(0, Long.MAX_VALUE, shared);
+                } catch (OverlappingFileLockException excp) {
+                    lock = null;
+                }
+                if (lock != null) {
+                    state._channel = channel;
+                    state._lock = lock;
+                    return;
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    channel.close();
+                    throw busy();
+                }
+                Thread.sleep(POLL);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the error reported when the lock is not free in time. */
+    private static GitletException busy() {
+        return Utils.error("Unable to lock the repository; "
+                + "another gitlet command is running.");
+    }
+
+    /** Return the configured lock timeout in milliseconds. */
+    static long timeout() {
+        String value = System.getenv(TIMEOUT_ENV);
+        if (value == null) {
+            return DEFAULT_TIMEOUT;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException excp) {
+            throw Utils.error("%s must be a number.", TIMEOUT_ENV);
+        }
+    }
+
+    /** Release the lock, and the lock file with the last hold. */
+    @Override
+    public void close() {
+        try {
+            synchronized (_state) {
+                _state._holders -= 1;
+                if (_state._holders == 0) {
+                    _state._lock.release();
+                    _state._channel.close();
+                    _state._lock = null;
+                    _state._channel = null;
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            _held.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the repository lock.
+ * @author Jason Ding
+ */
+public class RepoLockTest {
+
+    /** Milliseconds a refused writer waits before giving up. */
+    private static final long WAIT = 200;
+
+    /** Holds the lock of the repository in the working directory
+     * ARGS[0] for a minute, as a separate process.
+     */
+    public static class Holder {
+        /** Lock the repository named by ARGS, report it, and wait. */
+        public static void main(String[] args) throws Exception {
+            RepoLock.acquire(new Context(new File(args[0])), false);
+            System.out.println("locked");
+            System.out.flush();
+            Thread.sleep(60 * 1000);
+        }
+    }
+
+    /** Return whether a writer can lock CTX within WAIT. */
+    private static boolean canLock(Context ctx) {
+        try (RepoLock lock = RepoLock.acquire(ctx, false, WAIT)) {
+            return true;
+        } catch (GitletException excp) {
+            return false;
+        }
+    }
+
+    @Test
+    public void secondWriterInTheProcessIsRefused() throws Exception {
+        Context ctx = UnitTest.tempRepository();
+        AtomicReference<Boolean> other = new AtomicReference<>();
+        try (RepoLock lock = RepoLock.acquire(ctx, false)) {
+            Thread t = new Thread(() -> other.set(canLock(ctx)));
+            t.start();
+            t.join();
+            assertFalse(other.get());
+        }
+        assertTrue(canLock(ctx));
+    }
+
+    @Test
+    public void writerIsRefusedWhileTheLockFileIsHeld() throws IOException {
+        Context ctx = UnitTest.tempRepository();
+        try (FileChannel ch = FileChannel.open(ctx.getLock().toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock held = ch.lock()) {
+            assertFalse(canLock(ctx));
+        }
+        assertTrue(canLock(ctx));
+    }
+
+    @Test
+    public void lockOfADeadProcessIsReclaimed() throws Exception {
+        Context ctx = UnitTest.tempRepository();
+        Process holder = new ProcessBuilder(
+                Utils.join(System.getProperty("java.home"), "bin", "java")
+                .getPath(), "-cp", System.getProperty("java.class.path"),
+                Holder.class.getName(), ctx.getCwd().getPath())
+                .redirectErrorStream(true).start();
+        try {
+            BufferedReader out = new BufferedReader(
+                    new InputStreamReader(holder.getInputStream()));
+            assertEquals("locked", out.readLine());
+            assertFalse(canLock(ctx));
+        } finally {
+            holder.destroyForcibly();
+            holder.waitFor();
+        }
+        assertTrue(ctx.getLock().exists());
+        assertTrue(canLock(ctx));
+    }
+
+}
@@ -0,0 +1,1738 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.PatternSyntaxException;
+
+/** A Gitlet repository that can be driven from Java code. Every
+ * operation locks the repository for its duration, returns its result
+ * as data rather than printing it, and reports failures by throwing a
+ * GitletException whose message is the one the command line prints.
+ * Any number of repositories may be open in one process; each has its
+ * own cached state and lock. gitlet.Main is a command-line front end to
+ * this class.
+ * @author Jason Ding
+ */
+public class Repository {
+
+    /** The ways find can match commit messages. */
+    public enum FindMode {
+        /** The whole message equals the query. */
+        EXACT,
+        /** The message contains every word of the query. */
+        TOKEN,
+        /** The message contains the query. */
+        SUBSTRING,
+        /** The message contains a match of the query as a regex. */
+        REGEX
+    }
+
+    /** The outcomes of a merge. */
+    public enum MergeResult {
+        /** The given branch was already part of the current one. */
+        ALREADY_MERGED,
+        /** The current branch was moved to the given branch's head. */
+        FAST_FORWARD,
+        /** A merge commit was made without conflicts. */
+        MERGED,
+        /** A merge commit was made and some files had conflicts. */
+        CONFLICT
+    }
+
+    /** The ways a file can differ between two commits. */
+    public enum Change {
+        /** The file only exists in the second commit. */
+        ADDED,
+        /** The file has different contents in the two commits. */
+        MODIFIED,
+        /** The file only exists in the first commit. */
+        REMOVED,
+        /** The file was moved to a new name, and perhaps changed. */
+        RENAMED
+    }
+
+    /** The state of the repository as reported by status. */
+    public static class Status {
+        /** The current branch. */
+        private String _current;
+        /** All branches, sorted. */
+        private List<String> _branches = new ArrayList<>();
+        /** Files staged for addition. */
+        private List<String> _staged = new ArrayList<>();
+        /** Files staged for removal. */
+        private List<String> _removed = new ArrayList<>();
+        /** Unstaged changes: files mapped to "modified" or "deleted". */
+        private TreeMap<String, String> _notStaged = new TreeMap<>();
+        /** Files that are neither tracked nor staged. */
+        private List<String> _untracked = new ArrayList<>();
+        /** Staged or untracked files found to be renamed, mapped to their
+         * old names. */
+        private TreeMap<String, String> _renamed = new TreeMap<>();
+
+        /** Return the current branch. */
+        public String getCurrent() {
+            return _current;
+        }
+
+        /** Return all branches, sorted. */
+        public List<String> getBranches() {
+            return _branches;
+        }
+
+        /** Return the files staged for addition. */
+        public List<String> getStaged() {
+            return _staged;
+        }
+
+        /** Return the files staged for removal. */
+        public List<String> getRemoved() {
+            return _removed;
+        }
+
+        /** Return the files with unstaged changes, each mapped to
+         * "modified" or "deleted", in name order.
+         */
+        public TreeMap<String, String> getNotStaged() {
+            return _notStaged;
+        }
+
+        /** Return the untracked files. */
+        public List<String> getUntracked() {
+            return _untracked;
+        }
+
+        /** Return the staged and untracked files that are renamed copies
+         * of files staged for removal or deleted, mapped to the names they
+         * had, if renames were looked for.
+         */
+        public TreeMap<String, String> getRenamed() {
+            return _renamed;
+        }
+    }
+
+    /** A file that differs between the two sides of a diff, with its
+     * contents on each side.
+     */
+    public static class FileDiff {
+        /** The name of the file. */
+        private final String _name;
+        /** The name of the file on the first side. */
+        private final String _oldName;
+        /** Similarity of the two sides of a rename, as a percentage. */
+        private final int _similarity;
+        /** The blob on the first side, or null if it is absent. */
+        private final ObjectId _oldId;
+        /** The blob on the second side, or null if it is absent. */
+        private final ObjectId _newId;
+        /** The contents on the first side, empty if it is absent. */
+        private final byte[] _old;
+        /** The contents on the second side, empty if it is absent. */
+        private final byte[] _new;
+
+        /** The file NAME, which is OLDID holding OLD on the first side
+         * and NEWID holding NEW on the second.
+         */
+        FileDiff(String name, ObjectId oldId, byte[] old, ObjectId newId,
+                 byte[] nu) {
+            this(name, name, 0, oldId, old, newId, nu);
+        }
+
+        /** The file OLDNAME renamed to NAME, with SIMILARITY percent of
+         * it the same, which is OLDID holding OLD on the first side and
+         * NEWID holding NEW on the second.
+         */
+        FileDiff(String name, String oldName, int similarity,
+                 ObjectId oldId, byte[] old, ObjectId newId, byte[] nu) {
+            _name = name;
+            _oldName = oldName;
+            _similarity = similarity;
+            _oldId = oldId;
+            _newId = newId;
+            _old = old;
+            _new = nu;
+        }
+
+        /** Return the name of the file. */
+        public String getName() {
+            return _name;
+        }
+
+        /** Return the name of the file on the first side, which differs
+         * from its name if it was renamed.
+         */
+        public String getOldName() {
+            return _oldName;
+        }
+
+        /** Return the similarity of the two sides of a rename, as a
+         * percentage.
+         */
+        public int getSimilarity() {
+            return _similarity;
+        }
+
+        /** Return how the file changed. */
+        public Change getChange() {
+            return _oldId == null ? Change.ADDED
+                    : _newId == null ? Change.REMOVED
+                    : !_oldName.equals(_name) ? Change.RENAMED
+                    : Change.MODIFIED;
+        }
+
+        /** Return the blob on the first side, or null. */
+        public ObjectId getOldId() {
+            return _oldId;
+        }
+
+        /** Return the blob on the second side, or null. */
+        public ObjectId getNewId() {
+            return _newId;
+        }
+
+        /** Return the contents on the first side. */
+        public byte[] getOld() {
+            return _old;
+        }
+
+        /** Return the contents on the second side. */
+        public byte[] getNew() {
+            return _new;
+        }
+    }
+
+    /** The outcome of a merge made by mergeTree. */
+    public static class MergeTree {
+        /** How the merge went. */
+        private final MergeResult _result;
+        /** The head of the branch merged into afterwards. */
+        private final ObjectId _head;
+        /** The files with conflicts, in name order. */
+        private final List<String> _conflicts;
+
+        /** A merge that went as RESULT, leaving the branch at HEAD, with
+         * conflicts in the files CONFLICTS.
+         */
+        MergeTree(MergeResult result, ObjectId head,
+                  List<String> conflicts) {
+            _result = result;
+            _head = head;
+            _conflicts = conflicts;
+        }
+
+        /** Return how the merge went. */
+        public MergeResult getResult() {
+            return _result;
+        }
+
+        /** Return the head of the branch merged into, which is the merge
+         * commit if one was made.
+         */
+        public ObjectId getHead() {
+            return _head;
+        }
+
+        /** Return the files with conflicts, in name order. */
+        public List<String> getConflicts() {
+            return _conflicts;
+        }
+    }
+
+    /** How a merge changes the files of the branch merged into. */
+    private static final class Resolution {
+        /** Files added or replaced, mapped to their new blobs. */
+        private final HashMap<String, ObjectId> _changed = new HashMap<>();
+        /** Files removed, mapped to their current blobs. */
+        private final HashMap<String, ObjectId> _removed = new HashMap<>();
+        /** The files with conflicts, in name order. */
+        private final List<String> _conflicts = new ArrayList<>();
+    }
+
+    /** A file changed on both sides of a merge, to be merged line by
+     * line.
+     */
+    private static final class FileMerge {
+        /** The name of the file. */
+        private final String _name;
+        /** Its blob at the split point, or null. */
+        private final ObjectId _split;
+        /** Its blob in the branch merged in, or null. */
+        private final ObjectId _given;
+        /** Its blob in the current branch, or null. */
+        private final ObjectId _current;
+        /** The blob of the merged file, once merged. */
+        private ObjectId _merged;
+        /** Whether the merged file has conflict markers. */
+        private boolean _conflicted;
+
+        /** The file NAME, which is SPLIT at the split point, GIVEN in
+         * the branch merged in and CURRENT in the current branch.
+         */
+        FileMerge(String name, ObjectId split, ObjectId given,
+                  ObjectId current) {
+            _name = name;
+            _split = split;
+            _given = given;
+            _current = current;
+        }
+    }
+
+    /** Version of the on-disk format of objects, refs and stages,
+     * written to the format file of each new repository. It goes up
+     * whenever one of them changes shape; repositories of any other
+     * version are refused rather than misread, except those made
+     * before formats were versioned, which are upgraded.
+     */
+    static final int FORMAT = 1;
+    /** Milliseconds within which a file may be rewritten without its
+     * modification time changing, the coarsest being that of FAT.
+     */
+    private static final long MTIME_GRANULARITY = 2000;
+
+    /** The files of this repository. */
+    private final Context _ctx;
+    /** Serializes the operations of this object, which share the
+     * cached branch and stage. Other objects, including those opened on
+     * the same repository, run independently. */
+    private final ReentrantLock _mutex = new ReentrantLock();
+    /** The staging area of the current branch. */
+    private Stage _stagingArea;
+    /** The current branch. */
+    private Branch _branch;
+    /** Fingerprint of the files _branch and _stagingArea were loaded
+     * from, or null if they must be reloaded. */
+    private String _loaded;
+    /** The lock held by the outermost running operation, or null. */
+    private RepoLock _lock;
+
+    /** The repository whose files are CTX, with its state loaded on
+     * first use.
+     */
+    private Repository(Context ctx) {
+        _ctx = ctx;
+    }
+
+    /** Create a new repository in the working directory DIR and return
+     * it.
+     */
+    public static Repository init(File dir) throws IOException {
+        Context ctx = new Context(dir);
+        if (ctx.getRepo().exists()) {
+            throw Utils.error("A Gitlet version-control system "
+                    + "already exists in the current directory.");
+        }
+        ctx.getRepo().mkdir();
+        ctx.getObjects().mkdir();
+        ctx.getStage().mkdir();
+        ctx.getRemote().mkdir();
+        ctx.getLogs().mkdir();
+        ctx.getBranch().mkdir();
+        WriteBatch.writeDurable(ctx.getFormat(),
+                (FORMAT + "\n").getBytes(StandardCharsets.UTF_8));
+        Commit initial = new Commit(ctx, "initial commit", null);
+        new Stage(ctx, "master");
+        Branch b = new Branch("master", initial.getSha1());
+        b.saveBranch(ctx);
+        WriteBatch.writeDurable(ctx.getCurrentBranch(),
+                "master".getBytes(StandardCharsets.UTF_8));
+        return new Repository(ctx);
+    }
+
+    /** Return the repository in the working directory DIR. */
+    public static Repository open(File dir) {
+        Context ctx = new Context(dir);
+        if (!ctx.getRepo().exists()) {
+            throw Utils.error("Not in an initialized Gitlet directory.");
+        }
+        checkFormat(ctx);
+        return new Repository(ctx);
+    }
+
+    /** Return the format of the repository CTX: the contents of its
+     * format file, or "0" if it has none.
+     */
+    private static String format(Context ctx) {
+        return ctx.getFormat().isFile()
+            ? Utils.readContentsAsString(ctx.getFormat()).trim() : "0";
+    }
+
+    /** Check that the repository CTX has the format this version
+     * reads, first upgrading it, under its exclusive lock, if it
+     * predates versioned formats.
+     */
+    static void checkFormat(Context ctx) {
+        String format = format(ctx);
+        if (format.equals("0")) {
+            try (RepoLock lock = RepoLock.acquire(ctx, false)) {
+                if (format(ctx).equals("0")) {
+                    Migration.upgrade(ctx);
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            format = format(ctx);
+        }
+        if (!format.equals(Integer.toString(FORMAT))) {
+            throw Utils.error("Repository format %s is not supported; "
+                    + "this version of Gitlet reads format %d.",
+                    format, FORMAT);
+        }
+    }
+
+    /** Return the working directory of this repository. */
+    public File getWorkingDirectory() {
+        return _ctx.getCwd();
+    }
+
+    /** Return the files of this repository. */
+    Context context() {
+        return _ctx;
+    }
+
+    /** Lock the repository for an operation, shared with other readers
+     * if SHARED, and make sure the current branch and stage are up to
+     * date. Operations nested in one that holds the lock reuse it.
+     * Return the hold to close when the operation ends.
+     */
+    Hold hold(boolean shared) {
+        _mutex.lock();
+        if (_mutex.getHoldCount() == 1) {
+            try (Stats.Phase p = Stats.phase("lock")) {
+                _lock = RepoLock.acquire(_ctx, shared);
+            } catch (RuntimeException excp) {
+                _mutex.unlock();
+                throw excp;
+            }
+            try (Stats.Phase p = Stats.phase("load refs")) {
+                if (_loaded == null || !_loaded.equals(refStamp())) {
+                    _branch = Branch.fromFile(_ctx, null);
+                    _stagingArea = Stage.fromFile(_ctx, _branch.getName());
+                }
+            } catch (RuntimeException excp) {
+                _lock.close();
+                _mutex.unlock();
+                throw excp;
+            }
+            _loaded = null;
+        }
+        return new Hold();
+    }
+
+    /** The use of the repository lock by one operation. */
+    class Hold implements AutoCloseable {
+        /** Whether the operation completed. */
+        private boolean _done;
+
+        /** Record that the operation completed without an error. */
+        void done() {
+            _done = true;
+        }
+
+        /** Release the lock if this is the outermost operation. After a
+         * failed operation the branch and stage are reloaded next time.
+         */
+        @Override
+        public void close() {
+            try {
+                if (_mutex.getHoldCount() == 1) {
+                    _loaded = _done ? refStamp() : null;
+                    _lock.close();
+                    _lock = null;
+                }
+            } finally {
+                _mutex.unlock();
+            }
+        }
+    }
+
+    /** Return a fingerprint of the current branch and stage files that
+     * changes whenever either is rewritten, or null if one of them was
+     * modified so recently that it could be rewritten again with the
+     * same length and modification time. The files must then be read
+     * again next time.
+     */
+    private String refStamp() {
+        String name = Utils.readContentsAsString(_ctx.getCurrentBranch());
+        File b = Utils.join(_ctx.getBranch(), name);
+        File s = Utils.join(_ctx.getStage(), name);
+        long racy = System.currentTimeMillis() - MTIME_GRANULARITY;
+        if (b.lastModified() >= racy || s.lastModified() >= racy) {
+            return null;
+        }
+        return name + ":" + b.lastModified() + ":" + b.length()
+                + ":" + s.lastModified() + ":" + s.length();
+    }
+
+    /** Return the name of the current branch. */
+    public String currentBranch() {
+        try (Hold h = hold(true)) {
+            h.done();
+            return _branch.getName();
+        }
+    }
+
+    /** Return the id of the head commit of the current branch. */
+    public ObjectId head() {
+        try (Hold h = hold(true)) {
+            h.done();
+            return _branch.getHead();
+        }
+    }
+
+    /** Stage the working file FILE for addition. */
+    public void add(String file) throws IOException {
+        try (Hold h = hold(false)) {
+            File f = Utils.join(_ctx.getCwd(), file);
+            if (!f.exists()) {
+                throw Utils.error("File does not exist.");
+            }
+            Blob b = new Blob(_ctx, f);
+            ObjectId tracked = Commit.fromFile(_ctx, _branch.getHead()).
+                    getFiles().get(file);
+            if (_stagingArea.getCurrStage().containsKey(file)) {
+                if (b.isDiff(_stagingArea.getCurrStage().get(file))) {
+                    _stagingArea.remove(file);
+                    _stagingArea.put(file, b.getName());
+                }
+                if (!b.isDiff(tracked)) {
+                    _stagingArea.remove(file);
+                }
+            } else if (b.isDiff(tracked)) {
+                _stagingArea.put(file, b.getName());
+            } else if (_stagingArea.getRemoveStage().containsKey(file)) {
+                _stagingArea.getRemoveStage().remove(file);
+                _stagingArea.update();
+            }
+            h.done();
+        }
+    }
+
+    /** Commit the staged changes with MESSAGE. Return the new commit. */
+    public Commit commit(String message) throws IOException {
+        try (Hold h = hold(false)) {
+            if (_stagingArea.getCurrStage().isEmpty()
+                    && _stagingArea.getRemoveStage().isEmpty()) {
+                throw Utils.error("No changes added to the commit.");
+            }
+            if (message == null || message.trim().isEmpty()) {
+                throw Utils.error("Please enter a commit message.");
+            }
+            Commit c;
+            try (Stats.Phase p = Stats.phase("write commit");
+                 WriteBatch batch = WriteBatch.begin()) {
+                PathTable headFiles =
+                    Commit.fromFile(_ctx, _branch.getHead()).getFiles();
+                c = new Commit(_ctx, message, _branch.getHead(), null,
+                        headFiles, headFiles.with(_stagingArea.getCurrStage(),
+                                _stagingArea.getRemoveStage()));
+                batch.sync();
+            }
+            _branch.changeHead(_ctx, c.getSha1());
+            _stagingArea.getCurrStage().clear();
+            _stagingArea.getRemoveStage().clear();
+            _stagingArea.update();
+            h.done();
+            return c;
+        }
+    }
+
+    /** Unstage FILE, and if it is tracked, stage it for removal and
+     * delete it from the working directory.
+     */
+    public void rm(String file) {
+        try (Hold h = hold(false)) {
+            boolean removed = false;
+            if (_stagingArea.getCurrStage().containsKey(file)) {
+                removed = true;
+                _stagingArea.remove(file);
+            }
+            ObjectId tracked = Commit.fromFile(_ctx, _branch.getHead()).
+                    getFiles().get(file);
+            if (tracked != null) {
+                removed = true;
+                _stagingArea.toRemove(file, tracked);
+                Utils.restrictedDelete(Utils.join(_ctx.getCwd(), file));
+            }
+            if (!removed) {
+                throw Utils.error("No reason to remove the file.");
+            }
+            h.done();
+        }
+    }
+
+    /** Return the first-parent history of the current branch, newest
+     * first, limited to the commits that changed one of PATHS unless it
+     * is empty. The history must be closed when done with; it may be read
+     * after the lock is released, since the log is only appended to.
+     */
+    public CommitLog.History log(List<String> paths) {
+        try (Hold h = hold(true)) {
+            h.done();
+            return CommitLog.history(_ctx, _branch.getHead(), paths);
+        }
+    }
+
+    /** Return every commit ever made, in the order they were made. The
+     * log is streamed from disk as it is iterated.
+     */
+    public CommitLog globalLog() {
+        try (Hold h = hold(true)) {
+            h.done();
+            return CommitLog.open(_ctx);
+        }
+    }
+
+    /** Return the ids of the commits whose messages match QUERY in the
+     * way given by MODE.
+     */
+    public List<ObjectId> find(FindMode mode, String query) {
+        try (Hold h = hold(true)) {
+            List<ObjectId> found = new ArrayList<>();
+            switch (mode) {
+            case TOKEN:
+                found = MessageIndex.findTokens(_ctx, query);
+                break;
+            case SUBSTRING:
+                found = MessageIndex.findSubstring(_ctx, query);
+                break;
+            case REGEX:
+                try {
+                    found = MessageIndex.findRegex(_ctx, query);
+                } catch (PatternSyntaxException excp) {
+                    throw Utils.error("Invalid regular expression.");
+                }
+                break;
+            default:
+                for (CommitLog.Entry com : CommitLog.open(_ctx)) {
+                    if (com.getMessage().equals(query)) {
+                        found.add(com.getSha1());
+                    }
+                }
+            }
+            h.done();
+            return found;
+        }
+    }
+
+    /** Return the status of the repository. */
+    public Status status() {
+        return status(Renames.OFF);
+    }
+
+    /** Return the state of the repository, as status does, also pairing
+     * staged files with files staged for removal, and untracked files
+     * with deleted ones, that are at least THRESHOLD percent similar,
+     * unless THRESHOLD is Renames.OFF.
+     */
+    public Status status(int threshold) {
+        try (Hold h = hold(true)) {
+            Status st = new Status();
+            st._current = _branch.getName();
+            st._branches.addAll(Arrays.asList(_ctx.getBranch().list()));
+            Collections.sort(st._branches);
+            st._staged.addAll(_stagingArea.getCurrStage().keySet());
+            st._removed.addAll(_stagingArea.getRemoveStage().keySet());
+            PathTable tracked =
+                    Commit.fromFile(_ctx, _branch.getHead()).getFiles();
+            try (Stats.Phase p = Stats.phase("hash working files")) {
+                PathTable.Join j = PathTable.join(tracked,
+                        PathTable.of(_stagingArea.getCurrStage()),
+                        PathTable.of(_stagingArea.getRemoveStage()));
+                while (j.next()) {
+                    ObjectId expected = j.id(1) != null ? j.id(1) : j.id(0);
+                    if (expected == null) {
+                        continue;
+                    }
+                    File wf = Utils.join(_ctx.getCwd(), j.name());
+                    if (!wf.exists()) {
+                        if (j.id(1) != null || j.id(2) == null) {
+                            st._notStaged.put(j.name(), "deleted");
+                        }
+                    } else if (!expected.equals(hash(wf))) {
+                        st._notStaged.put(j.name(), "modified");
+                    }
+                }
+            }
+            try (Stats.Phase p = Stats.phase("untracked files")) {
+                for (String f : _ctx.getCwd().list()) {
+                    if (!f.startsWith(".")
+                            && !Utils.join(_ctx.getCwd(), f).isDirectory()
+                            && !f.endsWith(".iml") && !f.equals("Makefile")
+                            && !tracked.contains(f)
+                            && !_stagingArea.getCurrStage().containsKey(f)) {
+                        st._untracked.add(f);
+                    }
+                }
+            }
+            Collections.sort(st._untracked);
+            if (threshold != Renames.OFF) {
+                try (Stats.Phase p = Stats.phase("find renames")) {
+                    findRenames(st, tracked, threshold);
+                }
+            }
+            h.done();
+            return st;
+        }
+    }
+
+    /** Record in ST the renames among its staged and untracked files of
+     * at least THRESHOLD percent, given the files TRACKED by the head.
+     */
+    private void findRenames(Status st, PathTable tracked, int threshold) {
+        HashMap<String, ObjectId> added = new HashMap<>();
+        for (String f : st._staged) {
+            if (!tracked.contains(f)) {
+                added.put(f, _stagingArea.getCurrStage().get(f));
+            }
+        }
+        for (Renames.Rename r : Renames.detect(
+                _stagingArea.getRemoveStage(), added, threshold,
+                (f, id) -> Blob.bytesFromFile(_ctx, id))) {
+            st._renamed.put(r.getTo(), r.getFrom());
+        }
+        HashMap<String, ObjectId> deleted = new HashMap<>();
+        for (Map.Entry<String, String> e : st._notStaged.entrySet()) {
+            if (e.getValue().equals("deleted")) {
+                ObjectId id = _stagingArea.getCurrStage().get(e.getKey());
+                deleted.put(e.getKey(),
+                        id != null ? id : tracked.get(e.getKey()));
+            }
+        }
+        HashMap<String, ObjectId> untracked = new HashMap<>();
+        for (String f : st._untracked) {
+            untracked.put(f, hash(Utils.join(_ctx.getCwd(), f)));
+        }
+        for (Renames.Rename r : Renames.detect(deleted, untracked,
+                threshold, (f, id) -> untracked.containsKey(f)
+                        ? Utils.readContents(Utils.join(_ctx.getCwd(), f))
+                        : Blob.bytesFromFile(_ctx, id))) {
+            st._renamed.put(r.getTo(), r.getFrom());
+        }
+    }
+
+    /** Return the name the working file F would have as a blob. */
+    private static ObjectId hash(File f) {
+        return ObjectId.ofBlob(Utils.readContents(f));
+    }
+
+    /** Return how the files of commit FROM differ from those of commit
+     * TO, both given as ids or unique prefixes, in name order.
+     */
+    public TreeMap<String, Change> diff(String from, String to) {
+        try (Hold h = hold(true)) {
+            PathTable.Join j = PathTable.join(
+                    Commit.fromFile(_ctx, resolveCommit(from)).getFiles(),
+                    Commit.fromFile(_ctx, resolveCommit(to)).getFiles());
+            TreeMap<String, Change> result = new TreeMap<>();
+            while (j.nextChanged()) {
+                result.put(j.name(), j.id(0) == null ? Change.ADDED
+                        : j.id(1) == null ? Change.REMOVED : Change.MODIFIED);
+            }
+            h.done();
+            return result;
+        }
+    }
+
+    /** Return the files that differ between FROM and TO, with their
+     * contents, in name order. FROM and TO are commit ids or unique
+     * prefixes. A null FROM stands for the files as staged, i.e. the head
+     * commit with the staging area applied; a null TO stands for the
+     * working copies of the files tracked or staged. If PATHS is not
+     * empty, only the files it names are compared. Files whose blobs are
+     * the same on both sides are skipped without being read. A file only
+     * on the first side and one only on the second that are at least
+     * THRESHOLD percent similar are shown as a rename, unless THRESHOLD
+     * is Renames.OFF.
+     */
+    public List<FileDiff> diffFiles(String from, String to,
+                                    Collection<String> paths,
+                                    int threshold) {
+        try (Hold h = hold(true)) {
+            PathTable staged = Commit.fromFile(_ctx, _branch.getHead()).
+                    getFiles().with(_stagingArea.getCurrStage(),
+                            _stagingArea.getRemoveStage());
+            PathTable a = from == null ? staged
+                    : Commit.fromFile(_ctx, resolveCommit(from)).getFiles();
+            PathTable b;
+            try (Stats.Phase p = Stats.phase("hash working files")) {
+                b = to != null
+                        ? Commit.fromFile(_ctx, resolveCommit(to)).getFiles()
+                        : working(staged, paths);
+            }
+            ArrayList<String> names = new ArrayList<>();
+            ArrayList<ObjectId> olds = new ArrayList<>();
+            ArrayList<ObjectId> news = new ArrayList<>();
+            try (Stats.Phase p = Stats.phase("diff")) {
+                PathTable.Join j = PathTable.join(a, b);
+                while (j.nextChanged()) {
+                    String f = j.name();
+                    if (paths.isEmpty() || paths.contains(f)) {
+                        names.add(f);
+                        olds.add(j.id(0));
+                        news.add(j.id(1));
+                    }
+                }
+            }
+            ArrayList<FileDiff> result = new ArrayList<>();
+            try (Stats.Phase p = Stats.phase("read blobs")) {
+                ArrayList<ObjectId> needed = new ArrayList<>(olds);
+                if (to != null) {
+                    needed.addAll(news);
+                }
+                Remote.prefetch(_ctx, needed);
+                for (int i = 0; i < names.size(); i++) {
+                    ObjectId o = olds.get(i);
+                    ObjectId n = news.get(i);
+                    byte[] nu = n == null ? new byte[0] : to == null
+                            ? Utils.readContents(
+                                    Utils.join(_ctx.getCwd(), names.get(i)))
+                            : Blob.bytesFromFile(_ctx, n);
+                    result.add(new FileDiff(names.get(i), o, o == null
+                            ? new byte[0] : Blob.bytesFromFile(_ctx, o),
+                            n, nu));
+                }
+            }
+            if (threshold != Renames.OFF) {
+                try (Stats.Phase p = Stats.phase("find renames")) {
+                    result = renamed(result, threshold);
+                }
+            }
+            h.done();
+            return result;
+        }
+    }
+
+    /** Return DIFFS, a list of changes in name order, with each removed
+     * file and added file that are at least THRESHOLD percent similar
+     * replaced by one rename, listed under the new name.
+     */
+    private static ArrayList<FileDiff> renamed(List<FileDiff> diffs,
+                                               int threshold) {
+        HashMap<String, FileDiff> removed = new HashMap<>();
+        HashMap<String, ObjectId> removedIds = new HashMap<>();
+        HashMap<String, FileDiff> added = new HashMap<>();
+        HashMap<String, ObjectId> addedIds = new HashMap<>();
+        for (FileDiff d : diffs) {
+            if (d.getChange() == Change.REMOVED) {
+                removed.put(d.getName(), d);
+                removedIds.put(d.getName(), d.getOldId());
+            } else if (d.getChange() == Change.ADDED) {
+                added.put(d.getName(), d);
+                addedIds.put(d.getName(), d.getNewId());
+            }
+        }
+        HashMap<String, FileDiff> renames = new HashMap<>();
+        for (Renames.Rename r : Renames.detect(removedIds, addedIds,
+                threshold, (f, id) -> removed.containsKey(f)
+                        ? removed.get(f).getOld() : added.get(f).getNew())) {
+            FileDiff o = removed.get(r.getFrom());
+            FileDiff n = added.get(r.getTo());
+            renames.put(r.getFrom(), null);
+            renames.put(r.getTo(), new FileDiff(r.getTo(), r.getFrom(),
+                    r.getScore(), o.getOldId(), o.getOld(), n.getNewId(),
+                    n.getNew()));
+        }
+        ArrayList<FileDiff> result = new ArrayList<>();
+        for (FileDiff d : diffs) {
+            if (!renames.containsKey(d.getName())) {
+                result.add(d);
+            } else if (renames.get(d.getName()) != null) {
+                result.add(renames.get(d.getName()));
+            }
+        }
+        return result;
+    }
+
+    /** Return the working copies of the files in STAGED, limited to
+     * those in PATHS unless it is empty, as a table of the blobs they
+     * would be stored as. Missing files are left out.
+     */
+    private PathTable working(PathTable staged, Collection<String> paths) {
+        HashMap<String, ObjectId> files = new HashMap<>();
+        for (PathTable.Cursor c = staged.cursor(); c.next();) {
+            String f = c.name();
+            File wf = Utils.join(_ctx.getCwd(), f);
+            if ((paths.isEmpty() || paths.contains(f)) && wf.isFile()) {
+                files.put(f, hash(wf));
+            }
+        }
+        return PathTable.of(files);
+    }
+
+    /** Restore FILE in the working directory from the head commit. */
+    public void checkoutFile(String file) throws IOException {
+        try (Hold h = hold(false)) {
+            writeFile(Commit.fromFile(_ctx, _branch.getHead()), file);
+            h.done();
+        }
+    }
+
+    /** Restore FILE in the working directory from the commit whose id
+     * starts with COMMITID.
+     */
+    public void checkoutFile(String commitId, String file)
+        throws IOException {
+        try (Hold h = hold(false)) {
+            writeFile(Commit.fromFile(_ctx, resolveCommit(commitId)), file);
+            h.done();
+        }
+    }
+
+    /** Write FILE as it is in commit C to the working directory. */
+    private void writeFile(Commit c, String file) throws IOException {
+        ObjectId blob = c.getFiles().get(file);
+        if (blob == null) {
+            throw Utils.error("File does not exist in that commit.");
+        }
+        File f = Utils.join(_ctx.getCwd(), file);
+        f.createNewFile();
+        Utils.writeContents(f, (Object) Blob.bytesFromFile(_ctx, blob));
+    }
+
+    /** Check out the branch NAME, where remote branches may be named
+     * remote/branch. Only the files whose blobs differ between the
+     * current and the target commit are written or deleted.
+     */
+    public void checkoutBranch(String name) throws IOException {
+        try (Hold h = hold(false)) {
+            String remoteBr = name.replace("/", "-");
+            if (!Arrays.asList(_ctx.getBranch().list()).contains(remoteBr)) {
+                throw Utils.error("No such branch exists.");
+            } else if (_branch.getName().equals(remoteBr)) {
+                throw Utils.error("No need to checkout the current branch.");
+            }
+            Branch target = Branch.fromFile(_ctx, remoteBr);
+            PathTable prev = Commit.
+                    fromFile(_ctx, _branch.getHead()).getFiles();
+            PathTable commits = Commit.
+                    fromFile(_ctx, target.getHead()).getFiles();
+            HashMap<String, ObjectId> changed;
+            ArrayList<String> deleted = new ArrayList<>();
+            try (Stats.Phase p = Stats.phase("diff")) {
+                checkUntracked(prev, commits);
+                changed = changedBlobs(prev, commits, deleted);
+            }
+            try (Stats.Phase p = Stats.phase("prefetch")) {
+                Remote.prefetch(_ctx, changed.values());
+            }
+            try (Stats.Phase p = Stats.phase("write files")) {
+                Materializer.fromEnvironment(_ctx).write(changed);
+                for (String f : deleted) {
+                    Utils.join(_ctx.getCwd(), f).delete();
+                }
+            }
+            _branch = target;
+            WriteBatch.writeDurable(_ctx.getCurrentBranch(),
+                    _branch.getName().getBytes(StandardCharsets.UTF_8));
+            _stagingArea.getCurrStage().clear();
+            _stagingArea.update();
+            _stagingArea = new Stage(_ctx, _branch.getName());
+            h.done();
+        }
+    }
+
+    /** Report an error if a file untracked in the current commit, whose
+     * files are PREV, would be overwritten by checking out the files
+     * NEXT. Working files are compared by hash rather than by reading
+     * the blobs they would be replaced with.
+     */
+    private void checkUntracked(PathTable prev, PathTable next) {
+        for (String f : _ctx.getCwd().list()) {
+            if (f.startsWith(".") || prev.contains(f)) {
+                continue;
+            }
+            ObjectId blob = next.get(f);
+            if (blob != null
+                    && !Utils.join(_ctx.getCwd(), f).isDirectory()
+                    && !blob.equals(hash(Utils.join(_ctx.getCwd(), f)))) {
+                throw Utils.error("There is an untracked file in the way; "
+                        + "delete it, or add and commit it first.");
+            }
+        }
+    }
+
+    /** Return the files of NEXT whose blobs are absent from or differ
+     * from those in PREV, mapped to their blobs in NEXT, and add the
+     * files of PREV that are not in NEXT to DELETED. Both tables are
+     * walked once, side by side.
+     */
+    static HashMap<String, ObjectId> changedBlobs(
+            PathTable prev, PathTable next, List<String> deleted) {
+        HashMap<String, ObjectId> changed = new HashMap<>();
+        PathTable.Join j = PathTable.join(prev, next);
+        while (j.nextChanged()) {
+            if (j.id(1) == null) {
+                deleted.add(j.name());
+            } else {
+                changed.put(j.name(), j.id(1));
+            }
+        }
+        return changed;
+    }
+
+    /** Return the full id of the commit whose id starts with PREFIX,
+     * reporting an error if there is no such commit or more than one.
+     */
+    public ObjectId resolveCommit(String prefix) {
+        List<ObjectId> found = CommitIndex.matches(_ctx, prefix, 2);
+        if (found.isEmpty()) {
+            throw Utils.error("No commit with that id exists.");
+        } else if (found.size() > 1) {
+            throw Utils.error("Commit id %s is ambiguous.", prefix);
+        }
+        return found.get(0);
+    }
+
+    /** Create the branch NAME pointing at the current head. */
+    public void branch(String name) throws IOException {
+        try (Hold h = hold(false)) {
+            if (Arrays.asList(_ctx.getBranch().list()).contains(name)) {
+                throw Utils.error("A branch with that name already exists.");
+            }
+            Branch newBr = new Branch(name, _branch.getHead());
+            newBr.changeCommits(_branch.getCommits());
+            newBr.saveBranch(_ctx);
+            h.done();
+        }
+    }
+
+    /** Delete the branch NAME, leaving its commits in place. */
+    public void rmBranch(String name) {
+        try (Hold h = hold(false)) {
+            if (_branch.getName().equals(name)) {
+                throw Utils.error("Cannot remove the current branch.");
+            }
+            if (!Arrays.asList(_ctx.getBranch().list()).contains(name)) {
+                throw Utils.error("A branch with that name does not exist.");
+            }
+            Utils.join(_ctx.getBranch(), name).delete();
+            Utils.join(_ctx.getStage(), name).delete();
+            h.done();
+        }
+    }
+
+    /** Check out the commit whose id starts with COMMITID and move the
+     * current branch's head to it.
+     */
+    public void reset(String commitId) throws IOException {
+        try (Hold h = hold(false)) {
+            Commit commit = Commit.fromFile(_ctx, resolveCommit(commitId));
+            PathTable prev = Commit.
+                    fromFile(_ctx, _branch.getHead()).getFiles();
+            PathTable commits = commit.getFiles();
+            HashMap<String, ObjectId> changed;
+            ArrayList<String> deleted = new ArrayList<>();
+            try (Stats.Phase p = Stats.phase("diff")) {
+                checkUntracked(prev, commits);
+                changed = changedBlobs(prev, commits, deleted);
+            }
+            for (PathTable.Cursor c = commits.cursor(); c.next();) {
+                String f = c.name();
+                if (!Utils.join(_ctx.getCwd(), f).exists()) {
+                    changed.put(f, c.id());
+                }
+            }
+            try (Stats.Phase p = Stats.phase("prefetch")) {
+                Remote.prefetch(_ctx, changed.values());
+            }
+            try (Stats.Phase p = Stats.phase("write files")) {
+                Materializer.fromEnvironment(_ctx).write(changed);
+                for (String f : deleted) {
+                    Utils.join(_ctx.getCwd(), f).delete();
+                }
+            }
+            _stagingArea.getCurrStage().clear();
+            _stagingArea.update();
+            if (!_branch.getCommits().contains(commit.getSha1())) {
+                _branch.changeHead(_ctx, commit.getSha1());
+            } else {
+                int index = _branch.getCommits().indexOf(commit.getSha1());
+                while (_branch.getCommits().size() > index + 1) {
+                    _branch.getCommits().removeLast();
+                }
+                _branch.setHead(commit.getSha1());
+            }
+            _branch.saveBranch(_ctx);
+            h.done();
+        }
+    }
+
+    /** Merge the branch NAME into the current branch. Return how the
+     * merge went.
+     */
+    public MergeResult merge(String name) throws IOException {
+        try (Hold h = hold(false)) {
+            MergeResult result = doMerge(name);
+            h.done();
+            return result;
+        }
+    }
+
+    /** Merge the branch NAME into the current branch while holding the
+     * lock. Return how the merge went.
+     */
+    private MergeResult doMerge(String name) throws IOException {
+        if (!_stagingArea.getRemoveStage().isEmpty()
+                || !_stagingArea.getCurrStage().isEmpty()) {
+            throw Utils.error("You have uncommitted changes.");
+        }
+        if (!Arrays.asList(_ctx.getBranch().list()).contains(name)) {
+            throw Utils.error("A branch with that name does not exist.");
+        }
+        if (_branch.getName().equals(name)) {
+            throw Utils.error("Cannot merge a branch with itself.");
+        }
+        Branch mergeBr = Branch.fromFile(_ctx, name);
+        PathTable mergeFile =
+                Commit.fromFile(_ctx, mergeBr.getHead()).getFiles();
+        PathTable currFile =
+                Commit.fromFile(_ctx, _branch.getHead()).getFiles();
+        PathTable.Join untracked = PathTable.join(currFile, mergeFile);
+        while (untracked.nextChanged()) {
+            if (untracked.id(0) != null || untracked.id(1) == null) {
+                continue;
+            }
+            String f = untracked.name();
+            File wf = Utils.join(_ctx.getCwd(), f);
+            if (!f.startsWith(".") && wf.exists()
+                    && !untracked.id(1).equals(hash(wf))) {
+                throw Utils.error("There is an untracked file in the way; "
+                        + "delete it, or add and commit it first.");
+            }
+        }
+        ObjectId splitPoint;
+        try (Stats.Phase p = Stats.phase("split point")) {
+            splitPoint = findSplit(_branch, mergeBr);
+        }
+        if (mergeBr.getHead().equals(splitPoint)) {
+            return MergeResult.ALREADY_MERGED;
+        }
+        if (_branch.getHead().equals(splitPoint)) {
+            checkoutBranch(name);
+            return MergeResult.FAST_FORWARD;
+        }
+        PathTable splitFile = Commit.fromFile(_ctx, splitPoint).getFiles();
+        prefetch(splitFile, mergeFile, currFile);
+        Resolution merged;
+        Commit mergedCom;
+        try (WriteBatch batch = WriteBatch.begin()) {
+            try (Stats.Phase p = Stats.phase("merge files")) {
+                merged = help(splitFile, mergeFile, currFile);
+            }
+            try (Stats.Phase p = Stats.phase("write files")) {
+                Materializer.fromEnvironment(_ctx).write(merged._changed);
+                for (String f : merged._removed.keySet()) {
+                    Utils.restrictedDelete(Utils.join(_ctx.getCwd(), f));
+                }
+            }
+            String rmBranch = name.replace("-", "/");
+            try (Stats.Phase p = Stats.phase("write commit")) {
+                mergedCom = new Commit(_ctx, "Merged " + rmBranch + " into "
+                        + _branch.getName() + ".",
+                        _branch.getHead(), mergeBr.getHead(), currFile,
+                        currFile.with(merged._changed, merged._removed));
+                batch.sync();
+            }
+        }
+        _branch.changeHead(_ctx, mergedCom.getSha1());
+        _stagingArea.getRemoveStage().clear();
+        _stagingArea.getCurrStage().clear();
+        _stagingArea.update();
+        for (File file : _ctx.getCwd().listFiles()) {
+            if (!mergedCom.getFiles().contains(file.getName())
+                    && !file.isHidden() && !file.isDirectory()
+                    && !file.getName().equals("Makefile")
+                    && !file.getName().endsWith(".iml")) {
+                file.delete();
+            }
+        }
+        return merged._conflicts.isEmpty() ? MergeResult.MERGED
+                : MergeResult.CONFLICT;
+    }
+
+    /** Merge the branch GIVEN into the branch NAME using objects alone,
+     * without a checkout: the merged files and any conflicted blobs are
+     * computed in memory, and the merge commit is made from them
+     * directly. NAME must not be the current branch, whose working files
+     * would no longer match its head. Return what was done.
+     */
+    public MergeTree mergeTree(String name, String given)
+        throws IOException {
+        try (Hold h = hold(false)) {
+            List<String> branches = Arrays.asList(_ctx.getBranch().list());
+            if (!branches.contains(name) || !branches.contains(given)) {
+                throw Utils.error("A branch with that name does not exist.");
+            }
+            if (name.equals(given)) {
+                throw Utils.error("Cannot merge a branch with itself.");
+            }
+            if (name.equals(_branch.getName())) {
+                throw Utils.error("Cannot merge into the current branch "
+                        + "without a checkout; use merge.");
+            }
+            Branch ours = Branch.fromFile(_ctx, name);
+            Branch theirs = Branch.fromFile(_ctx, given);
+            ObjectId splitPoint;
+            try (Stats.Phase p = Stats.phase("split point")) {
+                splitPoint = findSplit(ours, theirs);
+            }
+            MergeTree result;
+            if (theirs.getHead().equals(splitPoint)) {
+                result = new MergeTree(MergeResult.ALREADY_MERGED,
+                        ours.getHead(), Collections.emptyList());
+            } else if (ours.getHead().equals(splitPoint)) {
+                LinkedList<ObjectId> commits =
+                    new LinkedList<>(theirs.getCommits());
+                commits.removeLast();
+                ours.changeCommits(commits);
+                ours.changeHead(_ctx, theirs.getHead());
+                result = new MergeTree(MergeResult.FAST_FORWARD,
+                        theirs.getHead(), Collections.emptyList());
+            } else {
+                PathTable splitFile =
+                        Commit.fromFile(_ctx, splitPoint).getFiles();
+                PathTable oursFile =
+                        Commit.fromFile(_ctx, ours.getHead()).getFiles();
+                PathTable theirsFile =
+                        Commit.fromFile(_ctx, theirs.getHead()).getFiles();
+                prefetch(splitFile, theirsFile, oursFile);
+                Resolution merged;
+                Commit mergedCom;
+                try (WriteBatch batch = WriteBatch.begin()) {
+                    try (Stats.Phase p = Stats.phase("merge files")) {
+                        merged = help(splitFile, theirsFile, oursFile);
+                    }
+                    try (Stats.Phase p = Stats.phase("write commit")) {
+                        mergedCom = new Commit(_ctx, "Merged "
+                                + given.replace("-", "/") + " into " + name
+                                + ".", ours.getHead(), theirs.getHead(),
+                                oursFile, oursFile.with(merged._changed,
+                                        merged._removed));
+                        batch.sync();
+                    }
+                }
+                ours.changeHead(_ctx, mergedCom.getSha1());
+                result = new MergeTree(merged._conflicts.isEmpty()
+                        ? MergeResult.MERGED : MergeResult.CONFLICT,
+                        mergedCom.getSha1(), merged._conflicts);
+            }
+            h.done();
+            return result;
+        }
+    }
+
+    /** Fetch from promisor remotes, in one go, every blob that a merge
+     * of the files SPLITFILE, MERGEFILE and CURRFILE may need to read.
+     */
+    private void prefetch(PathTable splitFile, PathTable mergeFile,
+                          PathTable currFile) {
+        try (Stats.Phase p = Stats.phase("prefetch")) {
+            ArrayList<ObjectId> needed = new ArrayList<>();
+            PathTable.Join j = PathTable.join(splitFile, mergeFile, currFile);
+            while (j.nextChanged()) {
+                for (int i = 0; i < 3; i++) {
+                    if (j.id(i) != null) {
+                        needed.add(j.id(i));
+                    }
+                }
+            }
+            Remote.prefetch(_ctx, needed);
+        }
+    }
+
+    /** Helper method for merge. Take in the files of the split point
+     * SPLITFILE, of the branch merged in MERGEFILE, and of the current
+     * branch CURRFILE, and walk them side by side, skipping files that
+     * are the same in all three. Files changed on both sides are merged
+     * line by line on a pool of workers, and only the lines both sides
+     * changed differently are marked as conflicts. Files renamed since
+     * the split point on one side are followed to their new names on the
+     * others. Only blobs are written; the working directory and stage are
+     * left alone. Return how the files of the current branch must change.
+     */
+    private Resolution help(PathTable splitFile, PathTable mergeFile,
+                            PathTable currFile) {
+        Resolution result = new Resolution();
+        ArrayList<FileMerge> merges = new ArrayList<>();
+        PathTable[] moved;
+        try (Stats.Phase p = Stats.phase("find renames")) {
+            moved = followRenames(splitFile, mergeFile, currFile);
+        }
+        PathTable.Join j = PathTable.join(moved[0], moved[1], moved[2]);
+        while (j.nextChanged()) {
+            String f = j.name();
+            ObjectId s = j.id(0);
+            ObjectId m = j.id(1);
+            ObjectId c = j.id(2);
+            if (s != null) {
+                if (m != null && c != null && !s.equals(m)
+                        && s.equals(c)) {
+                    result._changed.put(f, m);
+                } else if (c != null && s.equals(c) && m == null) {
+                    result._removed.put(f, c);
+                }
+            } else if (c == null && m != null) {
+                result._changed.put(f, m);
+            }
+            if (checkConflict(s, m, c)) {
+                merges.add(new FileMerge(f, s, m, c));
+            }
+        }
+        Workers.forEach(merges, this::mergeFile);
+        for (FileMerge fm : merges) {
+            result._changed.put(fm._name, fm._merged);
+            if (fm._conflicted) {
+                result._conflicts.add(fm._name);
+            }
+        }
+        if (moved[2] != currFile) {
+            PathTable merged = moved[2].with(result._changed,
+                    result._removed);
+            result._changed.clear();
+            result._removed.clear();
+            PathTable.Join k = PathTable.join(currFile, merged);
+            while (k.nextChanged()) {
+                if (k.id(1) == null) {
+                    result._removed.put(k.name(), k.id(0));
+                } else {
+                    result._changed.put(k.name(), k.id(1));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return SPLITFILE, MERGEFILE and CURRFILE, in that order, with
+     * each file that one side renamed since the split point moved to its
+     * new name in the other two, so that a walk over them lines the
+     * versions up. Renames are found as Renames.threshold says. A file
+     * both sides renamed, or whose new name the other side already uses,
+     * is left where it is. The tables are returned unchanged if nothing
+     * was renamed.
+     */
+    private PathTable[] followRenames(PathTable splitFile,
+                                      PathTable mergeFile,
+                                      PathTable currFile) {
+        PathTable[] tables = {splitFile, mergeFile, currFile};
+        int threshold = Renames.threshold();
+        if (threshold == Renames.OFF) {
+            return tables;
+        }
+        ArrayList<List<Renames.Rename>> renames = new ArrayList<>();
+        for (int side = 1; side <= 2; side++) {
+            HashMap<String, ObjectId> removed = new HashMap<>();
+            HashMap<String, ObjectId> added = new HashMap<>();
+            PathTable.Join j = PathTable.join(splitFile, tables[side]);
+            while (j.nextChanged()) {
+                if (j.id(1) == null) {
+                    removed.put(j.name(), j.id(0));
+                } else if (j.id(0) == null) {
+                    added.put(j.name(), j.id(1));
+                }
+            }
+            renames.add(Renames.detect(removed, added, threshold,
+                    (f, id) -> Blob.bytesFromFile(_ctx, id)));
+        }
+        HashSet<String> renamedBoth = new HashSet<>();
+        HashSet<String> renamedMerge = new HashSet<>();
+        for (Renames.Rename r : renames.get(0)) {
+            renamedMerge.add(r.getFrom());
+        }
+        for (Renames.Rename r : renames.get(1)) {
+            if (renamedMerge.contains(r.getFrom())) {
+                renamedBoth.add(r.getFrom());
+            }
+        }
+        ArrayList<HashMap<String, ObjectId>> added = new ArrayList<>();
+        ArrayList<HashMap<String, ObjectId>> removed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            added.add(new HashMap<>());
+            removed.add(new HashMap<>());
+        }
+        for (int side = 1; side <= 2; side++) {
+            int other = 3 - side;
+            for (Renames.Rename r : renames.get(side - 1)) {
+                String from = r.getFrom();
+                String to = r.getTo();
+                if (renamedBoth.contains(from)
+                        || tables[other].contains(to)) {
+                    continue;
+                }
+                for (int t : new int[] {0, other}) {
+                    ObjectId id = tables[t].get(from);
+                    if (id != null) {
+                        added.get(t).put(to, id);
+                        removed.get(t).put(from, id);
+                    }
+                }
+            }
+        }
+        for (int t = 0; t < 3; t++) {
+            tables[t] = tables[t].with(added.get(t), removed.get(t));
+        }
+        return tables;
+    }
+
+    /** Merge the file of MERGE line by line and save the result as a
+     * blob. Called from worker threads.
+     */
+    private void mergeFile(FileMerge merge) throws IOException {
+        LineMerge.Result result = LineMerge.merge(bytes(merge._split),
+                bytes(merge._current), bytes(merge._given));
+        merge._merged = new Blob(_ctx, result.getContents()).getName();
+        merge._conflicted = result.hasConflicts();
+    }
+
+    /** Return the contents of BLOB, or nothing if BLOB is null. */
+    private byte[] bytes(ObjectId blob) {
+        return blob == null ? new byte[0] : Blob.bytesFromFile(_ctx, blob);
+    }
+
+    /** Helper method for finding a split point. Take in OURS, the
+     * branch merged into, and MB, the branch being merged. Return sha1 of
+     * the commit.
+     */
+    private ObjectId findSplit(Branch ours, Branch mB) {
+        HashSet<ObjectId> oursSet = new HashSet<>(ours.getCommits());
+        HashSet<ObjectId> theirs = new HashSet<>(mB.getCommits());
+        HashMap<ObjectId, Integer> split = new HashMap<>();
+        for (ObjectId com : mB.getCommits()) {
+            Commit c = Commit.fromFile(_ctx, com);
+            if (c.isMerged() && oursSet.contains(c.getParent2())) {
+                split.put(com, 1);
+            } else if (oursSet.contains(com)) {
+                split.put(com, 0);
+            }
+        }
+        for (ObjectId com : ours.getCommits()) {
+            Commit c = Commit.fromFile(_ctx, com);
+            if (c.isMerged() && theirs.contains(c.getParent2())) {
+                split.put(com, 1);
+            } else if (theirs.contains(com)) {
+                split.put(com, 0);
+            }
+        }
+        HashMap<ObjectId, Integer> result = new HashMap<>();
+        for (ObjectId com : split.keySet()) {
+            Commit c = Commit.fromFile(_ctx, com);
+            int dist;
+            if (c.isMerged()) {
+                dist = calcDist(com, c, ours, mB);
+                result.put(c.getParent2(), dist);
+            } else {
+                dist = Math.min(ours.getCommits().size() - 1
+                                - ours.getCommits().indexOf(com),
+                        mB.getCommits().size() - 1
+                                - mB.getCommits().indexOf(com));
+                result.put(com, dist);
+            }
+        }
+        int min = Collections.min(result.values());
+        ObjectId splitPoint = null;
+        for (ObjectId point : result.keySet()) {
+            if (result.get(point) == min) {
+                splitPoint = point;
+                break;
+            }
+        }
+        return splitPoint;
+    }
+
+    /** Helper method for calculating distance. Take in commit id COM,
+     * Commit C, and Branches OURS and MB. Return the distance.
+     */
+    private int calcDist(ObjectId com, Commit c, Branch ours, Branch mB) {
+        int dist;
+        if (ours.getCommits().contains(com)) {
+            dist = Math.min(ours.getCommits().size()
+                            - ours.getCommits().indexOf(com),
+                    mB.getCommits().size() - 1
+                            - mB.getCommits().indexOf(c.getParent2()));
+        } else {
+            dist = Math.min(mB.getCommits().size()
+                            - mB.getCommits().indexOf(com),
+                    ours.getCommits().size() - 1
+                            - ours.getCommits().
+                            indexOf(c.getParent2()));
+        }
+        return dist;
+    }
+
+    /** Helper method for checking conflict. Take in the blobs a file
+     * has at the split point S, in the branch merged in M, and in the
+     * current branch C, each null if the file is absent there. Blobs are
+     * named by their contents, so comparing ids is enough. Return whether
+     * both sides changed the file differently, so that it needs a line
+     * merge.
+     */
+    private static boolean checkConflict(ObjectId s, ObjectId m,
+                                         ObjectId c) {
+        if (c != null && s != null && m != null) {
+            return !s.equals(c) && !s.equals(m) && !c.equals(m);
+        }
+        if (c != null && s != null) {
+            return !s.equals(c);
+        }
+        if (s != null && m != null) {
+            return !s.equals(m);
+        }
+        if (c != null && m != null) {
+            return !m.equals(c);
+        }
+        return false;
+    }
+
+    /** Save the remote NAME, whose .gitlet directory is DIRECTORY. */
+    public void addRemote(String name, String directory) throws IOException {
+        try (Hold h = hold(false)) {
+            if (Utils.join(_ctx.getRemote(), name).exists()) {
+                throw Utils.error("A remote with that name already exists.");
+            }
+            new Remote(_ctx, name, directory);
+            h.done();
+        }
+    }
+
+    /** Forget the remote NAME. */
+    public void rmRemote(String name) {
+        try (Hold h = hold(false)) {
+            File f = Utils.join(_ctx.getRemote(), name);
+            if (!f.exists()) {
+                throw Utils.error("A remote with that name does not exist.");
+            }
+            f.delete();
+            Remote.removePromisor(_ctx, name);
+            h.done();
+        }
+    }
+
+    /** Append the current branch's commits to the branch BRANCH of the
+     * remote NAME.
+     */
+    public void push(String name, String branch) throws IOException {
+        try (Hold h = hold(false)) {
+            Remote remote = Remote.fromFile(_ctx, name);
+            if (!remote.getRepo().exists()) {
+                throw Utils.error("Remote directory not found.");
+            }
+            checkFormat(remote.context());
+            try (RepoLock rmLock =
+                     RepoLock.acquire(remote.context(), false)) {
+                pushTo(remote, branch);
+            }
+            h.done();
+        }
+    }
+
+    /** Append the current branch's commits to the branch BRANCH of
+     * REMOTE, whose lock is held. The commits are copied before the
+     * branch is atomically replaced, so the branch never names a commit
+     * the remote lacks.
+     */
+    private void pushTo(Remote remote, String branch) throws IOException {
+        Context rmCtx = remote.context();
+        Commit com = Commit.fromFile(_ctx, _branch.getHead());
+        PathTable rmFiles = com.getFiles();
+        Branch rmBranch;
+        if (!Utils.join(remote.getBranch(), branch).exists()) {
+            rmBranch = new Branch(branch, _branch.getHead());
+            rmBranch.changeCommits(_branch.getCommits());
+        } else {
+            rmBranch = remote.branchFromFile(branch);
+            if (!_branch.getCommits().contains(rmBranch.getHead())) {
+                throw Utils.error("Please pull down remote changes "
+                        + "before pushing.");
+            }
+            int index = _branch.getCommits().indexOf(rmBranch.getHead());
+            for (int i = index + 1; i < _branch.getCommits().size(); i++) {
+                rmBranch.getCommits().add(_branch.getCommits().get(i));
+            }
+        }
+        rmBranch.setHead(_branch.getHead());
+        rmBranch.getCommits().add(_branch.getHead());
+        try (Stats.Phase p = Stats.phase("copy commits")) {
+            for (ObjectId c : rmBranch.getCommits()) {
+                if (ObjectStore.exists(rmCtx, c)) {
+                    continue;
+                }
+                Commit rmCom = Commit.fromFile(_ctx, c);
+                WriteBatch.writeObject(ObjectStore.fileForWrite(rmCtx, c),
+                        Utils.serialize(rmCom));
+                CommitIndex.add(rmCtx, c);
+                CommitLog.append(rmCtx, rmCom);
+            }
+        }
+        rmBranch.saveBranch(rmCtx);
+        if (remote.getCwd().list() != null) {
+            for (File f : remote.getCwd().listFiles()) {
+                if (!f.isHidden()
+                        && !f.getName().equals("Makefile")
+                        && !f.getName().endsWith(".iml")) {
+                    f.delete();
+                }
+            }
+        }
+        for (PathTable.Cursor c = rmFiles.cursor(); c.next();) {
+            Utils.join(remote.getCwd(), c.name()).createNewFile();
+            Utils.writeContents(Utils.join(
+                    remote.getCwd(), c.name()), c.id().toString());
+        }
+    }
+
+    /** Copy the branch BRANCH of the remote NAME into the local branch
+     * NAME-BRANCH. If BLOBLESS, only the commits are copied, and the
+     * remote is recorded as a promisor that blobs are fetched from on
+     * demand.
+     */
+    public void fetch(String name, String branch, boolean blobless)
+        throws IOException {
+        try (Hold h = hold(false)) {
+            Remote remote = Remote.fromFile(_ctx, name);
+            if (!remote.getRepo().exists()) {
+                throw Utils.error("Remote directory not found.");
+            }
+            checkFormat(remote.context());
+            if (!Utils.join(remote.getBranch(), branch).exists()) {
+                throw Utils.error("That remote does not have that branch.");
+            }
+            Branch rmBranch = remote.branchFromFile(branch);
+            rmBranch.changeName(name + "-" + branch);
+            try (WriteBatch batch = WriteBatch.begin()) {
+                try (Stats.Phase p = Stats.phase("copy commits")) {
+                    for (ObjectId c : rmBranch.getCommits()) {
+                        if (ObjectStore.exists(_ctx, c)) {
+                            continue;
+                        }
+                        Commit com = remote.commitFromFile(c);
+                        WriteBatch.writeObject(
+                                ObjectStore.fileForWrite(_ctx, c),
+                                Utils.serialize(com));
+                        CommitIndex.add(_ctx, c);
+                        CommitLog.append(_ctx, com);
+                    }
+                }
+                try (Stats.Phase p = Stats.phase("copy blobs")) {
+                    if (blobless) {
+                        Remote.addPromisor(_ctx, name);
+                    } else {
+                        for (ObjectId c : rmBranch.getCommits()) {
+                            PathTable.Cursor b = remote.commitFromFile(c)
+                                    .getFiles().cursor();
+                            while (b.next()) {
+                                if (!ObjectStore.exists(_ctx, b.id())) {
+                                    remote.copyObject(_ctx, b.id());
+                                }
+                            }
+                        }
+                    }
+                }
+                batch.sync();
+            }
+            rmBranch.saveBranch(_ctx);
+            Stage rmStage = remote.stageFromFile(branch);
+            WriteBatch.writeDurable(Utils.join(_ctx.getStage(),
+                    name + "-" + branch), Utils.serialize(rmStage));
+            h.done();
+        }
+    }
+
+    /** Fetch the branch BRANCH of the remote NAME, without blobs if
+     * BLOBLESS, and merge it into the current branch. Return how the
+     * merge went.
+     */
+    public MergeResult pull(String name, String branch, boolean blobless)
+        throws IOException {
+        try (Hold h = hold(false)) {
+            fetch(name, branch, blobless);
+            MergeResult result = doMerge(name + "-" + branch);
+            h.done();
+            return result;
+        }
+    }
+
+    /** Delete the objects that no branch or stage can reach, and the
+     * temporary files left by interrupted writes, if they were last
+     * modified more than GRACE milliseconds ago. Deleted commits are
+     * dropped from the commit log and indexes. Return the counts of the
+     * objects that are left, whose unreachable and garbage counts are
+     * those of the files deleted.
+     */
+    public GarbageCollector.Counts gc(long grace) {
+        try (Hold h = hold(false)) {
+            Set<ObjectId> live;
+            try (Stats.Phase p = Stats.phase("mark")) {
+                live = GarbageCollector.mark(_ctx);
+            }
+            GarbageCollector.Counts counts;
+            try (Stats.Phase p = Stats.phase("sweep")) {
+                counts = GarbageCollector.sweep(_ctx, live,
+                        System.currentTimeMillis() - grace, true);
+            }
+            if (counts.getUnreachable() > 0) {
+                try (Stats.Phase p = Stats.phase("rewrite log")) {
+                    CommitLog.prune(_ctx);
+                    CommitIndex.rebuild(_ctx);
+                }
+            }
+            h.done();
+            return counts;
+        }
+    }
+
+    /** Return the counts of the objects of the repository, including
+     * those of unreachable objects if UNREACHABLE, which takes a walk
+     * over every reachable commit.
+     */
+    public GarbageCollector.Counts countObjects(boolean unreachable) {
+        try (Hold h = hold(true)) {
+            Set<ObjectId> live = null;
+            if (unreachable) {
+                try (Stats.Phase p = Stats.phase("mark")) {
+                    live = GarbageCollector.mark(_ctx);
+                }
+            }
+            GarbageCollector.Counts counts;
+            try (Stats.Phase p = Stats.phase("count")) {
+                counts = GarbageCollector.sweep(_ctx, live, 0, false);
+            }
+            h.done();
+            return counts;
+        }
+    }
+
+    /** Check the integrity of the repository: that every object hashes
+     * to its name and that every object named by a commit, branch or
+     * stage exists. Return what was found.
+     */
+    public Fsck.Report fsck() {
+        try (Hold h = hold(true)) {
+            Fsck.Report report = Fsck.check(_ctx);
+            h.done();
+            return report;
+        }
+    }
+
+    /** Move objects stored flat by older versions of Gitlet into their
+     * shard directories. Return the number of objects moved.
+     */
+    public int migrateObjects() {
+        try (Hold h = hold(false)) {
+            int moved = ObjectStore.migrate(_ctx.getObjects());
+            h.done();
+            return moved;
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the Repository API used by programs that embed gitlet.
+ * @author Jason Ding
+ */
+public class RepositoryTest {
+
+    /** Return the message of the GitletException thrown by ACTION, failing
+     * if it throws none.
+     */
+    private static String error(Action action) throws IOException {
+        try {
+            action.run();
+        } catch (GitletException excp) {
+            return excp.getMessage();
+        }
+        fail("no error");
+        return null;
+    }
+
+    /** Something done to a repository that may fail. */
+    private interface Action {
+        /** Do it. */
+        void run() throws IOException;
+    }
+
+    @Test
+    public void errorsAreThrownToTheCaller() throws IOException {
+        File dir = Files.createTempDirectory("gitlet-test").toFile();
+        dir.deleteOnExit();
+        assertEquals("Not in an initialized Gitlet directory.",
+                error(() -> Repository.open(dir)));
+
+        Repository repo = UnitTest.newRepository();
+        File cwd = repo.getWorkingDirectory();
+        assertTrue(error(() -> Repository.init(cwd))
+                .startsWith("A Gitlet version-control system already"));
+        assertEquals("No changes added to the commit.",
+                error(() -> repo.commit("nothing")));
+        assertEquals("File does not exist.", error(() -> repo.add("none")));
+        assertEquals("No such branch exists.",
+                error(() -> repo.checkoutBranch("none")));
+    }
+
+    @Test
+    public void reopenedRepositorySeesWhatWasCommitted() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        Commit c = UnitTest.commit(repo, "a.txt", "a\n", "add a");
+        repo.branch("side");
+
+        Repository again = Repository.open(repo.getWorkingDirectory());
+        assertEquals(c.getSha1(), again.head());
+        assertEquals("master", again.currentBranch());
+        assertEquals(Arrays.asList("master", "side"),
+                again.status().getBranches());
+        assertEquals(Arrays.asList(c.getSha1()),
+                again.find(Repository.FindMode.EXACT, "add a"));
+    }
+
+    @Test
+    public void statusIsReturnedAsData() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        UnitTest.write(repo, "kept.txt", "kept\n");
+        UnitTest.write(repo, "gone.txt", "gone\n");
+        UnitTest.write(repo, "removed.txt", "removed\n");
+        repo.add("kept.txt");
+        repo.add("gone.txt");
+        repo.add("removed.txt");
+        repo.commit("three files");
+        UnitTest.write(repo, "kept.txt", "changed\n");
+        assertTrue(Utils.join(repo.getWorkingDirectory(), "gone.txt")
+                .delete());
+        repo.rm("removed.txt");
+        UnitTest.write(repo, "new.txt", "new\n");
+        repo.add("new.txt");
+        UnitTest.write(repo, "stray.txt", "stray\n");
+
+        Repository.Status st = repo.status();
+        assertEquals("master", st.getCurrent());
+        assertEquals(Arrays.asList("new.txt"), st.getStaged());
+        assertEquals(Arrays.asList("removed.txt"), st.getRemoved());
+        assertEquals(new TreeMap<>(Map.of("kept.txt", "modified",
+                "gone.txt", "deleted")), st.getNotStaged());
+        assertEquals(Arrays.asList("stray.txt"), st.getUntracked());
+        assertTrue(st.getRenamed().isEmpty());
+    }
+
+    @Test
+    public void diffIsReturnedAsData() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        UnitTest.write(repo, "a.txt", "a\n");
+        UnitTest.write(repo, "b.txt", "b\n");
+        repo.add("a.txt");
+        repo.add("b.txt");
+        String from = repo.commit("a and b").getSha1().toString();
+        UnitTest.write(repo, "a.txt", "A\n");
+        UnitTest.write(repo, "c.txt", "c\n");
+        repo.add("a.txt");
+        repo.add("c.txt");
+        repo.rm("b.txt");
+        String to = repo.commit("change").getSha1().toString();
+
+        assertEquals(new TreeMap<>(Map.of(
+                "a.txt", Repository.Change.MODIFIED,
+                "b.txt", Repository.Change.REMOVED,
+                "c.txt", Repository.Change.ADDED)),
+                repo.diff(from.substring(0, 8), to));
+        List<Repository.FileDiff> files = repo.diffFiles(from, to,
+                Arrays.asList("a.txt"), Renames.OFF);
+        assertEquals(1, files.size());
+        Repository.FileDiff a = files.get(0);
+        assertEquals(Repository.Change.MODIFIED, a.getChange());
+        assertEquals("a\n", new String(a.getOld(), StandardCharsets.UTF_8));
+        assertEquals("A\n", new String(a.getNew(), StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,109 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/** A long-running Gitlet process serving the repository in the current
+ * directory, so that commands skip JVM startup and reuse the branch and
+ * stage loaded by earlier commands while their files are unchanged. It
+ * listens on the Unix domain socket .gitlet/daemon.sock and runs the
+ * commands sent by gitlet.Client one at a time. What a command prints
+ * on the standard output and standard error is sent back to the client
+ * with its exit status, which is 1 if it failed with an unexpected
+ * exception or error and 0 otherwise, as for gitlet.Main. A command
+ * that fails that way is reported to its client with its stack trace
+ * on the standard error, and the server goes on serving. Usage:
+ *      java gitlet.Server
+ * The command stop-daemon shuts it down.
+ * @author Jason Ding
+ */
+public class Server {
+
+    /** The command that shuts the server down. */
+    static final String STOP = "stop-daemon";
+
+    /** Serve commands until told to stop. */
+    public static void main(String... args) throws IOException {
+        Context ctx = new Context(new File("."));
+        if (!ctx.getRepo().exists()) {
+            Utils.message("Not in an initialized Gitlet directory.");
+            System.exit(0);
+        }
+        Files.deleteIfExists(ctx.getSocket().toPath());
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        try (ServerSocketChannel server =
+                     ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(ctx.getSocket().toPath()));
+            boolean running = true;
+            while (running) {
+                try (SocketChannel client = server.accept()) {
+                    running = serve(client);
+                } catch (IOException excp) {
+                    stdout.println(excp.getMessage());
+                } finally {
+                    System.setOut(stdout);
+                    System.setErr(stderr);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(ctx.getSocket().toPath());
+        }
+        System.exit(0);
+    }
+
+    /** Run the command sent by CLIENT and send back its exit status,
+     * then its standard output and standard error, each as a length
+     * followed by that many bytes. Return false if the server should
+     * stop.
+     */
+    private static boolean serve(SocketChannel client) throws IOException {
+        DataInputStream in =
+            new DataInputStream(Channels.newInputStream(client));
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(stdout, true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(stderr, true, StandardCharsets.UTF_8));
+        boolean running = true;
+        int status = 0;
+        if (args.length == 1 && args[0].equals(STOP)) {
+            running = false;
+        } else {
+            try {
+                Main.run(args);
+            } catch (GitletException excp) {
+                Utils.message(excp.getMessage());
+            } catch (Throwable excp) {
+                excp.printStackTrace();
+                status = 1;
+            }
+        }
+        System.out.flush();
+        System.err.flush();
+        DataOutputStream out =
+            new DataOutputStream(Channels.newOutputStream(client));
+        out.writeInt(status);
+        out.writeInt(stdout.size());
+        stdout.writeTo(out);
+        out.writeInt(stderr.size());
+        stderr.writeTo(out);
+        out.flush();
+        return running;
+    }
+
+}
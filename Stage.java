@@ -10,25 +10,27 @@ import java.util.HashMap;
  */
 public class Stage implements Serializable {
 
+    /** Version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
     /** HashMap that stores all files in the staging area. */
-    private HashMap<String, String> _currStage;
+    private HashMap<String, ObjectId> _currStage;
     /** Stage for removing files. */
-    private HashMap<String, String> _removeStage;
+    private HashMap<String, ObjectId> _removeStage;
     /** The String branch of the staging area. */
     private String _branch;
     /** The file that stores the stage. */
     private File _file;
 
     /** The constructor of the class.
-     * Take in BRANCH.
+     * Take in BRANCH of the repository CTX.
      */
-    Stage(String branch) throws IOException {
+    Stage(Context ctx, String branch) throws IOException {
         _currStage = new HashMap<>();
         _removeStage = new HashMap<>();
         _branch = branch;
-        _file = Utils.join(Main.STAGE, _branch);
-        _file.createNewFile();
-        Utils.writeObject(_file, this);
+        _file = Utils.join(ctx.getStage(), _branch);
+        update();
     }
 
     /** Return the file of the stage. */
@@ -37,7 +39,7 @@ public class Stage implements Serializable {
     }
 
     /** Add files for removal. Take in commit's NAME and its BLOB. */
-    public void toRemove(String name, String blob) {
+    public void toRemove(String name, ObjectId blob) {
         _removeStage.put(name, blob);
         update();
     }
@@ -45,7 +47,7 @@ public class Stage implements Serializable {
     /** Put the file with BLOB representation in the HashMap
      * according to its NAME with.
      */
-    public void put(String name, String blob) {
+    public void put(String name, ObjectId blob) {
         _currStage.put(name, blob);
         update();
     }
@@ -57,27 +59,33 @@ public class Stage implements Serializable {
     }
 
     /** Return the current HASHMAP.*/
-    public HashMap<String, String> getCurrStage() {
+    public HashMap<String, ObjectId> getCurrStage() {
         return _currStage;
     }
 
     /** Return the removal HASHMAP. */
-    public HashMap<String, String> getRemoveStage() {
+    public HashMap<String, ObjectId> getRemoveStage() {
         return _removeStage;
     }
 
     /** Update the staging area in the file. */
     public void update() {
-        Utils.writeObject(_file, this);
+        WriteBatch.writeDurable(_file, Utils.serialize(this));
     }
 
-    /** Reads in the Stage file according to its BRANCH. Return the STAGE. */
-    public static Stage fromFile(String branch) {
-        if (!Utils.join(Main.STAGE, branch).exists()) {
+    /** Reads in the Stage file of the repository CTX according to its
+     * BRANCH. The stage is saved back to where it was read from, whatever
+     * directory it was written from. Return the STAGE.
+     */
+    public static Stage fromFile(Context ctx, String branch) {
+        File f = Utils.join(ctx.getStage(), branch);
+        if (!f.exists()) {
             throw new IllegalArgumentException(
                     "No stage of branch with this name found.");
         }
-        return Utils.readObject(Utils.join(Main.STAGE, branch), Stage.class);
+        Stage s = Utils.readObject(f, Stage.class);
+        s._file = f;
+        return s;
     }
 
 }
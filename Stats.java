@@ -0,0 +1,362 @@
+package gitlet;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** Counters and phase timings for one command. Instrumentation is off
+ * unless a command is being measured, in which case the thread running
+ * it, and threads it starts, count commit and blob reads, bytes read
+ * and written, and objects serialized, and time the phases the command
+ * marks. The result can be printed as text or JSON, and is also emitted
+ * as JFR events named gitlet.Command and gitlet.Phase, which a running
+ * flight recording picks up.
+ * @author Jason Ding
+ */
+public class Stats {
+
+    /** Environment variable turning instrumentation on for every command:
+     * "text" (or "1" or "true"), "json", or "jfr" for events only. */
+    public static final String ENV = "GITLET_STATS";
+
+    /** The report formats. */
+    public enum Format {
+        /** A human-readable table. */
+        TEXT,
+        /** A single JSON object. */
+        JSON,
+        /** JFR events only, with nothing printed. */
+        JFR
+    }
+
+    /** The command measured by each thread, or null. */
+    private static final InheritableThreadLocal<Stats> CURRENT =
+        new InheritableThreadLocal<>();
+
+    /** The command measured. */
+    private final String _command;
+    /** The format of the report. */
+    private final Format _format;
+    /** System.nanoTime at the start of the command. */
+    private final long _start;
+    /** Duration of the command in nanoseconds, once finished. */
+    private long _elapsed;
+    /** Total nanoseconds spent in each phase, in the order first seen. */
+    private final LinkedHashMap<String, Long> _phases =
+        new LinkedHashMap<>();
+    /** Number of commits read. */
+    private final LongAdder _commitReads = new LongAdder();
+    /** Number of blobs read. */
+    private final LongAdder _blobReads = new LongAdder();
+    /** Bytes read from files. */
+    private final LongAdder _bytesRead = new LongAdder();
+    /** Bytes written to files. */
+    private final LongAdder _bytesWritten = new LongAdder();
+    /** Number of objects serialized. */
+    private final LongAdder _serialized = new LongAdder();
+    /** Number of objects deserialized. */
+    private final LongAdder _deserialized = new LongAdder();
+
+    /** Statistics of COMMAND, to be reported in FORMAT. */
+    private Stats(String command, Format format) {
+        _command = command;
+        _format = format;
+        _start = System.nanoTime();
+    }
+
+    /** Return the format named NAME, as given to --stats= or in
+     * GITLET_STATS, or null if NAME is null or empty.
+     */
+    public static Format parseFormat(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        switch (name.toLowerCase(Locale.ROOT)) {
+        case "1":
+        case "true":
+        case "text":
+            return Format.TEXT;
+        case "json":
+            return Format.JSON;
+        case "jfr":
+            return Format.JFR;
+        default:
+            throw Utils.error("Unknown stats format: %s", name);
+        }
+    }
+
+    /** Start measuring COMMAND on this thread, to be reported in FORMAT.
+     * Return its statistics.
+     */
+    public static Stats start(String command, Format format) {
+        Stats stats = new Stats(command, format);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /** Stop measuring on this thread and emit the JFR events. */
+    public void finish() {
+        _elapsed = System.nanoTime() - _start;
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        CommandEvent event = new CommandEvent();
+        if (event.isEnabled()) {
+            event.command = _command;
+            event.elapsed = _elapsed;
+            event.commitReads = _commitReads.sum();
+            event.blobReads = _blobReads.sum();
+            event.bytesRead = _bytesRead.sum();
+            event.bytesWritten = _bytesWritten.sum();
+            event.serialized = _serialized.sum();
+            event.deserialized = _deserialized.sum();
+            event.commit();
+        }
+    }
+
+    /** Return the format of the report. */
+    public Format getFormat() {
+        return _format;
+    }
+
+    /** Return the statistics as a human-readable table. */
+    public String toText() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("=== Stats: %s ===%n", _command));
+        line(out, "total", millis(_elapsed) + " ms");
+        for (Map.Entry<String, Long> e : phases().entrySet()) {
+            line(out, "phase " + e.getKey(), millis(e.getValue()) + " ms");
+        }
+        for (Map.Entry<String, Long> e : counters().entrySet()) {
+            line(out, e.getKey(), Long.toString(e.getValue()));
+        }
+        return out.toString().stripTrailing();
+    }
+
+    /** Return the statistics as a JSON object. */
+    public String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"command\":\"").append(escape(_command)).append('"');
+        out.append(",\"totalMillis\":").append(millis(_elapsed));
+        out.append(",\"phases\":{");
+        String sep = "";
+        for (Map.Entry<String, Long> e : phases().entrySet()) {
+            out.append(sep).append('"').append(escape(e.getKey()))
+                .append("\":").append(millis(e.getValue()));
+            sep = ",";
+        }
+        out.append('}');
+        for (Map.Entry<String, Long> e : counters().entrySet()) {
+            out.append(",\"").append(e.getKey()).append("\":")
+                .append(e.getValue());
+        }
+        return out.append('}').toString();
+    }
+
+    /** Return the report in the chosen format, or null for JFR. */
+    public String report() {
+        switch (_format) {
+        case JSON:
+            return toJson();
+        case TEXT:
+            return toText();
+        default:
+            return null;
+        }
+    }
+
+    /** Return a copy of the phase timings in nanoseconds. */
+    public Map<String, Long> phases() {
+        synchronized (_phases) {
+            return new LinkedHashMap<>(_phases);
+        }
+    }
+
+    /** Return the counters by name. */
+    public Map<String, Long> counters() {
+        LinkedHashMap<String, Long> result = new LinkedHashMap<>();
+        result.put("commitReads", _commitReads.sum());
+        result.put("blobReads", _blobReads.sum());
+        result.put("bytesRead", _bytesRead.sum());
+        result.put("bytesWritten", _bytesWritten.sum());
+        result.put("objectsSerialized", _serialized.sum());
+        result.put("objectsDeserialized", _deserialized.sum());
+        return result;
+    }
+
+    /** Append a line showing NAME and VALUE to OUT. */
+    private static void line(StringBuilder out, String name, String value) {
+        out.append(String.format("%-24s %12s%n", name, value));
+    }
+
+    /** Return NANOS in milliseconds, to three decimals. */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /** Return S escaped for a JSON string. */
+    private static String escape(String s) {
+        StringBuilder out = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < ' ') {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /** A timed phase of a command, ended by closing it. */
+    public static final class Phase implements AutoCloseable {
+        /** The statistics the phase is added to, or null. */
+        private final Stats _stats;
+        /** The name of the phase. */
+        private final String _name;
+        /** System.nanoTime at the start of the phase. */
+        private final long _start;
+
+        /** A phase NAME of STATS starting now. */
+        private Phase(Stats stats, String name) {
+            _stats = stats;
+            _name = name;
+            _start = stats == null ? 0 : System.nanoTime();
+        }
+
+        /** Add the time since the phase started to its total. */
+        @Override
+        public void close() {
+            if (_stats == null) {
+                return;
+            }
+            long elapsed = System.nanoTime() - _start;
+            synchronized (_stats._phases) {
+                _stats._phases.merge(_name, elapsed, Long::sum);
+            }
+            PhaseEvent event = new PhaseEvent();
+            if (event.isEnabled()) {
+                event.command = _stats._command;
+                event.phase = _name;
+                event.elapsed = elapsed;
+                event.commit();
+            }
+        }
+    }
+
+    /** Start the phase NAME of the command measured on this thread.
+     * Return the phase, to be closed when it ends.
+     */
+    static Phase phase(String name) {
+        return new Phase(CURRENT.get(), name);
+    }
+
+    /** Count a commit read. */
+    static void countCommitRead() {
+        Stats s = CURRENT.get();
+        if (s != null) {
+            s._commitReads.increment();
+        }
+    }
+
+    /** Count a blob read. */
+    static void countBlobRead() {
+        Stats s = CURRENT.get();
+        if (s != null) {
+            s._blobReads.increment();
+        }
+    }
+
+    /** Count BYTES read from a file. */
+    static void countRead(long bytes) {
+        Stats s = CURRENT.get();
+        if (s != null) {
+            s._bytesRead.add(bytes);
+        }
+    }
+
+    /** Count BYTES written to a file. */
+    static void countWritten(long bytes) {
+        Stats s = CURRENT.get();
+        if (s != null) {
+            s._bytesWritten.add(bytes);
+        }
+    }
+
+    /** Count an object serialized. */
+    static void countSerialized() {
+        Stats s = CURRENT.get();
+        if (s != null) {
+            s._serialized.increment();
+        }
+    }
+
+    /** Count an object deserialized. */
+    static void countDeserialized() {
+        Stats s = CURRENT.get();
+        if (s != null) {
+            s._deserialized.increment();
+        }
+    }
+
+    /** The JFR event recording one command. */
+    @Name("gitlet.Command")
+    @Label("Gitlet Command")
+    @Category("Gitlet")
+    static class CommandEvent extends Event {
+        /** The command. */
+        @Label("Command")
+        String command;
+        /** Duration of the command. */
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+        /** Number of commits read. */
+        @Label("Commit Reads")
+        long commitReads;
+        /** Number of blobs read. */
+        @Label("Blob Reads")
+        long blobReads;
+        /** Bytes read from files. */
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+        /** Bytes written to files. */
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+        /** Number of objects serialized. */
+        @Label("Objects Serialized")
+        long serialized;
+        /** Number of objects deserialized. */
+        @Label("Objects Deserialized")
+        long deserialized;
+    }
+
+    /** The JFR event recording one phase of a command. */
+    @Name("gitlet.Phase")
+    @Label("Gitlet Phase")
+    @Category("Gitlet")
+    static class PhaseEvent extends Event {
+        /** The command. */
+        @Label("Command")
+        String command;
+        /** The phase. */
+        @Label("Phase")
+        String phase;
+        /** Duration of the phase. */
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+}
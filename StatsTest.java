@@ -0,0 +1,103 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the statistics reported by --stats.
+ * @author Jason Ding
+ */
+public class StatsTest {
+
+    @Test
+    public void formatsAreParsed() {
+        assertNull(Stats.parseFormat(null));
+        assertNull(Stats.parseFormat(""));
+        assertEquals(Stats.Format.TEXT, Stats.parseFormat("1"));
+        assertEquals(Stats.Format.TEXT, Stats.parseFormat("true"));
+        assertEquals(Stats.Format.TEXT, Stats.parseFormat("Text"));
+        assertEquals(Stats.Format.JSON, Stats.parseFormat("JSON"));
+        assertEquals(Stats.Format.JFR, Stats.parseFormat("jfr"));
+        try {
+            Stats.parseFormat("xml");
+            fail("xml accepted");
+        } catch (GitletException excp) {
+            assertEquals("Unknown stats format: xml", excp.getMessage());
+        }
+    }
+
+    @Test
+    public void commandIsMeasuredUntilFinished() throws IOException {
+        Repository repo = UnitTest.newRepository();
+        UnitTest.write(repo, "a.txt", "a\n");
+        repo.add("a.txt");
+        Stats stats = Stats.start("commit", Stats.Format.TEXT);
+        try {
+            repo.commit("measured");
+        } finally {
+            stats.finish();
+        }
+        assertTrue(stats.phases().containsKey("write commit"));
+        Map<String, Long> counters = stats.counters();
+        assertTrue(counters.get("objectsSerialized") > 0);
+        assertTrue(counters.get("bytesWritten") > 0);
+        assertTrue(counters.get("commitReads") > 0);
+
+        UnitTest.commit(repo, "a.txt", "b\n", "not measured");
+        assertEquals(counters, stats.counters());
+    }
+
+    @Test
+    public void reportsInEachFormat() {
+        Stats stats = Stats.start("say \"hi\"", Stats.Format.JSON);
+        try (Stats.Phase p = Stats.phase("greet")) {
+            Stats.countBlobRead();
+            Stats.countRead(5);
+        }
+        stats.finish();
+
+        String text = stats.toText();
+        assertTrue(text, text.startsWith("=== Stats: say \"hi\" ===\n"));
+        assertTrue(text, text.matches("(?s).*\nphase greet +[0-9.]+ ms\n.*"));
+        assertTrue(text, text.matches("(?s).*\nblobReads +1\n.*"));
+        assertTrue(text, text.matches("(?s).*\nbytesRead +5\n.*"));
+
+        String json = stats.toJson();
+        assertEquals(json, stats.report());
+        assertTrue(json, json.startsWith(
+                "{\"command\":\"say \\\"hi\\\"\",\"totalMillis\":"));
+        assertTrue(json, json.matches(
+                ".*,\"phases\":\\{\"greet\":[0-9.]+\\},.*"));
+        assertTrue(json, json.contains(",\"blobReads\":1,"));
+        assertTrue(json, json.endsWith(",\"objectsDeserialized\":0}"));
+
+        Stats jfr = Stats.start("quiet", Stats.Format.JFR);
+        jfr.finish();
+        assertNull(jfr.report());
+    }
+
+    @Test
+    public void commandLineReportsOnStandardError() throws IOException {
+        File dir = UnitTest.newRepository().getWorkingDirectory();
+        String[] text = UnitTest.gitlet(dir, Map.of(), "--stats", "status");
+        assertTrue(text[0], text[0].startsWith("=== Branches ===\n"));
+        assertTrue(text[1], text[1].startsWith("=== Stats: status ===\n"));
+
+        String[] json = UnitTest.gitlet(dir, Map.of(), "--stats=json",
+                "log");
+        assertTrue(json[0], json[0].startsWith("===\ncommit "));
+        assertTrue(json[1], json[1].startsWith("{\"command\":\"log\","));
+
+        String[] env = UnitTest.gitlet(dir, Map.of(Stats.ENV, "json"),
+                "log");
+        assertTrue(env[1], env[1].startsWith("{\"command\":\"log\","));
+
+        assertEquals("", UnitTest.gitlet(dir, Map.of(), "log")[1]);
+        assertEquals("Unknown stats format: xml\n",
+                UnitTest.gitlet(dir, "--stats=xml", "log"));
+    }
+
+}
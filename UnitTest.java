@@ -0,0 +1,133 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import ucb.junit.textui;
+
+/** The suite of all JUnit tests for the gitlet package.
+ * @author Jason Ding
+ */
+public class UnitTest {
+
+    /** Run the JUnit tests in the gitlet package. Add xxxTest.class to
+     * the class list to run those tests too.
+     */
+    public static void main(String[] ignored) {
+        System.exit(textui.runClasses(CommitIndexTest.class,
+                PathTableTest.class, DiffTest.class, LineMergeTest.class,
+                RenamesTest.class, ObjectStoreTest.class,
+                MigrationTest.class, GarbageCollectorTest.class,
+                RecordFileTest.class, WriteBatchTest.class,
+                RepoLockTest.class, FsckTest.class, PathFilterTest.class,
+                MergeTest.class, FetchTest.class, CheckoutTest.class,
+                MaterializerTest.class, CommitLogTest.class,
+                MessageIndexTest.class, LogTest.class,
+                CommitTimeTest.class, RepositoryTest.class,
+                ContextTest.class, StatsTest.class));
+    }
+
+    /** Return the context of a new, empty repository in a temporary
+     * directory that is removed when the JVM exits.
+     */
+    static Context tempRepository() {
+        try {
+            File cwd = Files.createTempDirectory("gitlet-test").toFile();
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(() -> delete(cwd)));
+            Context ctx = new Context(cwd);
+            ctx.getRepo().mkdir();
+            ctx.getObjects().mkdir();
+            ctx.getLogs().mkdir();
+            return ctx;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return a new repository in a temporary directory that is removed
+     * when the JVM exits.
+     */
+    static Repository newRepository() {
+        try {
+            File cwd = Files.createTempDirectory("gitlet-test").toFile();
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(() -> delete(cwd)));
+            return Repository.init(cwd);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write CONTENTS to the file NAME in the working directory of
+     * REPO.
+     */
+    static void write(Repository repo, String name, String contents) {
+        File f = Utils.join(repo.getWorkingDirectory(), name);
+        f.getParentFile().mkdirs();
+        Utils.writeContents(f, contents);
+    }
+
+    /** Write CONTENTS to the file NAME in the working directory of REPO
+     * and commit it with MESSAGE. Return the commit.
+     */
+    static Commit commit(Repository repo, String name, String contents,
+                         String message) throws IOException {
+        write(repo, name, contents);
+        repo.add(name);
+        return repo.commit(message);
+    }
+
+    /** Run gitlet with ARGS in the directory DIR in a new JVM, with
+     * ENV added to its environment, and return what it printed on its
+     * standard output and on its standard error, in that order.
+     */
+    static String[] gitlet(File dir, Map<String, String> env,
+                           String... args) {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                Utils.join(System.getProperty("java.home"), "bin", "java")
+                .getPath(), "-cp", System.getProperty("java.class.path"),
+                Main.class.getName()));
+        command.addAll(Arrays.asList(args));
+        try {
+            File err = File.createTempFile("gitlet-test", ".err");
+            err.deleteOnExit();
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .directory(dir).redirectError(err);
+            builder.environment().putAll(env);
+            Process p = builder.start();
+            p.getOutputStream().close();
+            String out = new String(p.getInputStream().readAllBytes(),
+                    StandardCharsets.UTF_8);
+            p.waitFor();
+            return new String[] {out, Utils.readContentsAsString(err)};
+        } catch (IOException | InterruptedException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Run gitlet with ARGS in the directory DIR in a new JVM, and
+     * return what it printed on its standard output.
+     */
+    static String gitlet(File dir, String... args) {
+        return gitlet(dir, Map.of(), args)[0];
+    }
+
+    /** Delete F and, if it is a directory, everything in it. */
+    private static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File g : files) {
+                delete(g);
+            }
+        }
+        f.delete();
+    }
+
+}
@@ -0,0 +1,142 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/** Runs a task over each item of a list on a pool of worker threads,
+ * or on the calling thread when the list is too short to be worth one.
+ * Objects the tasks write go into the caller's open WriteBatch, if it
+ * has one. A task that fails fails the whole run with its own
+ * exception once the other tasks have been stopped.
+ * @author Jason Ding
+ */
+class Workers {
+
+    /** Environment variable holding the maximum number of threads. */
+    static final String JOBS_ENV = "GITLET_JOBS";
+    /** Number of items below which a thread pool is not worth it. */
+    private static final int MIN_PARALLEL = 16;
+
+    /** A task run on one item. */
+    interface Task<T> {
+        /** Do the work for ITEM. */
+        void run(T item) throws IOException;
+    }
+
+    /** Not instantiable. */
+    private Workers() {
+    }
+
+    /** Return the maximum number of threads, from GITLET_JOBS or else
+     * the number of processors.
+     */
+    static int jobs() {
+        return jobs(JOBS_ENV);
+    }
+
+    /** Return the maximum number of threads for one kind of work, from
+     * the environment variable ENV, which overrides GITLET_JOBS, or else
+     * from GITLET_JOBS or the number of processors.
+     */
+    static int jobs(String env) {
+        String name = System.getenv(env) != null ? env : JOBS_ENV;
+        String value = System.getenv(name);
+        if (value == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException(
+                    name + " must be a number.");
+        }
+    }
+
+    /** Run TASK on each of ITEMS, in parallel when there are enough of
+     * them, and return once all have finished.
+     */
+    static <T> void forEach(List<T> items, Task<T> task) {
+        forEach(items, jobs(), task);
+    }
+
+    /** Run TASK on each of ITEMS as forEach(ITEMS, TASK) does, on at most
+     * JOBS threads. If a task fails, the others are cancelled and the
+     * failure is rethrown only once none of them is still running, so
+     * the caller can clean up after all of them.
+     */
+    static <T> void forEach(List<T> items, int jobs, Task<T> task) {
+        int threads = Math.min(jobs, items.size() / MIN_PARALLEL + 1);
+        if (threads <= 1) {
+            for (T item : items) {
+                runOne(task, item);
+            }
+            return;
+        }
+        WriteBatch batch = WriteBatch.current();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<?>> pending = new ArrayList<>(items.size());
+            for (T item : items) {
+                pending.add(pool.submit(() -> {
+                    WriteBatch.attach(batch);
+                    try {
+                        runOne(task, item);
+                    } finally {
+                        WriteBatch.attach(null);
+                    }
+                }));
+            }
+            for (Future<?> f : pending) {
+                f.get();
+            }
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalArgumentException(excp.getCause());
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Interrupted.");
+        } finally {
+            stop(pool);
+        }
+    }
+
+    /** Cancel what POOL has not yet run and wait for what it is running
+     * to finish.
+     */
+    private static void stop(ExecutorService pool) {
+        pool.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException excp) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Run TASK on ITEM, turning an IOException into an
+     * IllegalArgumentException.
+     */
+    private static <T> void runOne(Task<T> task, T item) {
+        try {
+            task.run(item);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+
+/** Crash-safe file writes. Every write goes to a temporary file in the
+ * same directory that is renamed over its destination, so readers see
+ * either the old or the new contents. Refs and stages are synced before
+ * the rename. Objects written while a batch is open are only synced
+ * when the batch is, so a commit pays for one round of syncs before its
+ * ref update rather than one per object; objects written outside a
+ * batch are synced immediately. Each thread has its own open batch, so
+ * threads working on different repositories do not share one; worker
+ * threads helping with one operation can be attached to its batch.
+ * Batches are opened in try-with-resources statements, so that a failed
+ * operation does not leave its batch open on the thread.
+ * @author Jason Ding
+ */
+class WriteBatch implements AutoCloseable {
+
+    /** The open batch of each thread. */
+    private static final ThreadLocal<WriteBatch> CURRENT =
+        new ThreadLocal<>();
+
+    /** The files written in this batch that still need syncing. */
+    private LinkedHashSet<File> _files = new LinkedHashSet<>();
+
+    /** Open and return a new batch that objects written by this thread
+     * go into.
+     */
+    static WriteBatch begin() {
+        WriteBatch batch = new WriteBatch();
+        CURRENT.set(batch);
+        return batch;
+    }
+
+    /** Return the open batch of this thread, or null if there is
+     * none.
+     */
+    static WriteBatch current() {
+        return CURRENT.get();
+    }
+
+    /** Make BATCH, which may be null, the open batch of this thread, so
+     * that a worker thread's objects are synced with its caller's.
+     */
+    static void attach(WriteBatch batch) {
+        if (batch == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(batch);
+        }
+    }
+
+    /** Sync every object written in this batch, and the directories
+     * they were written into, and close the batch.
+     */
+    void sync() {
+        LinkedHashSet<File> dirs = new LinkedHashSet<>();
+        synchronized (this) {
+            for (File f : _files) {
+                force(f.toPath(), false);
+                dirs.add(f.getAbsoluteFile().getParentFile());
+            }
+            _files.clear();
+        }
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        for (File dir : dirs) {
+            force(dir.toPath(), true);
+        }
+    }
+
+    /** Close the batch without syncing what it still holds, if it was
+     * not synced, so that later writes of this thread no longer go into
+     * it.
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /** Atomically replace the contents of the ref or stage file FILE
+     * with DATA, syncing it before it becomes visible.
+     */
+    static void writeDurable(File file, byte[] data) {
+        write(file, data, true);
+        force(file.getAbsoluteFile().getParentFile().toPath(), true);
+    }
+
+    /** Atomically write the object file FILE with DATA, deferring the
+     * sync to the open batch if there is one.
+     */
+    static void writeObject(File file, byte[] data) {
+        WriteBatch batch = CURRENT.get();
+        if (batch != null) {
+            write(file, data, false);
+            synchronized (batch) {
+                batch._files.add(file);
+            }
+            return;
+        }
+        writeDurable(file, data);
+    }
+
+    /** Append TEXT, which is whole lines, to FILE, creating it if
+     * needed, and sync it if SYNC. A last line that a crash left without
+     * its newline is ended first, so that it cannot run into the first
+     * line of TEXT; readers skip such lines.
+     */
+    static void appendLines(File file, String text, boolean sync) {
+        try (FileChannel ch = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long end = ch.size();
+            if (end > 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                ch.read(last, end - 1);
+                if (last.get(0) != '\n') {
+                    text = "\n" + text;
+                }
+            }
+            ByteBuffer buf =
+                ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) {
+                end += ch.write(buf, end);
+            }
+            if (sync) {
+                ch.force(false);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write DATA to a temporary file beside FILE, syncing it if SYNC,
+     * and rename it over FILE. The temporary file gets a fresh name, so
+     * that threads or processes writing the same object do not clash.
+     */
+    private static void write(File file, byte[] data, boolean sync) {
+        if (file.isDirectory()) {
+            throw new IllegalArgumentException("cannot overwrite directory");
+        }
+        Path target = file.toPath();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(
+                    file.getAbsoluteFile().getParentFile().toPath(),
+                    "." + file.getName(), ".tmp");
+            try (FileChannel out = FileChannel.open(temp,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                while (buf.hasRemaining()) {
+                    out.write(buf);
+                }
+                if (sync) {
+                    out.force(true);
+                }
+            }
+            Stats.countWritten(data.length);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException excp) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException excp) {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Flush PATH to disk. Failures are ignored for a DIRECTORY, since
+     * not every platform can sync one.
+     */
+    private static void force(Path path, boolean directory) {
+        try (FileChannel ch = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException excp) {
+            if (!directory) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+    }
+
+}
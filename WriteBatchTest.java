@@ -0,0 +1,68 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of atomic file writes.
+ * @author Jason Ding
+ */
+public class WriteBatchTest {
+
+    /** Return TEXT as bytes. */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writeDurableRenamesIntoPlace() {
+        Context ctx = UnitTest.tempRepository();
+        File f = Utils.join(ctx.getRepo(), "ref");
+        WriteBatch.writeDurable(f, bytes("old"));
+        WriteBatch.writeDurable(f, bytes("new"));
+        assertEquals("new", Utils.readContentsAsString(f));
+        for (String name : ctx.getRepo().list()) {
+            assertFalse(name, name.endsWith(".tmp"));
+        }
+    }
+
+    @Test
+    public void batchedObjectsAreVisibleBeforeTheSync() {
+        Context ctx = UnitTest.tempRepository();
+        ObjectId id = ObjectId.ofBlob("x");
+        File f = ObjectStore.fileForWrite(ctx, id);
+        try (WriteBatch batch = WriteBatch.begin()) {
+            WriteBatch.writeObject(f, bytes("x"));
+            assertEquals("x", Utils.readContentsAsString(f));
+            batch.sync();
+        }
+        assertArrayEquals(new String[] {id.toString()},
+                f.getParentFile().list());
+    }
+
+    @Test
+    public void failedWriteLeavesNoTemporaryFile() {
+        Context ctx = UnitTest.tempRepository();
+        File dir = Utils.join(ctx.getRepo(), "dir");
+        dir.mkdir();
+        try {
+            WriteBatch.writeDurable(dir, bytes("x"));
+            fail("directory overwritten");
+        } catch (IllegalArgumentException excp) {
+            assertTrue(dir.isDirectory());
+        }
+        File missing = Utils.join(ctx.getRepo(), "no", "such", "file");
+        try {
+            WriteBatch.writeDurable(missing, bytes("x"));
+            fail("wrote into a missing directory");
+        } catch (IllegalArgumentException excp) {
+            assertFalse(missing.exists());
+        }
+        for (String name : ctx.getRepo().list()) {
+            assertFalse(name, name.endsWith(".tmp"));
+        }
+    }
+
+}